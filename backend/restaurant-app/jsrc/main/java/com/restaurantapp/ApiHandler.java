@@ -6,9 +6,10 @@ import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.restaurantapp.Controller.*;
-import com.restaurantapp.Repository.LocationRepository;
-import com.restaurantapp.Service.LocationService;
+import com.restaurantapp.Repository.DishCatalog;
+import com.restaurantapp.Repository.ReferenceDataCache;
 import com.restaurantapp.Service.ReservationService;
+import com.restaurantapp.di.AppComponent;
 import com.restaurantapp.di.DaggerAppComponent;
 import com.restaurantapp.Middleware.AuthMiddleware;
 import com.syndicate.deployment.annotations.environment.EnvironmentVariable;
@@ -23,6 +24,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 /**
  * Main Lambda handler for API requests.
@@ -39,12 +43,17 @@ import java.util.Map;
 		@EnvironmentVariable(key = "user_table", value = "${user_table}"),
 		@EnvironmentVariable(key = "waiter_table", value = "${waiter_table}"),
 		@EnvironmentVariable(key = "booking_table", value = "${booking_table}"),
+		@EnvironmentVariable(key = "slot_claim_table", value = "${slot_claim_table}"),
+		@EnvironmentVariable(key = "waiter_load_table", value = "${waiter_load_table}"),
 		@EnvironmentVariable(key = "location_table", value = "${location_table}"),
 		@EnvironmentVariable(key = "cognito_pool", value = "${cognito_pool}"),
+		@EnvironmentVariable(key = "cognito_user_pool_id", value = "${cognito_user_pool_id}"),
+		@EnvironmentVariable(key = "cognito_client_id", value = "${cognito_client_id}"),
 		@EnvironmentVariable(key = "dishes_table", value = "${dishes_table}"),
 		@EnvironmentVariable(key = "feedback_table", value = "${feedback_table}"),
 		@EnvironmentVariable(key = "special_dishes_table", value = "${special_dishes_table}"),
 		@EnvironmentVariable(key = "tables_table_name", value = "${tables_table_name}"),
+		@EnvironmentVariable(key = "reference_version_table", value = "${reference_version_table}"),
 		@EnvironmentVariable(key = "cart_table", value = "${cart_table}"),
 		@EnvironmentVariable(key = "order_table", value = "${order_table}"),
 		@EnvironmentVariable(key = "jwt_secret", value = "${jwt_secret}")
@@ -76,11 +85,20 @@ public class ApiHandler implements RequestHandler<APIGatewayProxyRequestEvent, A
 	// US15
 	private final CustomerFeedbackController customerFeedbackController;
 
+	// Content versions and cached bodies for conditional GETs on catalog routes
+	private final ReferenceDataCache referenceDataCache;
+	private final DishCatalog dishCatalog;
+	private final ResponseCache responseCache = new ResponseCache();
+
+	private final Router router;
 
 
 	public ApiHandler() {
 		// Initialize dependencies using Dagger
-		var appComponent = DaggerAppComponent.create();
+		this(DaggerAppComponent.create());
+	}
+
+	ApiHandler(AppComponent appComponent) {
 		this.demoController = appComponent.demoController();
 		this.userController = appComponent.userController();
 		this.reservationWaiterController=appComponent.reservationWaiterController();
@@ -97,9 +115,7 @@ public class ApiHandler implements RequestHandler<APIGatewayProxyRequestEvent, A
 		this.anonymousFeedbackController = appComponent.anonymousFeedbackController();
 
 		// location and dishes
-		LocationRepository repository=new LocationRepository();
-		LocationService locationService=new LocationService(repository);
-		this.locationController = new LocationController(locationService);
+		this.locationController = appComponent.locationController();
 
 		this.dishesController = appComponent.dishesController();
 		this.feedbackController=appComponent.feedbackController();
@@ -108,6 +124,11 @@ public class ApiHandler implements RequestHandler<APIGatewayProxyRequestEvent, A
 		//US15
 		this.customerFeedbackController = appComponent.customerFeedbackController();
 
+		this.referenceDataCache = appComponent.referenceDataCache();
+		this.dishCatalog = appComponent.dishCatalog();
+
+		this.router = buildRouter();
+
 
 		LOG.info("ApiHandler initialized with controllers");
 	}
@@ -144,148 +165,148 @@ public class ApiHandler implements RequestHandler<APIGatewayProxyRequestEvent, A
 	}
 
 	private APIGatewayProxyResponseEvent routeRequest(APIGatewayProxyRequestEvent request, String path) {
-		String method = request.getHttpMethod();
-		String body = request.getBody();
-
-		Map<String, String> queryParams = request.getQueryStringParameters();
-		// Handle null queryParams (AWS can return null if no query parameters are present)
-		if (queryParams == null) {
-			queryParams = new HashMap<>();
+		Router.Match match = router.match(request.getHttpMethod(), path);
+		if (match == null) {
+			// Endpoint not found
+			return ApiResponse.notFound("Endpoint not found: " + path);
 		}
 
-		// Public endpoints
-		if ("/v1/hello".equals(path) && "GET".equals(method)) {
-			String result = demoController.hello();
-			return ApiResponse.success(Map.of("message", result));
-		} else if ("/v1/auth/sign-up".equals(path) && "POST".equals(method)) {
-			return userController.signUp(body);
-		} else if ("/v1/auth/sign-in".equals(path) && "POST".equals(method)) {
-			return userController.login(body);
-		} 
-
-		//dishes and feedbacks
-		else if ("/v1/dishes/popular".equals(path)) {
-			if("GET".equals(method))
-				return dishesController.getPopularDishes();
-		}
-		else if (path.matches("/v1/locations/[^/]+/feedbacks") && "GET".equals(method)) {
-			// Extract location ID from path
-			String locationId = path.split("/")[3];
-			return feedbackController.getFeedback(
-					Map.of("id", locationId),
-					request.getQueryStringParameters() != null ? request.getQueryStringParameters() : Collections.emptyMap()
-			);}
-		else if (path.equals("/v1/locations") && "GET".equals(request.getHttpMethod())) {
-			return locationController.getAllLocations();
-		}
-		// Handle /locations/{id}/speciality-dishes endpoint
-		else if (path.matches("^/v1/locations/[^/]+/speciality-dishes$") && "GET".equals(request.getHttpMethod())) {
-			String locationId = path.split("/")[3];
-			return locationController.getSpecialityDishes(locationId);
-		}
-
-		// us-5
-		else if ("/v1/location/select-options".equals(path)) {
-			if ("GET".equals(method)) {
-				LOG.info("Route matched: /v1/location/select-options (GET)");
-				return locationController.getLocations();
-			} else {
-				LOG.warn("Invalid method for /v1/location/select-options: {}", method);
-				return ApiResponse.methodNotAllowed("Method Not Allowed: Use GET instead.");
-			} }
-		else if ("/v1/bookings/tables".equals(path) && "GET".equals(method)) {
-			return tableController.handleTableReservations(request);
-		}
-
-		//US 11
-		else if (path.equals("/v1/feedbacks/visitor") && method.equals("GET")) {
-			String reservationId = queryParams.get("reservationId");
-			String secretCode = queryParams.get("secretCode");
-			return anonymousFeedbackController.authenticateFeedback(reservationId, secretCode);
+		Router.Handler handler = match.getRoute().getHandler();
+		Map<String, String> pathParams = match.getPathParams();
+		if (match.getRoute().isAuthRequired()) {
+			return handleProtectedEndpoint(request, claims -> handler.handle(request, pathParams, claims));
 		}
+		return handler.handle(request, pathParams, null);
+	}
 
-		
-		
-		//admin
-		else if ("/v1/create-waiter".equals(path) && "POST".equals(method)) {
-			return userController.createWaiter(body);
-		} else if ("/v1/remove-waiter".equals(path) && "POST".equals(method)) {
-			return userController.updateRole(body);
-			
-		}
-		else if ("/v1/update-booking".equals(path) && "PUT".equals(method)) {
-			return reservationWaiterController.updateReservationByWaiter(body);
-		}
-		else if ("/v1/dishes".equals(path) && "GET".equals(method)) {
-			return dishController.getDishes(request.getQueryStringParameters());
-		}
-		else if (path.matches("/v1/dishes/[^/]+") && "GET".equals(method)) {
-			String dishId = path.substring(path.lastIndexOf("/") + 1);
-			return dishController.getDishById(dishId);
-		}
-//		else if ("/v1/reservations-by-waiter".equals(path) && "GET".equals(method)) {
-//			return reservationGetController.getUserReservations("waiter2@gmail.com");
-//		}
-
-
-
-		// Protected endpoints
-		else if ("/v1/auth/profile".equals(path) && "GET".equals(method)) {
-			return handleProtectedEndpoint(request, claims -> profileController.getProfile(claims));
-		}else if ("/v1/bookings/client".equals(path) && "POST".equals(method)) {
-			return handleProtectedEndpoint(request, claims -> bookingController.createBooking(body, claims));
-		}else if (path.matches("/v1/bookings/client/[^/]+") && "PUT".equals(method)) {
-			String reservationId = path.split("/")[4];
-			return handleProtectedEndpoint(request, claims -> bookingController.updateBooking(reservationId, body, claims));
-		}else if ("/v1/reservations".equals(path) && "GET".equals(method)) {
-			return handleProtectedEndpoint(request, claims -> reservationController.getUserReservations(claims));
-		}else if (("/v1/feedbacks".equals(path) && "POST".equals(method)) || ("/v1/feedbacks/".equals(path) && "POST".equals(method))) {
-			return handleProtectedEndpoint(request, claims -> customerFeedbackController.createFeedback(body, claims));
-		}else if ("/v1/feedbacks/update".equals(path) && "PUT".equals(method)) {
-			return handleProtectedEndpoint(request, claims -> customerFeedbackController.updateFeedback(body, claims));
-		}else if (path.matches("/v1/feedbacks/[^/]+") && "GET".equals(method)) {
-			String reservationId = path.split("/")[3];
-			return handleProtectedEndpoint(request, claims -> customerFeedbackController.getFeedback(reservationId, claims));
-		}
+	// Query parameters with null replaced by an empty map (AWS returns null if none are present)
+	private static Map<String, String> queryParams(APIGatewayProxyRequestEvent request) {
+		Map<String, String> queryParams = request.getQueryStringParameters();
+		return queryParams != null ? queryParams : new HashMap<>();
+	}
 
-		//us10Sakshi
-		// In your routeRequest method
-		else if (path.matches("/v1/reservations/[^/]+/available-dishes") && "GET".equals(method)) {
-			String reservationId = path.split("/")[3];
-			return dishesController.getAvailableDishesForReservation(reservationId);
-		}
-		else if (path.matches("/v1/reservations/[^/]+/order/[^/]+") && "POST".equals(method)) {
-			String[] pathParts = path.split("/");
-			String reservationId = pathParts[3];
-			String dishId = pathParts[5];
-			return handleProtectedEndpoint(request, claims ->
-					cartController.addDishToCart(reservationId, dishId, claims));
-		}
-		else if ("/v1/cart".equals(path) && "GET".equals(method)) {
-			return handleProtectedEndpoint(request, claims ->
-					cartController.getCart(claims));
-		}
-		else if ("/v1/reservations-by-waiter".equals(path) && "GET".equals(method)) {
-			return handleProtectedEndpoint(request, claims -> reservationGetController.getUserReservations(claims));
-		}
-		else if ("/v1/bookings/waiter".equals(path) && "POST".equals(method)) {
-			return handleProtectedEndpoint(request, claims -> reservationWaiterController.createReservationByWaiter(body,claims));
-		}
-		// In your ApiHandler.java, make sure the PUT /v1/cart route is defined:
-		// In your ApiHandler.java, make sure the PUT /v1/cart route is defined:
-		else if ("/v1/cart".equals(path) && "PUT".equals(method)) {
-			return handleProtectedEndpoint(request, claims ->
-					cartController.submitOrder(request.getBody(), claims));
-		}
+	/**
+	 * Wrap a GET handler so its 200 response is cached per content version and answered
+	 * with 304 when the client already has it
+	 * @param key Identifies the response among those of the route, from the request and path parameters
+	 * @param version Supplies the current version of the data behind the response
+	 * @param handler The handler that builds the response
+	 * @return The wrapped handler
+	 */
+	private Router.Handler conditionalGet(BiFunction<APIGatewayProxyRequestEvent, Map<String, String>, String> key,
+										  Supplier<String> version,
+										  Router.Handler handler) {
+		return (request, params, claims) -> responseCache.respond(request, key.apply(request, params), version.get(),
+				() -> handler.handle(request, params, claims));
+	}
 
-		else if (path.matches("/v1/reservations/[^/]+") && "DELETE".equals(method)) {
-			String reservationId = path.substring(path.lastIndexOf("/") + 1);
-			return handleProtectedEndpoint(request, claims ->
-					reservationDeletionController.cancelReservation(reservationId, claims));
-		}
+	// Speciality dishes are listed on the location item and described by dish items
+	private String locationsAndDishesVersion() {
+		return referenceDataCache.getLocationsVersion() + ":" + dishCatalog.getVersion();
+	}
 
-		// Endpoint not found
-		return ApiResponse.notFound("Endpoint not found: " + path);
+	/**
+	 * Build the route table once at startup. Handlers only read the controllers when they run,
+	 * so the table can be built and matched against without calling any of them
+	 * @return The router
+	 */
+	Router buildRouter() {
+		return new Router()
+				// Public endpoints
+				.publicRoute("GET", "/v1/hello", (request, params, claims) ->
+						ApiResponse.success(Map.of("message", demoController.hello())))
+				.publicRoute("POST", "/v1/auth/sign-up", (request, params, claims) ->
+						userController.signUp(request.getBody()))
+				.publicRoute("POST", "/v1/auth/sign-in", (request, params, claims) ->
+						userController.login(request.getBody()))
+
+				//dishes and feedbacks
+				.publicRoute("GET", "/v1/dishes/popular", conditionalGet(
+						(request, params) -> "popular-dishes",
+						dishCatalog::getVersion,
+						(request, params, claims) -> dishesController.getPopularDishes()))
+				.publicRoute("GET", "/v1/locations/{locationId}/feedbacks", (request, params, claims) ->
+						feedbackController.getFeedback(
+								Map.of("id", params.get("locationId")),
+								request.getQueryStringParameters() != null ? request.getQueryStringParameters() : Collections.emptyMap()))
+				.publicRoute("GET", "/v1/locations", conditionalGet(
+						(request, params) -> "locations",
+						referenceDataCache::getLocationsVersion,
+						(request, params, claims) -> locationController.getAllLocations()))
+				.publicRoute("GET", "/v1/locations/{locationId}/speciality-dishes", conditionalGet(
+						(request, params) -> "speciality-dishes:" + params.get("locationId"),
+						this::locationsAndDishesVersion,
+						(request, params, claims) -> locationController.getSpecialityDishes(params.get("locationId"))))
+
+				// us-5
+				.publicRoute("GET", "/v1/location/select-options", conditionalGet(
+						(request, params) -> "location-select-options",
+						referenceDataCache::getLocationsVersion,
+						(request, params, claims) -> {
+							LOG.info("Route matched: /v1/location/select-options (GET)");
+							return locationController.getLocations();
+						}))
+				.publicRoute(Router.ANY_METHOD, "/v1/location/select-options", (request, params, claims) -> {
+					LOG.warn("Invalid method for /v1/location/select-options: {}", request.getHttpMethod());
+					return ApiResponse.methodNotAllowed("Method Not Allowed: Use GET instead.");
+				})
+				.publicRoute("GET", "/v1/bookings/tables", (request, params, claims) ->
+						tableController.handleTableReservations(request))
+
+				//US 11
+				.publicRoute("GET", "/v1/feedbacks/visitor", (request, params, claims) -> {
+					Map<String, String> queryParams = queryParams(request);
+					return anonymousFeedbackController.authenticateFeedback(
+							queryParams.get("reservationId"), queryParams.get("secretCode"));
+				})
+
+				//admin
+				.publicRoute("POST", "/v1/create-waiter", (request, params, claims) ->
+						userController.createWaiter(request.getBody()))
+				.publicRoute("POST", "/v1/remove-waiter", (request, params, claims) ->
+						userController.updateRole(request.getBody()))
+				.publicRoute("PUT", "/v1/update-booking", (request, params, claims) ->
+						reservationWaiterController.updateReservationByWaiter(request.getBody()))
+				.publicRoute("GET", "/v1/dishes", conditionalGet(
+						(request, params) -> "dishes:" + new TreeMap<>(queryParams(request)),
+						dishCatalog::getVersion,
+						(request, params, claims) -> dishController.getDishes(request.getQueryStringParameters())))
+				.publicRoute("GET", "/v1/dishes/{dishId}", (request, params, claims) ->
+						dishController.getDishById(params.get("dishId")))
+
+				// Protected endpoints
+				.protectedRoute("GET", "/v1/auth/profile", (request, params, claims) ->
+						profileController.getProfile(claims))
+				.protectedRoute("POST", "/v1/bookings/client", (request, params, claims) ->
+						bookingController.createBooking(request.getBody(), claims))
+				.protectedRoute("PUT", "/v1/bookings/client/{reservationId}", (request, params, claims) ->
+						bookingController.updateBooking(params.get("reservationId"), request.getBody(), claims))
+				.protectedRoute("GET", "/v1/reservations", (request, params, claims) ->
+						reservationController.getUserReservations(claims, queryParams(request)))
+				.protectedRoute("POST", "/v1/feedbacks", (request, params, claims) ->
+						customerFeedbackController.createFeedback(request.getBody(), claims))
+				.protectedRoute("PUT", "/v1/feedbacks/update", (request, params, claims) ->
+						customerFeedbackController.updateFeedback(request.getBody(), claims))
+				.protectedRoute("GET", "/v1/feedbacks/{reservationId}", (request, params, claims) ->
+						customerFeedbackController.getFeedback(params.get("reservationId"), claims))
+
+				//us10Sakshi
+				.publicRoute("GET", "/v1/reservations/{reservationId}/available-dishes", (request, params, claims) ->
+						dishesController.getAvailableDishesForReservation(params.get("reservationId")))
+				.protectedRoute("POST", "/v1/reservations/{reservationId}/order/{dishId}", (request, params, claims) ->
+						cartController.addDishToCart(params.get("reservationId"), params.get("dishId"), claims))
+				.protectedRoute("POST", "/v1/reservations/{reservationId}/order", (request, params, claims) ->
+						cartController.applyCartChanges(params.get("reservationId"), request.getBody(), claims))
+				.protectedRoute("GET", "/v1/cart", (request, params, claims) ->
+						cartController.getCart(claims))
+				.protectedRoute("GET", "/v1/reservations-by-waiter", (request, params, claims) ->
+						reservationGetController.getUserReservations(claims, queryParams(request)))
+				.protectedRoute("POST", "/v1/bookings/waiter", (request, params, claims) ->
+						reservationWaiterController.createReservationByWaiter(request.getBody(), claims))
+				.protectedRoute("PUT", "/v1/cart", (request, params, claims) ->
+						cartController.submitOrder(request.getBody(), claims))
+				.protectedRoute("DELETE", "/v1/reservations/{reservationId}", (request, params, claims) ->
+						reservationDeletionController.cancelReservation(params.get("reservationId"), claims));
 	}
 
 	private APIGatewayProxyResponseEvent handleProtectedEndpoint(
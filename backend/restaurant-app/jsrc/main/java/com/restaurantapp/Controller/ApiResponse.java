@@ -33,6 +33,30 @@ public final class ApiResponse {
     }
 
 
+    /**
+     * Creates a successful response with a body that is already serialized.
+     *
+     * @param json The JSON body
+     * @return An API Gateway response with status code 200
+     */
+    public static APIGatewayProxyResponseEvent successSerialized(String json) {
+        return new APIGatewayProxyResponseEvent()
+                .withStatusCode(200)
+                .withHeaders(new HashMap<>(CORS_HEADERS))
+                .withBody(json);
+    }
+
+    /**
+     * Creates a not modified response, sent when the client's cached copy is current.
+     *
+     * @return An API Gateway response with status code 304 and no body
+     */
+    public static APIGatewayProxyResponseEvent notModified() {
+        return new APIGatewayProxyResponseEvent()
+                .withStatusCode(304)
+                .withHeaders(new HashMap<>(CORS_HEADERS));
+    }
+
     /**
      * Creates a successful response with the given data.
      *
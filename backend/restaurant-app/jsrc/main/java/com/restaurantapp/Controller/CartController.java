@@ -2,7 +2,13 @@ package com.restaurantapp.Controller;
 
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurantapp.Exception.ConflictException;
+import com.restaurantapp.Exception.ForbiddenException;
+import com.restaurantapp.Exception.NotFoundException;
+import com.restaurantapp.Exception.UnprocessableException;
 import com.restaurantapp.Model.Cart;
+import com.restaurantapp.Model.CartBatchRequest;
+import com.restaurantapp.Model.CartBatchResponse;
 import com.restaurantapp.Model.Order;
 import com.restaurantapp.Service.CartService;
 import org.slf4j.Logger;
@@ -43,12 +49,56 @@ public class CartController {
             } else {
                 return ApiResponse.error("Failed to add dish to cart. Dish may not be available at the selected location.");
             }
+        } catch (ForbiddenException e) {
+            return ApiResponse.forbidden(e.getMessage());
         } catch (Exception e) {
             LOG.error("Error adding dish to cart", e);
             return ApiResponse.serverError("Internal server error: " + e.getMessage());
         }
     }
 
+    public APIGatewayProxyResponseEvent applyCartChanges(String reservationId, String body, Map<String, Object> claims) {
+        try {
+            LOG.info("Applying cart changes for reservation {}", reservationId);
+
+            // Get customer email from claims
+            String customerEmail = (String) claims.get("email");
+            if (customerEmail == null || customerEmail.isBlank()) {
+                LOG.error("Customer email not found in claims");
+                return ApiResponse.unauthorized("User not authenticated");
+            }
+
+            if (body == null || body.isBlank()) {
+                return ApiResponse.error("Request body is required");
+            }
+            CartBatchRequest request;
+            try {
+                request = objectMapper.readValue(body, CartBatchRequest.class);
+            } catch (Exception e) {
+                LOG.warn("Failed to parse request body: {}", e.getMessage());
+                return ApiResponse.error("Invalid request body");
+            }
+
+            CartBatchResponse response = cartService.applyCartChanges(customerEmail, reservationId, request.getDishItems());
+            return ApiResponse.success(response);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Invalid cart changes: {}", e.getMessage());
+            return ApiResponse.error(e.getMessage());
+        } catch (NotFoundException e) {
+            return ApiResponse.notFound(e.getMessage());
+        } catch (ForbiddenException e) {
+            return ApiResponse.forbidden(e.getMessage());
+        } catch (ConflictException e) {
+            LOG.warn("Conflict applying cart changes: {}", e.getMessage());
+            return ApiResponse.conflict(e.getMessage());
+        } catch (UnprocessableException e) {
+            return ApiResponse.unprocessable(e.getMessage());
+        } catch (Exception e) {
+            LOG.error("Error applying cart changes", e);
+            return ApiResponse.serverError("Internal server error: " + e.getMessage());
+        }
+    }
+
     public APIGatewayProxyResponseEvent getCart(Map<String, Object> claims) {
         try {
             LOG.info("Fetching cart for user");
@@ -132,6 +182,12 @@ public class CartController {
             Map<String, Object> responseBody = new HashMap<>();
             responseBody.put("content", Collections.singletonList(order));
             return ApiResponse.success(responseBody);
+        } catch (ForbiddenException e) {
+            LOG.warn("Forbidden order submission: {}", e.getMessage());
+            return ApiResponse.forbidden(e.getMessage());
+        } catch (ConflictException e) {
+            LOG.warn("Conflict submitting order: {}", e.getMessage());
+            return ApiResponse.conflict(e.getMessage());
         } catch (Exception e) {
             LOG.error("Error submitting order", e);
             return ApiResponse.serverError("Internal server error: " + e.getMessage());
@@ -44,7 +44,7 @@ public class FeedbackController {
 
         try {
 
-            Set<String> allowed=Set.of("type","sort","page","size");
+            Set<String> allowed=Set.of("type","sort","page","size","cursor");
             if(!allowed.containsAll(queryParameters.keySet()))
             {
                 return ApiResponse.error("Invalid Query Parameters");
@@ -55,7 +55,8 @@ public class FeedbackController {
                 return ApiResponse.error("Size cannot be less than 0");
 
             // Get feedback from service
-            FeedbackPageResponse response = feedbackService.getFeedbackByLocationAndType(locationId, type, page, size, sort);
+            FeedbackPageResponse response = feedbackService.getFeedbackByLocationAndType(locationId, type, page, size, sort,
+                    queryParameters.get("cursor"));
 
             // Return the response directly
             if(response.getTotalElements()==-1)
@@ -65,6 +66,9 @@ public class FeedbackController {
             else
                 return ApiResponse.success(response);
 
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Invalid feedback request: {}", e.getMessage());
+            return ApiResponse.error(e.getMessage());
         } catch (Exception e) {
             LOG.error("Error processing feedback request", e);
             return ApiResponse.serverError("Error retrieving feedback: " + e.getMessage());
@@ -3,6 +3,7 @@ package com.restaurantapp.Controller;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.restaurantapp.Exception.ConflictException;
+import com.restaurantapp.Model.CursorPage;
 import com.restaurantapp.Model.ReservationResponse;
 import com.restaurantapp.Service.ReservationService;
 import org.slf4j.Logger;
@@ -17,6 +18,8 @@ import java.util.Map;
 public class ReservationController
 {
     private static final Logger LOG = LoggerFactory.getLogger(ReservationController.class);
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
 
     private final ReservationService reservationService;
     private final ObjectMapper objectMapper;
@@ -29,12 +32,16 @@ public class ReservationController
     }
 
     /**
-     * Gets all reservations for the authenticated user.
+     * Gets reservations for the authenticated user.
+     * Without "limit" or "cursor" the full history is returned as a list; with either
+     * of them a single page is returned together with the cursor for the next page.
+     * "upcoming=true" restricts the result to reservations from today onwards.
      *
      * @param claims The user claims from the authentication token
+     * @param queryParams The request query parameters
      * @return API Gateway response with reservation data
      */
-    public APIGatewayProxyResponseEvent getUserReservations(Map<String, Object> claims)
+    public APIGatewayProxyResponseEvent getUserReservations(Map<String, Object> claims, Map<String, String> queryParams)
     {
         try {
             String email = (String) claims.get("email");
@@ -45,9 +52,36 @@ public class ReservationController
 
             LOG.info("Getting reservations for authenticated user: {}", email);
 
-            List<ReservationResponse> reservations = reservationService.getReservationsForUser(email);
-            LOG.info("Found {} reservations for user: {}", reservations.size(), email);
-            return ApiResponse.success(reservations);
+            boolean upcomingOnly = "true".equalsIgnoreCase(queryParams.get("upcoming"));
+            String cursor = queryParams.get("cursor");
+            String limitParam = queryParams.get("limit");
+
+            if (cursor == null && limitParam == null) {
+                List<ReservationResponse> reservations = reservationService.getReservationsForUser(email, upcomingOnly);
+                LOG.info("Found {} reservations for user: {}", reservations.size(), email);
+                return ApiResponse.success(reservations);
+            }
+
+            int limit = DEFAULT_PAGE_SIZE;
+            if (limitParam != null) {
+                try {
+                    limit = Integer.parseInt(limitParam);
+                } catch (NumberFormatException e) {
+                    return ApiResponse.error("Limit must be a valid number");
+                }
+            }
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                return ApiResponse.error("Limit must be between 1 and " + MAX_PAGE_SIZE);
+            }
+
+            CursorPage<ReservationResponse> page =
+                    reservationService.getReservationsPageForUser(email, upcomingOnly, limit, cursor);
+            LOG.info("Found {} reservations in page for user: {}", page.getNumberOfElements(), email);
+            return ApiResponse.success(page);
+        }
+        catch (IllegalArgumentException e) {
+            LOG.warn("Invalid reservations request: {}", e.getMessage());
+            return ApiResponse.error(e.getMessage());
         }
         catch (ConflictException e) {
             LOG.warn("Time constraint violation for cancellation: {}", e.getMessage());
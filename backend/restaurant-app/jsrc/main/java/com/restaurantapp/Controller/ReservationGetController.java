@@ -10,6 +10,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -28,7 +31,15 @@ public class ReservationGetController
         this.objectMapper = objectMapper;
     }
 
-    public APIGatewayProxyResponseEvent getUserReservations(Map<String, Object> claims)
+    /**
+     * Get the reservations assigned to the authenticated waiter.
+     * Supports ?date= for a single day, or ?dateFrom=&dateTo= for a range, plus an optional ?slotId=.
+     *
+     * @param claims The token claims
+     * @param queryParams The request query parameters, may be null
+     * @return API response with the reservations
+     */
+    public APIGatewayProxyResponseEvent getUserReservations(Map<String, Object> claims, Map<String, String> queryParams)
     {
         try {
 
@@ -41,10 +52,22 @@ public class ReservationGetController
 
             LOG.info("Getting reservations for authenticated user: {}", email);
 
-            List<ReservationGetResponse> reservations = reservationService.getReservationsForUser(email);
+            Map<String, String> params = queryParams != null ? queryParams : Collections.emptyMap();
+            String dateFrom = parseDate(params.getOrDefault("date", params.get("dateFrom")));
+            String dateTo = parseDate(params.getOrDefault("date", params.get("dateTo")));
+            String slotId = params.get("slotId");
+            if (dateFrom != null && dateTo != null && dateFrom.compareTo(dateTo) > 0) {
+                return ApiResponse.error("dateFrom must not be after dateTo");
+            }
+
+            List<ReservationGetResponse> reservations = reservationService.getReservationsForUser(email, dateFrom, dateTo, slotId);
             LOG.info("Found {} reservations for user: {}", reservations.size(), email);
             return ApiResponse.success(reservations);
         }
+        catch (IllegalArgumentException e) {
+            LOG.warn("Invalid reservation filter: {}", e.getMessage());
+            return ApiResponse.error(e.getMessage());
+        }
         catch (ConflictException e) {
             LOG.warn("Time constraint violation for cancellation: {}", e.getMessage());
             return ApiResponse.conflict(e.getMessage());
@@ -54,4 +77,15 @@ public class ReservationGetController
             return ApiResponse.serverError("Error retrieving reservations: " + e.getMessage());
         }
     }
+
+    private String parseDate(String date) {
+        if (date == null || date.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date).toString();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date format. Use yyyy-MM-dd");
+        }
+    }
 }
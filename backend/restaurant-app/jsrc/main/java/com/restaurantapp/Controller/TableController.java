@@ -3,9 +3,8 @@ package com.restaurantapp.Controller;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.restaurantapp.Model.AvailableTable;
-import com.restaurantapp.Model.Location;
 import com.restaurantapp.Service.TableService;
-import com.restaurantapp.Repository.RestaurantLocationRepository;
+import com.restaurantapp.Repository.ReferenceDataCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.time.LocalDate;
@@ -16,11 +15,11 @@ import java.util.stream.Collectors;
 public class TableController {
     private static final Logger LOG = LoggerFactory.getLogger(TableController.class);
     private final TableService tableService;
-    private final RestaurantLocationRepository locationRepository;
+    private final ReferenceDataCache referenceDataCache;
 
-    public TableController() {
-        this.tableService = new TableService();
-        this.locationRepository = new RestaurantLocationRepository();
+    public TableController(TableService tableService, ReferenceDataCache referenceDataCache) {
+        this.tableService = tableService;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public APIGatewayProxyResponseEvent handleTableReservations(APIGatewayProxyRequestEvent request) {
@@ -137,9 +136,7 @@ public class TableController {
      */
     private boolean isLocationExists(String locationId) {
         try {
-            List<Location> locations = locationRepository.findAll();
-            return locations.stream()
-                    .anyMatch(location -> location.getLocationId().equals(locationId));
+            return referenceDataCache.getLocation(locationId) != null;
         } catch (Exception e) {
             LOG.error("Error checking location existence: {}", e.getMessage(), e);
             // If we can't check, assume it doesn't exist to be safe
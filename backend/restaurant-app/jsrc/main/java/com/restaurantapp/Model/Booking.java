@@ -15,6 +15,12 @@ public class Booking {
     private String preOrderId;
     private String secretCode;
 
+    // Display fields stored with the booking so reservation pages need no further lookups
+    private String locationAddress;
+    private String timeSlot;
+    private String tableNumber;
+    private int preOrderCount;
+
     // Default constructor for Jackson
     public Booking() {
         this.reservationId = UUID.randomUUID().toString();
@@ -41,6 +47,38 @@ public class Booking {
         this.preOrderId = preOrderId;
     }
 
+    public String getLocationAddress() {
+        return locationAddress;
+    }
+
+    public void setLocationAddress(String locationAddress) {
+        this.locationAddress = locationAddress;
+    }
+
+    public String getTimeSlot() {
+        return timeSlot;
+    }
+
+    public void setTimeSlot(String timeSlot) {
+        this.timeSlot = timeSlot;
+    }
+
+    public String getTableNumber() {
+        return tableNumber;
+    }
+
+    public void setTableNumber(String tableNumber) {
+        this.tableNumber = tableNumber;
+    }
+
+    public int getPreOrderCount() {
+        return preOrderCount;
+    }
+
+    public void setPreOrderCount(int preOrderCount) {
+        this.preOrderCount = preOrderCount;
+    }
+
     public String getReservationId() {
         return reservationId;
     }
@@ -14,6 +14,35 @@ public class BookingWaiter {
     private String numberOfGuests;
     private String feedbackId;
 
+    // Display fields stored with the booking so reservation pages need no further lookups
+    private String locationAddress;
+    private String timeSlot;
+    private String tableNumber;
+
+    public String getLocationAddress() {
+        return locationAddress;
+    }
+
+    public void setLocationAddress(String locationAddress) {
+        this.locationAddress = locationAddress;
+    }
+
+    public String getTimeSlot() {
+        return timeSlot;
+    }
+
+    public void setTimeSlot(String timeSlot) {
+        this.timeSlot = timeSlot;
+    }
+
+    public String getTableNumber() {
+        return tableNumber;
+    }
+
+    public void setTableNumber(String tableNumber) {
+        this.tableNumber = tableNumber;
+    }
+
     public String getFeedbackId() {
         return feedbackId;
     }
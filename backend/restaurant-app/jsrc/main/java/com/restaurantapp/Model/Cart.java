@@ -1,5 +1,6 @@
 package com.restaurantapp.Model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
@@ -32,6 +33,10 @@ public class Cart {
     @JsonProperty("dishItems")  // This will be serialized as dishItems in the response
     private List<OrderItem> orderItems;
 
+    // Bumped on every cart write, so a write can be conditioned on the cart it read
+    @JsonIgnore
+    private long version;
+
     // Constructors
     public Cart() {}
 
@@ -62,4 +67,7 @@ public class Cart {
 
     public List<OrderItem> getOrderItems() { return orderItems; }
     public void setOrderItems(List<OrderItem> orderItems) { this.orderItems = orderItems; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 }
\ No newline at end of file
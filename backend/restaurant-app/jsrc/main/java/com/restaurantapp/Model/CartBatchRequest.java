@@ -0,0 +1,34 @@
+package com.restaurantapp.Model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class CartBatchRequest {
+    @JsonProperty("dishItems")
+    private List<Line> dishItems;
+
+    // Constructors
+    public CartBatchRequest() {}
+
+    // Getters and Setters
+    public List<Line> getDishItems() { return dishItems; }
+    public void setDishItems(List<Line> dishItems) { this.dishItems = dishItems; }
+
+    // A change to one dish's quantity, negative to take dishes away
+    public static class Line {
+        @JsonProperty("dishId")
+        private String dishId;
+
+        @JsonProperty("dishQuantity")
+        private int dishQuantity;
+
+        public Line() {}
+
+        public String getDishId() { return dishId; }
+        public void setDishId(String dishId) { this.dishId = dishId; }
+
+        public int getDishQuantity() { return dishQuantity; }
+        public void setDishQuantity(int dishQuantity) { this.dishQuantity = dishQuantity; }
+    }
+}
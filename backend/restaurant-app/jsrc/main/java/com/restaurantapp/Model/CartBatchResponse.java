@@ -0,0 +1,73 @@
+package com.restaurantapp.Model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CartBatchResponse {
+    @JsonProperty("reservationId")
+    private String reservationId;
+
+    @JsonProperty("dishItems")
+    private List<LineResult> dishItems = new ArrayList<>();
+
+    // Constructors
+    public CartBatchResponse() {}
+
+    public CartBatchResponse(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    // Getters and Setters
+    public String getReservationId() { return reservationId; }
+    public void setReservationId(String reservationId) { this.reservationId = reservationId; }
+
+    public List<LineResult> getDishItems() { return dishItems; }
+    public void setDishItems(List<LineResult> dishItems) { this.dishItems = dishItems; }
+
+    // The outcome of one requested change
+    public static class LineResult {
+        public static final String APPLIED = "APPLIED";
+        public static final String REJECTED = "REJECTED";
+
+        @JsonProperty("dishId")
+        private String dishId;
+
+        @JsonProperty("requestedQuantity")
+        private int requestedQuantity;
+
+        @JsonProperty("dishQuantity")  // Quantity in the cart after the change
+        private int dishQuantity;
+
+        @JsonProperty("status")
+        private String status;
+
+        @JsonProperty("message")
+        private String message;
+
+        public LineResult() {}
+
+        public LineResult(String dishId, int requestedQuantity, String status, String message) {
+            this.dishId = dishId;
+            this.requestedQuantity = requestedQuantity;
+            this.status = status;
+            this.message = message;
+        }
+
+        public String getDishId() { return dishId; }
+        public void setDishId(String dishId) { this.dishId = dishId; }
+
+        public int getRequestedQuantity() { return requestedQuantity; }
+        public void setRequestedQuantity(int requestedQuantity) { this.requestedQuantity = requestedQuantity; }
+
+        public int getDishQuantity() { return dishQuantity; }
+        public void setDishQuantity(int dishQuantity) { this.dishQuantity = dishQuantity; }
+
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+}
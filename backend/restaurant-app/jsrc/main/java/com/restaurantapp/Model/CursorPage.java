@@ -0,0 +1,44 @@
+package com.restaurantapp.Model;
+
+import java.util.List;
+
+/**
+ * One page of results from a key-ordered query. The next page is requested
+ * by passing nextCursor back; it is null on the last page.
+ */
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getNumberOfElements() {
+        return content == null ? 0 : content.size();
+    }
+
+    public boolean isLast() {
+        return nextCursor == null;
+    }
+}
@@ -14,6 +14,7 @@ public class FeedbackPageResponse {
     private int numberOfElements;
     private Pageable pageable;
     private boolean empty;
+    private String nextCursor;
 
     // Getters and setters
     public int getTotalPages() {
@@ -103,4 +104,12 @@ public class FeedbackPageResponse {
     public void setEmpty(boolean empty) {
         this.empty = empty;
     }
-}
\ No newline at end of file
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
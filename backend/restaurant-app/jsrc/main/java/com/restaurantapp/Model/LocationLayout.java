@@ -0,0 +1,72 @@
+package com.restaurantapp.Model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a booking needs to know about a location: its address, its tables with their
+ * capacities, and the waiters who work there.
+ */
+public class LocationLayout {
+    private final String locationId;
+    private final String locationAddress;
+    private final List<Table> tables;
+    private final Map<String, Table> tablesByNumber;
+    private final List<String> waiterEmails;
+
+    public LocationLayout(String locationId, String locationAddress, List<Table> tables, List<String> waiterEmails) {
+        this.locationId = locationId;
+        this.locationAddress = locationAddress;
+
+        Map<String, Table> byNumber = new LinkedHashMap<>();
+        for (Table table : tables) {
+            byNumber.putIfAbsent(table.getTableNumber(), table);
+        }
+        this.tables = Collections.unmodifiableList(new ArrayList<>(tables));
+        this.tablesByNumber = Collections.unmodifiableMap(byNumber);
+        this.waiterEmails = Collections.unmodifiableList(new ArrayList<>(waiterEmails));
+    }
+
+    public String getLocationId() {
+        return locationId;
+    }
+
+    /**
+     * @return The address, or null if the location does not exist
+     */
+    public String getLocationAddress() {
+        return locationAddress;
+    }
+
+    public List<Table> getTables() {
+        return tables;
+    }
+
+    /**
+     * @param tableNumber The table number
+     * @return The table, or null if the location has no such table
+     */
+    public Table getTable(String tableNumber) {
+        return tableNumber == null ? null : tablesByNumber.get(tableNumber);
+    }
+
+    /**
+     * @param tableId The table ID
+     * @return The table, or null if the location has no such table
+     */
+    public Table getTableById(String tableId) {
+        for (Table table : tables) {
+            if (table.getId() != null && table.getId().equals(tableId)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    public List<String> getWaiterEmails() {
+        return waiterEmails;
+    }
+}
@@ -12,6 +12,45 @@ public class Reservation
     private String locationId;
     private int numberOfGuests;
     private String time;
+    private String locationAddress;
+    private String timeSlot;
+    private String tableNumber;
+    private Integer preOrderCount;
+
+    public String getLocationAddress() {
+        return locationAddress;
+    }
+
+    public void setLocationAddress(String locationAddress) {
+        this.locationAddress = locationAddress;
+    }
+
+    public String getTimeSlot() {
+        return timeSlot;
+    }
+
+    public void setTimeSlot(String timeSlot) {
+        this.timeSlot = timeSlot;
+    }
+
+    public String getTableNumber() {
+        return tableNumber;
+    }
+
+    public void setTableNumber(String tableNumber) {
+        this.tableNumber = tableNumber;
+    }
+
+    /**
+     * Number of pre-ordered dishes, or null for bookings written before the count was stored
+     */
+    public Integer getPreOrderCount() {
+        return preOrderCount;
+    }
+
+    public void setPreOrderCount(Integer preOrderCount) {
+        this.preOrderCount = preOrderCount;
+    }
 
     public String getTime() {
         return time;
@@ -19,6 +19,7 @@ public class ReservationResponse
     private String timeSlot;
     private String preOrder;
     private String guestsNumber;
+    private String tableNumber;
 
 
     // Default constructor
@@ -83,5 +84,13 @@ public class ReservationResponse
         this.guestsNumber = guestsNumber;
     }
 
+    public String getTableNumber() {
+        return tableNumber;
+    }
+
+    public void setTableNumber(String tableNumber) {
+        this.tableNumber = tableNumber;
+    }
+
 
 }
@@ -0,0 +1,40 @@
+package com.restaurantapp.Model;
+
+public class WaiterLoad {
+    private String waiterEmail;
+    private int bookingsForDate;
+    private int tablesForSlot;
+
+    public WaiterLoad() {
+    }
+
+    public WaiterLoad(String waiterEmail, int bookingsForDate, int tablesForSlot) {
+        this.waiterEmail = waiterEmail;
+        this.bookingsForDate = bookingsForDate;
+        this.tablesForSlot = tablesForSlot;
+    }
+
+    public String getWaiterEmail() {
+        return waiterEmail;
+    }
+
+    public void setWaiterEmail(String waiterEmail) {
+        this.waiterEmail = waiterEmail;
+    }
+
+    public int getBookingsForDate() {
+        return bookingsForDate;
+    }
+
+    public void setBookingsForDate(int bookingsForDate) {
+        this.bookingsForDate = bookingsForDate;
+    }
+
+    public int getTablesForSlot() {
+        return tablesForSlot;
+    }
+
+    public void setTablesForSlot(int tablesForSlot) {
+        this.tablesForSlot = tablesForSlot;
+    }
+}
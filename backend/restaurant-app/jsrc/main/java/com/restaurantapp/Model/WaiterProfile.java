@@ -0,0 +1,40 @@
+package com.restaurantapp.Model;
+
+public class WaiterProfile {
+    private String name;
+    private String imageUrl;
+    private String rating;
+
+    public WaiterProfile() {
+    }
+
+    public WaiterProfile(String name, String imageUrl, String rating) {
+        this.name = name;
+        this.imageUrl = imageUrl;
+        this.rating = rating;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public String getRating() {
+        return rating;
+    }
+
+    public void setRating(String rating) {
+        this.rating = rating;
+    }
+}
@@ -0,0 +1,62 @@
+package com.restaurantapp.Repository;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Timeouts and joining for the async repository methods. A future is joined by rethrowing
+ * the exception it failed with, so services see the same exception types as from the
+ * blocking methods.
+ */
+public final class AsyncCalls {
+    // Upper bound for one repository call, retries included
+    public static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private AsyncCalls() {
+    }
+
+    /**
+     * Fail a future that has not completed within TIMEOUT
+     * @param future The future
+     * @return The same future
+     */
+    static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future) {
+        return future.orTimeout(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Unwrap the CompletionException a dependent stage wraps failures in
+     * @param throwable The failure
+     * @return The original failure
+     */
+    static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+    }
+
+    /**
+     * Wait for a future
+     * @param future The future
+     * @return Its value
+     * @throws RuntimeException the exception the future failed with
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof TimeoutException) {
+                throw new RuntimeException("Timed out waiting for the database", cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.restaurantapp.Repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BatchGetItem over any number of keys of one table. Keys are sent MAX_KEYS_PER_REQUEST
+ * at a time and keys the service leaves unprocessed are retried with exponential backoff;
+ * the read fails rather than return a partial result.
+ */
+final class BatchReads {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchReads.class);
+
+    // BatchGetItem accepts at most 100 keys per request
+    static final int MAX_KEYS_PER_REQUEST = 100;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 50;
+
+    private BatchReads() {
+    }
+
+    /**
+     * Read items by key
+     * @param dynamoDbClient The client
+     * @param tableName The table
+     * @param keys Distinct keys; a request may not contain the same key twice
+     * @param projectionExpression Attributes to read, or null for all
+     * @param expressionAttributeNames Names used in the projection, or null
+     * @return The items found, in no particular order; missing keys have no item
+     * @throws RuntimeException if some keys are still unprocessed after MAX_ATTEMPTS requests
+     */
+    static List<Map<String, AttributeValue>> getItems(DynamoDbClient dynamoDbClient, String tableName,
+                                                      List<Map<String, AttributeValue>> keys,
+                                                      String projectionExpression,
+                                                      Map<String, String> expressionAttributeNames) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+
+        for (int start = 0; start < keys.size(); start += MAX_KEYS_PER_REQUEST) {
+            KeysAndAttributes.Builder keysAndAttributes = KeysAndAttributes.builder()
+                    .keys(keys.subList(start, Math.min(start + MAX_KEYS_PER_REQUEST, keys.size())));
+            if (projectionExpression != null) {
+                keysAndAttributes.projectionExpression(projectionExpression);
+            }
+            if (expressionAttributeNames != null && !expressionAttributeNames.isEmpty()) {
+                keysAndAttributes.expressionAttributeNames(expressionAttributeNames);
+            }
+
+            Map<String, KeysAndAttributes> requestItems = Map.of(tableName, keysAndAttributes.build());
+            for (int attempt = 0; !requestItems.isEmpty(); attempt++) {
+                if (attempt > 0) {
+                    if (attempt >= MAX_ATTEMPTS) {
+                        // Returning what was read would make the rest look like missing items
+                        LOG.error("Giving up on {} unprocessed keys of {}",
+                                requestItems.get(tableName).keys().size(), tableName);
+                        throw new RuntimeException("Error reading " + tableName + ": keys left unprocessed after "
+                                + MAX_ATTEMPTS + " attempts");
+                    }
+                    backoff(attempt);
+                }
+
+                BatchGetItemResponse response = dynamoDbClient.batchGetItem(BatchGetItemRequest.builder()
+                        .requestItems(requestItems)
+                        .build());
+                items.addAll(response.responses().getOrDefault(tableName, Collections.emptyList()));
+                requestItems = response.unprocessedKeys();
+            }
+        }
+        return items;
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep(BASE_BACKOFF_MILLIS * (1L << (attempt - 1)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying batch read", e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.restaurantapp.Repository;
+
+import com.restaurantapp.Exception.ConflictException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One TransactWriteItems call covering a booking item, its table slot claim and the waiter
+ * load counters, so the three never disagree. Each write says what a failed condition means:
+ * a conflict reported to the caller, a waiter at their table limit, or a cleanup write
+ * (releasing an old claim or count) that older bookings may not have, which is dropped and
+ * the rest retried once. A counter move can name a fallback write, used in the retry when
+ * the old count it moves from is missing.
+ */
+final class BookingTransaction {
+    private static final Logger LOG = LoggerFactory.getLogger(BookingTransaction.class);
+
+    private static final String CONDITIONAL_CHECK_FAILED = "ConditionalCheckFailed";
+    private static final String CHANGED_MESSAGE = "The reservation was changed by another request, please try again";
+
+    private static final class Write {
+        private final TransactWriteItem item;
+        private final String conflictMessage;
+        private final boolean capacity;
+        private final TransactWriteItem fallback;
+
+        private Write(TransactWriteItem item, String conflictMessage, boolean capacity, TransactWriteItem fallback) {
+            this.item = item;
+            this.conflictMessage = conflictMessage;
+            this.capacity = capacity;
+            this.fallback = fallback;
+        }
+    }
+
+    private final List<Write> writes = new ArrayList<>();
+
+    /**
+     * Add a write whose failed condition is a conflict
+     * @param item The write
+     * @param conflictMessage Message of the ConflictException thrown if its condition fails
+     * @return This transaction
+     */
+    BookingTransaction require(TransactWriteItem item, String conflictMessage) {
+        writes.add(new Write(item, conflictMessage, false, null));
+        return this;
+    }
+
+    /**
+     * Add a waiter counter increment whose failed condition means the waiter is at the limit
+     * @param item The write
+     * @return This transaction
+     */
+    BookingTransaction capacity(TransactWriteItem item) {
+        return capacity(item, null);
+    }
+
+    /**
+     * Add a waiter counter move whose failed condition means either the waiter is at the limit
+     * or the old count is missing; the retry uses the fallback, whose own failure means the limit
+     * @param item The move
+     * @param fallback The increment that counts the booking afresh
+     * @return This transaction
+     */
+    BookingTransaction capacity(TransactWriteItem item, TransactWriteItem fallback) {
+        writes.add(new Write(item, null, true, fallback));
+        return this;
+    }
+
+    /**
+     * Add a write that has no condition
+     * @param item The write
+     * @return This transaction
+     */
+    BookingTransaction write(TransactWriteItem item) {
+        return write(item, null);
+    }
+
+    /**
+     * Add a counter move whose condition only fails if the old count is missing; the retry
+     * uses the fallback instead
+     * @param item The move
+     * @param fallback The write that counts the booking afresh
+     * @return This transaction
+     */
+    BookingTransaction write(TransactWriteItem item, TransactWriteItem fallback) {
+        writes.add(new Write(item, null, false, fallback));
+        return this;
+    }
+
+    /**
+     * Add a release of an old claim or count that may be missing on older bookings. Like any
+     * write without a conflict message, it is dropped from the retry if its condition fails.
+     * @param item The write
+     * @return This transaction
+     */
+    BookingTransaction cleanup(TransactWriteItem item) {
+        return write(item);
+    }
+
+    /**
+     * Commit every write or none of them
+     * @param dynamoDbClient The client
+     * @return true if committed, false if a capacity condition failed
+     * @throws ConflictException if a required condition failed or another transaction got in the way
+     */
+    boolean commit(DynamoDbClient dynamoDbClient) {
+        List<Write> pending = writes;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                List<TransactWriteItem> items = new ArrayList<>();
+                for (Write write : pending) {
+                    items.add(write.item);
+                }
+                dynamoDbClient.transactWriteItems(TransactWriteItemsRequest.builder()
+                        .transactItems(items)
+                        .build());
+                return true;
+            } catch (TransactionCanceledException e) {
+                List<CancellationReason> reasons = e.cancellationReasons();
+                LOG.info("Booking transaction cancelled: {}", reasons);
+
+                boolean capacityFailed = false;
+                int replaced = 0;
+                List<Write> kept = new ArrayList<>();
+                for (int i = 0; i < pending.size(); i++) {
+                    Write write = pending.get(i);
+                    String code = i < reasons.size() ? reasons.get(i).code() : null;
+                    if (!CONDITIONAL_CHECK_FAILED.equals(code)) {
+                        kept.add(write);
+                    } else if (write.conflictMessage != null) {
+                        throw new ConflictException(write.conflictMessage);
+                    } else if (write.fallback != null) {
+                        kept.add(new Write(write.fallback, null, write.capacity, null));
+                        replaced++;
+                    } else if (write.capacity) {
+                        capacityFailed = true;
+                    }
+                    // A failed cleanup write is dropped from the retry
+                }
+
+                if (capacityFailed) {
+                    return false;
+                }
+                if ((kept.size() == pending.size() && replaced == 0) || attempt > 0) {
+                    // Cancelled for a reason other than a condition, e.g. a concurrent transaction
+                    throw new ConflictException(CHANGED_MESSAGE);
+                }
+                LOG.info("Retrying booking transaction without {} cleanup writes and with {} fallback writes",
+                        pending.size() - kept.size(), replaced);
+                pending = kept;
+            } catch (Exception e) {
+                LOG.error("Error writing booking transaction: {}", e.getMessage(), e);
+                throw new RuntimeException("Error writing booking", e);
+            }
+        }
+    }
+}
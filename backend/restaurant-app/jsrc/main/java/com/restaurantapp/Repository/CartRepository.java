@@ -1,15 +1,16 @@
 package com.restaurantapp.Repository;
 
+import com.restaurantapp.Exception.ConflictException;
 import com.restaurantapp.Model.Cart;
 import com.restaurantapp.Model.Dish;
 import com.restaurantapp.Model.OrderItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Singleton
@@ -17,48 +18,75 @@ public class CartRepository {
     private static final Logger LOG = LoggerFactory.getLogger(CartRepository.class);
     private final DynamoDbClient dynamoDbClient;
     private final String cartTableName = System.getenv("cart_table");
-    private final String reservationsTableName = System.getenv("booking_table");
 
-    public CartRepository() {
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1)
-                .build();
+    // Each dish line is kept in its own pair of top-level attributes, so that adding a dish is
+    // an ADD on its quantity rather than a rewrite of the whole orderItems list
+    private static final String LINE_PREFIX = "dish#";
+    private static final String QUANTITY_PREFIX = "qty#";
+
+    public CartRepository(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
     }
 
-    public Map<String, String> getReservationDetails(String reservationId) {
-        LOG.info("Fetching reservation details for ID: {}", reservationId);
+    /**
+     * A customer has one cart, so its ID is derived from their email and every cart write
+     * can address it without reading it first
+     * @param customerEmail The customer's email
+     * @return The cart ID
+     */
+    public static String cartId(String customerEmail) {
+        return UUID.nameUUIDFromBytes(("cart:" + customerEmail).getBytes(StandardCharsets.UTF_8)).toString();
+    }
 
-        GetItemRequest getRequest = GetItemRequest.builder()
-                .tableName(reservationsTableName)
-                .key(Map.of("reservationId", AttributeValue.builder().s(reservationId).build()))
-                .build();
+    private Map<String, AttributeValue> cartKey(String customerEmail, String cartId) {
+        return Map.of(
+                "customerEmail", AttributeValue.builder().s(customerEmail).build(),
+                "id", AttributeValue.builder().s(cartId).build()
+        );
+    }
+
+    public Cart getCartByCustomerEmail(String customerEmail) {
+        return getCartByCustomerEmail(customerEmail, true);
+    }
+
+    private Cart getCartByCustomerEmail(String customerEmail, boolean migrate) {
+        LOG.info("Fetching cart for customer: {}", customerEmail);
 
         try {
-            Map<String, AttributeValue> item = dynamoDbClient.getItem(getRequest).item();
+            List<Map<String, AttributeValue>> items = queryCarts(customerEmail);
 
-            if (item == null || item.isEmpty()) {
-                LOG.warn("No reservation found with ID: {}", reservationId);
+            if (items.isEmpty()) {
+                LOG.info("No cart found for customer: {}", customerEmail);
                 return null;
             }
 
-            Map<String, String> details = new HashMap<>();
-            details.put("customerEmail", item.containsKey("customerEmail") ? item.get("customerEmail").s() : "");
-            details.put("date", item.containsKey("date") ? item.get("date").s() : "");
-            details.put("locationId", item.containsKey("locationId") ? item.get("locationId").s() : "");
-            details.put("slotId", item.containsKey("slotId") ? item.get("slotId").s() : "");
-            details.put("timeSlot", item.containsKey("timeSlot") ? item.get("timeSlot").s() : "");
-            details.put("address", item.containsKey("address") ? item.get("address").s() : "");
+            // Carts created before cart IDs were derived from the email have a random ID
+            Map<String, AttributeValue> item = items.get(0);
+            List<Map<String, AttributeValue>> legacyCarts = new ArrayList<>();
+            String id = cartId(customerEmail);
+            for (Map<String, AttributeValue> candidate : items) {
+                if (candidate.containsKey("id") && id.equals(candidate.get("id").s())) {
+                    item = candidate;
+                } else {
+                    legacyCarts.add(candidate);
+                }
+            }
+
+            // A legacy cart next to the current one would reappear once the current one is
+            // submitted, so its dishes are folded in first
+            if (migrate && legacyCarts.size() < items.size() && !legacyCarts.isEmpty()) {
+                migrateLegacyCarts(customerEmail, legacyCarts);
+                return getCartByCustomerEmail(customerEmail, false);
+            }
 
-            return details;
+            return toCart(customerEmail, item);
         } catch (Exception e) {
-            LOG.error("Error fetching reservation details for ID: {}", reservationId, e);
+            LOG.error("Error fetching cart for customer: {}", customerEmail, e);
             return null;
         }
     }
 
-    public Cart getCartByCustomerEmail(String customerEmail) {
-        LOG.info("Fetching cart for customer: {}", customerEmail);
-
+    private List<Map<String, AttributeValue>> queryCarts(String customerEmail) {
         QueryRequest queryRequest = QueryRequest.builder()
                 .tableName(cartTableName)
                 .keyConditionExpression("customerEmail = :email")
@@ -67,241 +95,427 @@ public class CartRepository {
                 ))
                 .build();
 
-        try {
-            QueryResponse response = dynamoDbClient.query(queryRequest);
+        return dynamoDbClient.query(queryRequest).items();
+    }
 
-            if (response.items().isEmpty()) {
-                LOG.info("No cart found for customer: {}", customerEmail);
-                return null;
+    private Cart toCart(String customerEmail, Map<String, AttributeValue> item) {
+        Cart cart = new Cart();
+        cart.setId(item.containsKey("id") ? item.get("id").s() : "");
+        cart.setCustomerEmail(customerEmail);
+        cart.setReservationId(item.containsKey("reservationId") ? item.get("reservationId").s() : "");
+        cart.setDate(item.containsKey("date") ? item.get("date").s() : "");
+        cart.setTimeSlot(item.containsKey("timeSlot") ? item.get("timeSlot").s() : "");
+        cart.setAddress(item.containsKey("address") ? item.get("address").s() : "");
+        cart.setState(item.containsKey("state") ? item.get("state").s() : "");
+        cart.setLocationId(item.containsKey("locationId") ? item.get("locationId").s() : "");
+        cart.setVersion(item.containsKey("version") ? Long.parseLong(item.get("version").n()) : 0L);
+
+        // Parse order items, from the legacy list and from the dish line attributes
+        List<OrderItem> orderItems = new ArrayList<>();
+        if (item.containsKey("orderItems") && item.get("orderItems").l() != null) {
+            for (AttributeValue orderItemAttr : item.get("orderItems").l()) {
+                orderItems.add(toOrderItem(orderItemAttr.m(), orderItemAttr.m().get("orderQuantity")));
             }
+        }
 
-            Map<String, AttributeValue> item = response.items().get(0);
-            Cart cart = new Cart();
-            cart.setId(item.containsKey("id") ? item.get("id").s() : "");
-            cart.setCustomerEmail(customerEmail);
-            cart.setReservationId(item.containsKey("reservationId") ? item.get("reservationId").s() : "");
-            cart.setDate(item.containsKey("date") ? item.get("date").s() : "");
-            cart.setTimeSlot(item.containsKey("timeSlot") ? item.get("timeSlot").s() : "");
-            cart.setAddress(item.containsKey("address") ? item.get("address").s() : "");
-            cart.setState(item.containsKey("state") ? item.get("state").s() : "");
-            cart.setLocationId(item.containsKey("locationId") ? item.get("locationId").s() : "");
-
-            // Parse order items
-            if (item.containsKey("orderItems") && item.get("orderItems").l() != null) {
-                List<OrderItem> orderItems = new ArrayList<>();
-                for (AttributeValue orderItemAttr : item.get("orderItems").l()) {
-                    Map<String, AttributeValue> orderItemMap = orderItemAttr.m();
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setDishId(orderItemMap.containsKey("dishId") ? orderItemMap.get("dishId").s() : "");
-                    orderItem.setDishName(orderItemMap.containsKey("dishName") ? orderItemMap.get("dishName").s() : "");
-                    orderItem.setDishImageUrl(orderItemMap.containsKey("dishImageUrl") ? orderItemMap.get("dishImageUrl").s() : "");
-                    orderItem.setDishPrice(orderItemMap.containsKey("dishPrice") ? orderItemMap.get("dishPrice").s() : "");
-
-                    if (orderItemMap.containsKey("orderQuantity")) {
-                        try {
-                            orderItem.setOrderQuantity(Integer.parseInt(orderItemMap.get("orderQuantity").n()));
-                        } catch (NumberFormatException e) {
-                            LOG.error("Error parsing order quantity", e);
-                            orderItem.setOrderQuantity(1);
-                        }
-                    } else {
-                        orderItem.setOrderQuantity(1);
-                    }
-
-                    orderItems.add(orderItem);
-                }
-                cart.setOrderItems(orderItems);
-            } else {
-                cart.setOrderItems(new ArrayList<>());
+        List<Map<String, AttributeValue>> lines = new ArrayList<>();
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            if (attribute.getKey().startsWith(LINE_PREFIX) && attribute.getValue().m() != null) {
+                lines.add(attribute.getValue().m());
+            }
+        }
+        lines.sort(Comparator.comparingLong(line -> line.containsKey("addedAt") ? Long.parseLong(line.get("addedAt").n()) : 0L));
+        for (Map<String, AttributeValue> line : lines) {
+            String dishId = line.containsKey("dishId") ? line.get("dishId").s() : "";
+            OrderItem orderItem = toOrderItem(line, item.get(QUANTITY_PREFIX + dishId));
+            if (orderItem.getOrderQuantity() > 0) {
+                orderItems.add(orderItem);
             }
-
-            return cart;
-        } catch (Exception e) {
-            LOG.error("Error fetching cart for customer: {}", customerEmail, e);
-            return null;
         }
+        cart.setOrderItems(orderItems);
+        return cart;
     }
 
-    public boolean addDishToCart(String customerEmail, String reservationId, Dish dish) {
-        LOG.info("Adding dish {} to cart for customer {}", dish.getDishId(), customerEmail);
+    /**
+     * Fold carts stored under a random ID into the customer's current cart and delete them.
+     * Each legacy cart is merged and deleted in one transaction; one for a different location
+     * than the current cart cannot be merged and is only deleted.
+     * @param customerEmail The customer's email
+     * @param legacyCarts The cart items whose ID is not derived from the email
+     */
+    private void migrateLegacyCarts(String customerEmail, List<Map<String, AttributeValue>> legacyCarts) {
+        for (Map<String, AttributeValue> legacyItem : legacyCarts) {
+            Cart legacy = toCart(customerEmail, legacyItem);
+            TransactWriteItem delete = TransactWriteItem.builder()
+                    .delete(Delete.builder()
+                            .tableName(cartTableName)
+                            .key(cartKey(customerEmail, legacy.getId()))
+                            .conditionExpression("attribute_exists(id)")
+                            .build())
+                    .build();
 
-        // Get existing cart or create new one
-        Cart cart = getCartByCustomerEmail(customerEmail);
-        Map<String, String> reservationDetails = getReservationDetails(reservationId);
+            List<TransactWriteItem> items = new ArrayList<>();
+            if (!legacy.getOrderItems().isEmpty()) {
+                items.add(TransactWriteItem.builder().update(mergeInto(customerEmail, legacy)).build());
+            }
+            items.add(delete);
+
+            try {
+                dynamoDbClient.transactWriteItems(TransactWriteItemsRequest.builder()
+                        .transactItems(items)
+                        .build());
+                LOG.info("Merged legacy cart {} into the cart of customer {}", legacy.getId(), customerEmail);
+            } catch (TransactionCanceledException e) {
+                List<CancellationReason> reasons = e.cancellationReasons();
+                boolean otherLocation = items.size() > 1 && !reasons.isEmpty()
+                        && "ConditionalCheckFailed".equals(reasons.get(0).code());
+                if (!otherLocation) {
+                    LOG.warn("Legacy cart {} of customer {} was not migrated: {}", legacy.getId(), customerEmail, reasons);
+                    continue;
+                }
+                LOG.info("Legacy cart {} of customer {} is for another location, deleting it", legacy.getId(), customerEmail);
+                try {
+                    dynamoDbClient.transactWriteItems(TransactWriteItemsRequest.builder()
+                            .transactItems(delete)
+                            .build());
+                } catch (Exception deleteError) {
+                    LOG.error("Error deleting legacy cart {} of customer {}", legacy.getId(), customerEmail, deleteError);
+                }
+            } catch (Exception e) {
+                LOG.error("Error migrating legacy cart {} of customer {}", legacy.getId(), customerEmail, e);
+            }
+        }
+    }
 
-        if (reservationDetails == null) {
-            LOG.error("Reservation not found: {}", reservationId);
-            return false;
+    private Update mergeInto(String customerEmail, Cart legacy) {
+        Map<String, String> expressionAttributeNames = new HashMap<>();
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":locationId", AttributeValue.builder().s(legacy.getLocationId()).build());
+        expressionAttributeValues.put(":one", AttributeValue.builder().n("1").build());
+
+        // The legacy list may hold a dish more than once
+        Map<String, OrderItem> byDish = new LinkedHashMap<>();
+        for (OrderItem orderItem : legacy.getOrderItems()) {
+            OrderItem merged = byDish.putIfAbsent(orderItem.getDishId(), orderItem);
+            if (merged != null) {
+                merged.setOrderQuantity(merged.getOrderQuantity() + orderItem.getOrderQuantity());
+            }
         }
 
-        if (cart == null) {
-            cart = new Cart();
-            cart.setId(UUID.randomUUID().toString());
-            cart.setCustomerEmail(customerEmail);
-            cart.setReservationId(reservationId);
-            cart.setDate(reservationDetails.get("date"));
-            cart.setTimeSlot(reservationDetails.get("timeSlot"));
-            cart.setAddress(reservationDetails.get("address"));
-            cart.setState("ACTIVE");
-            cart.setLocationId(reservationDetails.get("locationId"));
-            cart.setOrderItems(new ArrayList<>());
+        List<String> sets = new ArrayList<>();
+        List<String> adds = new ArrayList<>();
+        adds.add("version :one");
+        int index = 0;
+        long addedAt = System.currentTimeMillis();
+        for (OrderItem orderItem : byDish.values()) {
+            Map<String, AttributeValue> line = new HashMap<>();
+            line.put("dishId", AttributeValue.builder().s(orderItem.getDishId()).build());
+            line.put("dishName", AttributeValue.builder().s(orderItem.getDishName()).build());
+            line.put("dishImageUrl", AttributeValue.builder().s(orderItem.getDishImageUrl()).build());
+            line.put("dishPrice", AttributeValue.builder().s(orderItem.getDishPrice()).build());
+            line.put("addedAt", AttributeValue.builder().n(String.valueOf(addedAt + index)).build());
+
+            expressionAttributeNames.put("#line" + index, LINE_PREFIX + orderItem.getDishId());
+            expressionAttributeNames.put("#qty" + index, QUANTITY_PREFIX + orderItem.getDishId());
+            expressionAttributeValues.put(":line" + index, AttributeValue.builder().m(line).build());
+            expressionAttributeValues.put(":qty" + index,
+                    AttributeValue.builder().n(String.valueOf(orderItem.getOrderQuantity())).build());
+            sets.add("#line" + index + " = if_not_exists(#line" + index + ", :line" + index + ")");
+            adds.add("#qty" + index + " :qty" + index);
+            index++;
         }
 
-        // Check if dish already exists in cart
-        List<OrderItem> orderItems = cart.getOrderItems();
-        boolean dishFound = false;
+        // Only into a current cart for the same location
+        return Update.builder()
+                .tableName(cartTableName)
+                .key(cartKey(customerEmail, cartId(customerEmail)))
+                .updateExpression("SET " + String.join(", ", sets) + " ADD " + String.join(", ", adds))
+                .conditionExpression("locationId = :locationId")
+                .expressionAttributeNames(expressionAttributeNames)
+                .expressionAttributeValues(expressionAttributeValues)
+                .build();
+    }
 
-        for (OrderItem item : orderItems) {
-            if (item.getDishId().equals(dish.getDishId())) {
-                item.setOrderQuantity(item.getOrderQuantity() + 1);
-                dishFound = true;
-                break;
+    private OrderItem toOrderItem(Map<String, AttributeValue> orderItemMap, AttributeValue quantity) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setDishId(orderItemMap.containsKey("dishId") ? orderItemMap.get("dishId").s() : "");
+        orderItem.setDishName(orderItemMap.containsKey("dishName") ? orderItemMap.get("dishName").s() : "");
+        orderItem.setDishImageUrl(orderItemMap.containsKey("dishImageUrl") ? orderItemMap.get("dishImageUrl").s() : "");
+        orderItem.setDishPrice(orderItemMap.containsKey("dishPrice") ? orderItemMap.get("dishPrice").s() : "");
+
+        if (quantity != null) {
+            try {
+                orderItem.setOrderQuantity(Integer.parseInt(quantity.n()));
+            } catch (NumberFormatException e) {
+                LOG.error("Error parsing order quantity", e);
+                orderItem.setOrderQuantity(1);
             }
+        } else {
+            orderItem.setOrderQuantity(1);
         }
+        return orderItem;
+    }
 
-        // Add new dish if not found
-        if (!dishFound) {
-            OrderItem newItem = new OrderItem();
-            newItem.setDishId(dish.getDishId());
-            newItem.setDishName(dish.getDishName());
-            newItem.setDishImageUrl(dish.getImageUrl());
-            newItem.setDishPrice(String.format("$%.2f", dish.getPrice()));
-            newItem.setOrderQuantity(1);
-            orderItems.add(newItem);
-        }
+    /**
+     * Add one of a dish to the customer's cart, creating the cart if needed. This is a single
+     * UpdateItem that increments the dish's quantity, so concurrent adds are all counted.
+     * @param customerEmail The customer's email
+     * @param reservationId The reservation the cart is for
+     * @param reservationDetails The reservation's date, time slot, address and location
+     * @param dish The dish
+     * @return true if added, false if the cart is for another location or the write failed
+     */
+    public boolean addDishToCart(String customerEmail, String reservationId, Map<String, String> reservationDetails,
+                                 Dish dish) {
+        LOG.info("Adding dish {} to cart for customer {}", dish.getDishId(), customerEmail);
 
-        // Save cart to DynamoDB
+        Map<Dish, Integer> changes = new LinkedHashMap<>();
+        changes.put(dish, 1);
         try {
-            Map<String, AttributeValue> item = new HashMap<>();
-            item.put("id", AttributeValue.builder().s(cart.getId()).build());
-            item.put("customerEmail", AttributeValue.builder().s(customerEmail).build());
-            item.put("reservationId", AttributeValue.builder().s(reservationId).build());
-            item.put("date", AttributeValue.builder().s(cart.getDate()).build());
-            item.put("timeSlot", AttributeValue.builder().s(cart.getTimeSlot()).build());
-            item.put("address", AttributeValue.builder().s(cart.getAddress()).build());
-            item.put("state", AttributeValue.builder().s(cart.getState()).build());
-            item.put("locationId", AttributeValue.builder().s(cart.getLocationId()).build());
-
-            // Convert order items to AttributeValue
-            List<AttributeValue> orderItemsAttr = new ArrayList<>();
-            for (OrderItem orderItem : orderItems) {
-                Map<String, AttributeValue> orderItemMap = new HashMap<>();
-                orderItemMap.put("dishId", AttributeValue.builder().s(orderItem.getDishId()).build());
-                orderItemMap.put("dishName", AttributeValue.builder().s(orderItem.getDishName()).build());
-                orderItemMap.put("dishImageUrl", AttributeValue.builder().s(orderItem.getDishImageUrl()).build());
-                orderItemMap.put("dishPrice", AttributeValue.builder().s(orderItem.getDishPrice()).build());
-                orderItemMap.put("orderQuantity", AttributeValue.builder().n(String.valueOf(orderItem.getOrderQuantity())).build());
-
-                orderItemsAttr.add(AttributeValue.builder().m(orderItemMap).build());
-            }
-            item.put("orderItems", AttributeValue.builder().l(orderItemsAttr).build());
-
-            PutItemRequest putRequest = PutItemRequest.builder()
-                    .tableName(cartTableName)
-                    .item(item)
-                    .build();
-
-            dynamoDbClient.putItem(putRequest);
+            applyCartChanges(customerEmail, reservationId, reservationDetails, changes);
             return true;
+        } catch (ConflictException e) {
+            LOG.warn("Customer {} already has a cart for another location, cannot add dish from location {}",
+                    customerEmail, reservationDetails.get("locationId"));
+            return false;
         } catch (Exception e) {
             LOG.error("Error saving cart for customer: {}", customerEmail, e);
             return false;
         }
     }
+
     /**
-     * Update cart details in the database
-     * @param cart The cart to update
-     * @return true if successful, false otherwise
+     * Change the quantities of several dishes in the customer's cart, creating the cart if
+     * needed, with a single UpdateItem that ADDs to each dish's quantity. Lines that drop to
+     * zero are removed with one more write.
+     * @param customerEmail The customer's email
+     * @param reservationId The reservation the cart is for
+     * @param reservationDetails The reservation's date, time slot, address and location
+     * @param changes The quantity to add per dish, negative to take away
+     * @return The new quantity of each changed dish, zero if its line was removed; a dish that
+     *         was not in the cart and only had quantity taken away is left out
+     * @throws ConflictException if the cart holds dishes from another location
      */
-    public boolean updateCart(Cart cart) {
-        LOG.info("Updating cart in database for customer: {}", cart.getCustomerEmail());
+    public Map<String, Integer> applyCartChanges(String customerEmail, String reservationId,
+                                                 Map<String, String> reservationDetails, Map<Dish, Integer> changes) {
+        Map<String, String> expressionAttributeNames = new HashMap<>();
+        expressionAttributeNames.put("#date", "date");
+        expressionAttributeNames.put("#state", "state");
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":reservationId", AttributeValue.builder().s(reservationId).build());
+        expressionAttributeValues.put(":locationId", AttributeValue.builder().s(reservationDetails.get("locationId")).build());
+        expressionAttributeValues.put(":state", AttributeValue.builder().s("ACTIVE").build());
+        expressionAttributeValues.put(":date", AttributeValue.builder().s(reservationDetails.getOrDefault("date", "")).build());
+        expressionAttributeValues.put(":timeSlot", AttributeValue.builder().s(reservationDetails.getOrDefault("timeSlot", "")).build());
+        expressionAttributeValues.put(":address", AttributeValue.builder().s(reservationDetails.getOrDefault("address", "")).build());
+        expressionAttributeValues.put(":one", AttributeValue.builder().n("1").build());
+
+        StringBuilder setClause = new StringBuilder("SET reservationId = :reservationId, locationId = :locationId, "
+                + "#state = :state, #date = if_not_exists(#date, :date), timeSlot = if_not_exists(timeSlot, :timeSlot), "
+                + "address = if_not_exists(address, :address)");
+        StringBuilder addClause = new StringBuilder(" ADD version :one");
+
+        int index = 0;
+        long addedAt = System.currentTimeMillis();
+        for (Map.Entry<Dish, Integer> change : changes.entrySet()) {
+            Dish dish = change.getKey();
+            Map<String, AttributeValue> line = new HashMap<>();
+            line.put("dishId", AttributeValue.builder().s(dish.getDishId()).build());
+            line.put("dishName", AttributeValue.builder().s(dish.getDishName()).build());
+            line.put("dishImageUrl", AttributeValue.builder().s(dish.getImageUrl()).build());
+            line.put("dishPrice", AttributeValue.builder().s(formatPrice(dish.getPrice())).build());
+            line.put("addedAt", AttributeValue.builder().n(String.valueOf(addedAt + index)).build());
+
+            expressionAttributeNames.put("#line" + index, LINE_PREFIX + dish.getDishId());
+            expressionAttributeNames.put("#qty" + index, QUANTITY_PREFIX + dish.getDishId());
+            expressionAttributeValues.put(":line" + index, AttributeValue.builder().m(line).build());
+            expressionAttributeValues.put(":qty" + index, AttributeValue.builder().n(String.valueOf(change.getValue())).build());
+            setClause.append(", #line").append(index).append(" = if_not_exists(#line").append(index)
+                    .append(", :line").append(index).append(")");
+            addClause.append(", #qty").append(index).append(" :qty").append(index);
+            index++;
+        }
 
+        Map<String, AttributeValue> previous;
         try {
-            Map<String, AttributeValue> item = new HashMap<>();
-            item.put("customerEmail", AttributeValue.builder().s(cart.getCustomerEmail()).build());
-            item.put("id", AttributeValue.builder().s(cart.getId()).build());
-            item.put("reservationId", AttributeValue.builder().s(cart.getReservationId()).build());
-
-            // Handle optional fields
-            if (cart.getDate() != null) {
-                item.put("date", AttributeValue.builder().s(cart.getDate()).build());
-            }
-
-            if (cart.getTimeSlot() != null) {
-                item.put("timeSlot", AttributeValue.builder().s(cart.getTimeSlot()).build());
-            }
+            // A cart holds dishes from one location only
+            UpdateItemRequest updateRequest = UpdateItemRequest.builder()
+                    .tableName(cartTableName)
+                    .key(cartKey(customerEmail, cartId(customerEmail)))
+                    .updateExpression(setClause.toString() + addClause)
+                    .conditionExpression("attribute_not_exists(locationId) OR locationId = :locationId")
+                    .expressionAttributeNames(expressionAttributeNames)
+                    .expressionAttributeValues(expressionAttributeValues)
+                    .returnValues(ReturnValue.ALL_OLD)
+                    .build();
 
-            if (cart.getAddress() != null) {
-                item.put("address", AttributeValue.builder().s(cart.getAddress()).build());
-            }
+            // The old item is exact for this write, so old quantity plus change is what it left behind
+            previous = dynamoDbClient.updateItem(updateRequest).attributes();
+        } catch (ConditionalCheckFailedException e) {
+            throw new ConflictException("Your cart already holds dishes from another location");
+        } catch (Exception e) {
+            LOG.error("Error saving cart for customer: {}", customerEmail, e);
+            throw new RuntimeException("Error updating cart", e);
+        }
 
-            if (cart.getState() != null) {
-                item.put("state", AttributeValue.builder().s(cart.getState()).build());
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        List<String> emptied = new ArrayList<>();
+        for (Map.Entry<Dish, Integer> change : changes.entrySet()) {
+            String dishId = change.getKey().getDishId();
+            AttributeValue quantity = previous.get(QUANTITY_PREFIX + dishId);
+            int oldQuantity = quantity != null ? Integer.parseInt(quantity.n()) : 0;
+            int newQuantity = oldQuantity + change.getValue();
+            if (newQuantity <= 0) {
+                emptied.add(dishId);
+                newQuantity = 0;
             }
-
-            if (cart.getLocationId() != null) {
-                item.put("locationId", AttributeValue.builder().s(cart.getLocationId()).build());
+            if (oldQuantity > 0 || change.getValue() > 0) {
+                quantities.put(dishId, newQuantity);
             }
+        }
+        if (!emptied.isEmpty()) {
+            removeEmptyLines(customerEmail, emptied);
+        }
 
-            // Convert order items to AttributeValue
-            if (cart.getOrderItems() != null && !cart.getOrderItems().isEmpty()) {
-                List<AttributeValue> orderItemsAttr = new ArrayList<>();
-                for (OrderItem orderItem : cart.getOrderItems()) {
-                    Map<String, AttributeValue> orderItemMap = new HashMap<>();
-                    orderItemMap.put("dishId", AttributeValue.builder().s(orderItem.getDishId()).build());
-                    orderItemMap.put("dishName", AttributeValue.builder().s(orderItem.getDishName()).build());
-                    orderItemMap.put("dishImageUrl", AttributeValue.builder().s(orderItem.getDishImageUrl()).build());
-                    orderItemMap.put("dishPrice", AttributeValue.builder().s(orderItem.getDishPrice()).build());
-                    orderItemMap.put("orderQuantity", AttributeValue.builder().n(String.valueOf(orderItem.getOrderQuantity())).build());
-
-                    orderItemsAttr.add(AttributeValue.builder().m(orderItemMap).build());
+        // This write created the cart, so a cart the customer had under a random ID would be
+        // hidden by it from now on; fold it in
+        if (!previous.containsKey("version")) {
+            try {
+                List<Map<String, AttributeValue>> legacyCarts = new ArrayList<>();
+                for (Map<String, AttributeValue> item : queryCarts(customerEmail)) {
+                    if (item.containsKey("id") && !cartId(customerEmail).equals(item.get("id").s())) {
+                        legacyCarts.add(item);
+                    }
                 }
-                item.put("orderItems", AttributeValue.builder().l(orderItemsAttr).build());
+                if (!legacyCarts.isEmpty()) {
+                    migrateLegacyCarts(customerEmail, legacyCarts);
+                }
+            } catch (Exception e) {
+                // The next read of the cart retries the migration
+                LOG.error("Error looking up legacy carts for customer: {}", customerEmail, e);
             }
+        }
+        return quantities;
+    }
+
+    private String formatPrice(String price) {
+        try {
+            return String.format("$%.2f", Double.parseDouble(price));
+        } catch (NullPointerException | NumberFormatException e) {
+            return price != null ? price : "";
+        }
+    }
+
+    private void removeEmptyLines(String customerEmail, List<String> dishIds) {
+        Map<String, String> expressionAttributeNames = new HashMap<>();
+        List<String> removals = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        for (int i = 0; i < dishIds.size(); i++) {
+            expressionAttributeNames.put("#line" + i, LINE_PREFIX + dishIds.get(i));
+            expressionAttributeNames.put("#qty" + i, QUANTITY_PREFIX + dishIds.get(i));
+            removals.add("#line" + i);
+            removals.add("#qty" + i);
+            conditions.add("#qty" + i + " <= :zero");
+        }
 
-            PutItemRequest putRequest = PutItemRequest.builder()
+        try {
+            // Only if no concurrent add has brought a line back
+            UpdateItemRequest updateRequest = UpdateItemRequest.builder()
                     .tableName(cartTableName)
-                    .item(item)
+                    .key(cartKey(customerEmail, cartId(customerEmail)))
+                    .updateExpression("REMOVE " + String.join(", ", removals) + " ADD version :one")
+                    .conditionExpression(String.join(" AND ", conditions))
+                    .expressionAttributeNames(expressionAttributeNames)
+                    .expressionAttributeValues(Map.of(
+                            ":zero", AttributeValue.builder().n("0").build(),
+                            ":one", AttributeValue.builder().n("1").build()
+                    ))
                     .build();
 
-            dynamoDbClient.putItem(putRequest);
+            dynamoDbClient.updateItem(updateRequest);
+        } catch (ConditionalCheckFailedException e) {
+            LOG.info("Cart lines {} for customer {} changed before they could be removed", dishIds, customerEmail);
+        } catch (Exception e) {
+            // Lines at zero are not shown, so the change itself has still been applied
+            LOG.error("Error removing empty cart lines for customer: {}", customerEmail, e);
+        }
+    }
+
+    /**
+     * Update the address and time slot shown on the customer's cart
+     * @param customerEmail The customer's email
+     * @param address The new address, or null to keep it
+     * @param timeSlot The new time slot, or null to keep it
+     * @return true if successful, false if there is no cart or the write failed
+     */
+    public boolean updateCartDetails(String customerEmail, String address, String timeSlot) {
+        LOG.info("Updating cart in database for customer: {}", customerEmail);
+
+        List<String> assignments = new ArrayList<>();
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":one", AttributeValue.builder().n("1").build());
+        if (address != null) {
+            assignments.add("address = :address");
+            expressionAttributeValues.put(":address", AttributeValue.builder().s(address).build());
+        }
+        if (timeSlot != null) {
+            assignments.add("timeSlot = :timeSlot");
+            expressionAttributeValues.put(":timeSlot", AttributeValue.builder().s(timeSlot).build());
+        }
+
+        try {
+            UpdateItemRequest updateRequest = UpdateItemRequest.builder()
+                    .tableName(cartTableName)
+                    .key(cartKey(customerEmail, cartId(customerEmail)))
+                    .updateExpression((assignments.isEmpty() ? "" : "SET " + String.join(", ", assignments) + " ")
+                            + "ADD version :one")
+                    .conditionExpression("attribute_exists(id)")
+                    .expressionAttributeValues(expressionAttributeValues)
+                    .build();
+
+            dynamoDbClient.updateItem(updateRequest);
             LOG.info("Cart updated successfully");
             return true;
+        } catch (ConditionalCheckFailedException e) {
+            LOG.warn("No cart found for customer: {}", customerEmail);
+            return false;
         } catch (Exception e) {
-            LOG.error("Error updating cart for customer: {}", cart.getCustomerEmail(), e);
+            LOG.error("Error updating cart for customer: {}", customerEmail, e);
             return false;
         }
     }
-    public boolean clearCart(String customerEmail) {
-        LOG.info("Clearing cart for customer: {}", customerEmail);
 
+    /**
+     * Copy a moved booking's date and time slot onto the customer's cart, if the cart is for it
+     * @param customerEmail The customer's email
+     * @param reservationId The booking that moved
+     * @param date The booking's new date
+     * @param timeSlot The booking's new formatted time slot
+     */
+    public void updateReservationDetails(String customerEmail, String reservationId, String date, String timeSlot) {
         try {
-            // First get the cart to confirm it exists
-            Cart cart = getCartByCustomerEmail(customerEmail);
-            if (cart == null) {
-                LOG.warn("No cart found to clear for customer: {}", customerEmail);
-                return true; // Already cleared
-            }
-
-            LOG.info("Found cart with ID {} to clear", cart.getId());
-
-            // Delete the cart using both primary key components
-            DeleteItemRequest deleteRequest = DeleteItemRequest.builder()
+            UpdateItemRequest updateRequest = UpdateItemRequest.builder()
                     .tableName(cartTableName)
-                    .key(Map.of(
-                            "customerEmail", AttributeValue.builder().s(customerEmail).build(),
-                            "id", AttributeValue.builder().s(cart.getId()).build()
+                    .key(cartKey(customerEmail, cartId(customerEmail)))
+                    .updateExpression("SET #date = :date, timeSlot = :timeSlot ADD version :one")
+                    .conditionExpression("reservationId = :reservationId")
+                    .expressionAttributeNames(Map.of("#date", "date"))
+                    .expressionAttributeValues(Map.of(
+                            ":date", AttributeValue.builder().s(date).build(),
+                            ":timeSlot", AttributeValue.builder().s(timeSlot).build(),
+                            ":reservationId", AttributeValue.builder().s(reservationId).build(),
+                            ":one", AttributeValue.builder().n("1").build()
                     ))
                     .build();
 
-            dynamoDbClient.deleteItem(deleteRequest);
-            LOG.info("Cart deleted successfully");
-
-            return true;
+            dynamoDbClient.updateItem(updateRequest);
+            LOG.info("Moved cart for customer {} to {} {}", customerEmail, date, timeSlot);
+        } catch (ConditionalCheckFailedException e) {
+            LOG.info("Cart for customer {} no longer belongs to reservation {}", customerEmail, reservationId);
         } catch (Exception e) {
-            LOG.error("Error clearing cart for customer: {}", customerEmail, e);
-            e.printStackTrace();
-            return false;
+            // The booking has already moved, so the update must not fail over the cart's copy
+            LOG.error("Error updating cart for customer: {}", customerEmail, e);
         }
     }
 }
\ No newline at end of file
@@ -6,30 +6,38 @@ import com.restaurantapp.Exception.*;
 import com.restaurantapp.Model.CustomerFeedback;
 import com.restaurantapp.Model.CustomerFeedbackRequest;
 import com.restaurantapp.Model.Reservation;
+import dagger.Lazy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class CustomerFeedbackRepository {
     private final Logger LOG = LoggerFactory.getLogger(CustomerFeedbackRepository.class);
+
+    // Feedback table index: partition key reservationId
+    private static final String RESERVATION_INDEX = "reservationId-index";
     private final DynamoDbClient dynamoDbClient;
+    private final Lazy<DynamoDbAsyncClient> dynamoDbAsyncClient;
     private final ObjectMapper objectMapper;
-    private String finalFeedbackId="";
     private final String bookingTable = System.getenv("booking_table");
     private final String feedbackTable = System.getenv("feedback_table");
+    private final String locationTable = System.getenv("location_table");
 
-    public CustomerFeedbackRepository() {
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1)
-                .build();
+    public CustomerFeedbackRepository(DynamoDbClient dynamoDbClient, Lazy<DynamoDbAsyncClient> dynamoDbAsyncClient) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -93,80 +101,98 @@ public class CustomerFeedbackRepository {
     }
 
 
+    /**
+     * Build the feedback key for a reservation and feedback type. Each reservation can hold
+     * one feedback per type, so the key itself enforces uniqueness.
+     * @param reservationId The reservation ID
+     * @param type The feedback type
+     * @return The feedback ID
+     */
+    public static String buildFeedbackId(String reservationId, String type) {
+        return reservationId + "#" + type;
+    }
+
     public String updateTheFeedback(CustomerFeedback customerFeedback){
+        return AsyncCalls.join(updateTheFeedbackAsync(customerFeedback));
+    }
+
+    /**
+     * Update the comment and rating of an existing feedback, without blocking
+     * @param customerFeedback The feedback holding the new values
+     * @return The feedback ID, "Feedback Not Found" if it was never given, or null if nothing changed
+     */
+    public CompletableFuture<String> updateTheFeedbackAsync(CustomerFeedback customerFeedback){
         try {
-            boolean feedbackExists = feedbackExists(customerFeedback.getReservationId(), customerFeedback.getType());
-            if (feedbackExists) {
-                //update
-
-                //Get values
-                String comment = customerFeedback.getComment();
-                String rating = customerFeedback.getRating();
-                String feedbackId = finalFeedbackId;
-
-                // Create update expression parts
-                StringBuilder updateExpression = new StringBuilder("SET ");
-                Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-                Map<String, String> expressionAttributeNames = new HashMap<>();
-
-                boolean hasUpdates = false;
-
-                // Add comment update if provided
-                if (comment != null && !comment.trim().isEmpty()) {
-                    updateExpression.append("#comment = :comment");
-                    expressionAttributeValues.put(":comment", AttributeValue.builder().s(comment).build());
-                    expressionAttributeNames.put("#comment", "comment");
-                    hasUpdates = true;
-                }
+            String feedbackId = buildFeedbackId(customerFeedback.getReservationId(), customerFeedback.getType());
 
-                // Add rating update if provided
-                if (rating != null && !rating.trim().isEmpty()) {
-                    if (hasUpdates) {
-                        updateExpression.append(", ");
-                    }
-                    updateExpression.append("#rating = :rating");
-                    expressionAttributeValues.put(":rating", AttributeValue.builder().s(rating).build());
-                    expressionAttributeNames.put("#rating", "rating");
-                    hasUpdates = true;
-                }
+            //Get values
+            String comment = customerFeedback.getComment();
+            String rating = customerFeedback.getRating();
 
-                // Add date update
-                if (hasUpdates) {
-                    updateExpression.append(", #date = :date");
-                    expressionAttributeValues.put(":date", AttributeValue.builder().s(LocalDate.now().toString()).build());
-                    expressionAttributeNames.put("#date", "date");
-                }
+            // Create update expression parts
+            StringBuilder updateExpression = new StringBuilder("SET ");
+            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+            Map<String, String> expressionAttributeNames = new HashMap<>();
 
-                // If no updates, return early
-                if (!hasUpdates) {
-                    LOG.info("No updates provided for feedback with ID: {}", feedbackId);
-                    return null;
-                }
+            boolean hasUpdates = false;
 
-                // Create the key map
-                Map<String, AttributeValue> key = new HashMap<>();
-                key.put("feedbackId", AttributeValue.builder().s(feedbackId).build());
+            // Add comment update if provided
+            if (comment != null && !comment.trim().isEmpty()) {
+                updateExpression.append("#comment = :comment");
+                expressionAttributeValues.put(":comment", AttributeValue.builder().s(comment).build());
+                expressionAttributeNames.put("#comment", "comment");
+                hasUpdates = true;
+            }
 
-                // Create the update request
-                UpdateItemRequest request = UpdateItemRequest.builder()
-                        .tableName(feedbackTable)
-                        .key(key)
-                        .updateExpression(updateExpression.toString())
-                        .expressionAttributeValues(expressionAttributeValues)
-                        .expressionAttributeNames(expressionAttributeNames)
-                        .build();
+            // Add rating update if provided
+            if (rating != null && !rating.trim().isEmpty()) {
+                if (hasUpdates) {
+                    updateExpression.append(", ");
+                }
+                updateExpression.append("#rating = :rating");
+                expressionAttributeValues.put(":rating", AttributeValue.builder().s(rating).build());
+                expressionAttributeNames.put("#rating", "rating");
+                hasUpdates = true;
+            }
 
-                // Execute the request
-                UpdateItemResponse response = dynamoDbClient.updateItem(request);
+            // If no updates, return early
+            if (!hasUpdates) {
+                LOG.info("No updates provided for feedback with ID: {}", feedbackId);
+                return CompletableFuture.completedFuture(null);
+            }
 
-                LOG.info("Successfully updated feedback with ID: {}", finalFeedbackId);
+            // Add date update
+            updateExpression.append(", #date = :date");
+            expressionAttributeValues.put(":date", AttributeValue.builder().s(LocalDate.now().toString()).build());
+            expressionAttributeNames.put("#date", "date");
 
-                return finalFeedbackId;
+            // Create the key map
+            Map<String, AttributeValue> key = new HashMap<>();
+            key.put("feedbackId", AttributeValue.builder().s(feedbackId).build());
 
+            // The condition replaces the existence lookup: the update only applies to feedback that was given
+            UpdateItemRequest request = UpdateItemRequest.builder()
+                    .tableName(feedbackTable)
+                    .key(key)
+                    .updateExpression(updateExpression.toString())
+                    .conditionExpression("attribute_exists(feedbackId)")
+                    .expressionAttributeValues(expressionAttributeValues)
+                    .expressionAttributeNames(expressionAttributeNames)
+                    .build();
 
-            }else{
-                return "Feedback Not Found";
-            }
+            return AsyncCalls.withTimeout(dynamoDbAsyncClient.get().updateItem(request))
+                    .handle((response, e) -> {
+                        if (e == null) {
+                            LOG.info("Successfully updated feedback with ID: {}", feedbackId);
+                            return feedbackId;
+                        }
+                        Throwable cause = AsyncCalls.unwrap(e);
+                        if (cause instanceof ConditionalCheckFailedException) {
+                            return "Feedback Not Found";
+                        }
+                        LOG.info("Exception occured in updateFeedback");
+                        throw new CompletionException(cause);
+                    });
         }catch (Exception e) {
             LOG.info("Exception occured in updateFeedback");
             throw e;
@@ -175,40 +201,49 @@ public class CustomerFeedbackRepository {
 
 
 
-    public String createFeedback(CustomerFeedback customerFromDB) {
+    /**
+     * Create the given feedbacks together with their location feedback counters in one transaction.
+     * Each put is conditioned on the reservation+type key being free. If some feedback already
+     * exists, the transaction is cancelled and retried once with only the new feedback, so one
+     * request never leaves a rating half-written.
+     * @param feedbacks The feedbacks to create, at most one per type
+     * @return The types that were created; empty if all of them already existed
+     */
+    public Set<String> createFeedbacks(List<CustomerFeedback> feedbacks) {
         try {
+            List<CustomerFeedback> pending = new ArrayList<>(feedbacks);
+            try {
+                writeFeedbacks(pending);
+            } catch (TransactionCanceledException e) {
+                List<CustomerFeedback> fresh = new ArrayList<>();
+                List<CancellationReason> reasons = e.cancellationReasons();
+                for (int i = 0; i < pending.size(); i++) {
+                    boolean exists = i < reasons.size() && "ConditionalCheckFailed".equals(reasons.get(i).code());
+                    if (!exists) {
+                        fresh.add(pending.get(i));
+                    }
+                }
+                if (fresh.size() == pending.size()) {
+                    // Cancelled for a reason other than existing feedback
+                    throw e;
+                }
 
-            boolean feedbackExists = feedbackExists(customerFromDB.getReservationId(), customerFromDB.getType());
-
-            String feedBackId;
-
-            if (!feedbackExists) {
-                // Feedback doesn't exist, create a new one
-                feedBackId = customerFromDB.getFeedbackId();
-
-            //add value to feedback
-            Map<String, AttributeValue> item = new HashMap<>();
-            item.put("feedbackId", AttributeValue.builder().s(feedBackId).build());
-            item.put("locationId", AttributeValue.builder().s(customerFromDB.getLocationId()).build());
-            item.put("reservationId", AttributeValue.builder().s(customerFromDB.getReservationId()).build());
-            item.put("rating", AttributeValue.builder().s(customerFromDB.getRating()).build());
-            item.put("type", AttributeValue.builder().s(customerFromDB.getType()).build());
-            item.put("comment", AttributeValue.builder().s(customerFromDB.getComment()).build());
-            item.put("date",AttributeValue.builder().s(LocalDate.now().toString()).build());
-            item.put("customerEmail", AttributeValue.builder().s(customerFromDB.getCustomerEmail()).build());
-            item.put("waiterEmail", AttributeValue.builder().s(customerFromDB.getWaiterEmail()).build());
-
-            PutItemRequest addItem = PutItemRequest.builder()
-                    .tableName(feedbackTable)
-                    .item(item)
-                    .build();
-
-            PutItemResponse addItemResponse = dynamoDbClient.putItem(addItem);
+                LOG.info("{} of {} feedbacks already exist for reservation", pending.size() - fresh.size(), pending.size());
+                pending = fresh;
+                if (!pending.isEmpty()) {
+                    writeFeedbacks(pending);
+                }
+            }
 
-            return customerFromDB.getFeedbackId();}
-            else {
-                return "Feedback already exists";
+            Set<String> created = new HashSet<>();
+            for (CustomerFeedback feedback : pending) {
+                created.add(feedback.getType());
             }
+            return created;
+        }
+        catch (TransactionCanceledException e) {
+            LOG.info("Feedback transaction cancelled: {}", e.cancellationReasons());
+            throw new ConflictException("Feedback was changed by another request, please try again");
         }
         catch (Exception e) {
             LOG.info("Exception occured in createFeedback");
@@ -217,115 +252,123 @@ public class CustomerFeedbackRepository {
 
     }
 
-    /**
-     * Check if feedback already exists for a reservation ID and type
-     * @param reservationId The reservation ID
-     * @param type The feedback type
-     * @return true if feedback exists, false otherwise
-     */
-    public boolean feedbackExists(String reservationId, String type) {
-        try {
-            LOG.info("Checking if feedback exists for reservation: {} and type: {}", reservationId, type);
-
-            // Create expression attribute values
-            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-            expressionAttributeValues.put(":reservationId", AttributeValue.builder().s(reservationId).build());
-            expressionAttributeValues.put(":typeAttr", AttributeValue.builder().s(type).build());
-
-            // Create expression attribute names to handle reserved keywords
-            Map<String, String> expressionAttributeNames = new HashMap<>();
-            expressionAttributeNames.put("#typeAttr", "type");
-
-            // Initialize variables for pagination
-            Map<String, AttributeValue> lastEvaluatedKey = null;
-            boolean exists = false;
-
-            do {
-                // Create scan request with filter
-                ScanRequest.Builder scanRequestBuilder = ScanRequest.builder()
-                        .tableName(feedbackTable)
-                        .filterExpression("reservationId = :reservationId AND #typeAttr = :typeAttr")
-                        .expressionAttributeValues(expressionAttributeValues)
-                        .expressionAttributeNames(expressionAttributeNames)
-                        .limit(1); // We only need to know if any feedback exists
-
-                // Add exclusiveStartKey for pagination if we have a lastEvaluatedKey
-                if (lastEvaluatedKey != null) {
-                    scanRequestBuilder.exclusiveStartKey(lastEvaluatedKey);
-                }
+    private void writeFeedbacks(List<CustomerFeedback> feedbacks) {
+        List<TransactWriteItem> transactItems = new ArrayList<>();
+        Map<String, String> counterNames = new HashMap<>();
+        List<String> counterUpdates = new ArrayList<>();
+        String locationId = null;
 
-                ScanRequest scanRequest = scanRequestBuilder.build();
-                ScanResponse response = dynamoDbClient.scan(scanRequest);
+        for (CustomerFeedback feedback : feedbacks) {
+            String feedbackId = buildFeedbackId(feedback.getReservationId(), feedback.getType());
+            locationId = feedback.getLocationId();
 
-                LOG.info("Scan Response: {}", response);
+            //add value to feedback
+            Map<String, AttributeValue> item = new HashMap<>();
+            item.put("feedbackId", AttributeValue.builder().s(feedbackId).build());
+            item.put("locationId", AttributeValue.builder().s(feedback.getLocationId()).build());
+            item.put("reservationId", AttributeValue.builder().s(feedback.getReservationId()).build());
+            item.put("rating", AttributeValue.builder().s(feedback.getRating()).build());
+            item.put("type", AttributeValue.builder().s(feedback.getType()).build());
+            item.put("locationType", AttributeValue.builder()
+                    .s(FeedbackRepository.buildLocationTypeKey(feedback.getLocationId(), feedback.getType())).build());
+            item.put("comment", AttributeValue.builder().s(feedback.getComment()).build());
+            item.put("date",AttributeValue.builder().s(LocalDate.now().toString()).build());
+            item.put("customerEmail", AttributeValue.builder().s(feedback.getCustomerEmail()).build());
+            item.put("waiterEmail", AttributeValue.builder().s(feedback.getWaiterEmail()).build());
+
+            transactItems.add(TransactWriteItem.builder()
+                    .put(Put.builder()
+                            .tableName(feedbackTable)
+                            .item(item)
+                            .conditionExpression("attribute_not_exists(feedbackId)")
+                            .build())
+                    .build());
+
+            String counterName = "#count" + counterNames.size();
+            counterNames.put(counterName, FeedbackRepository.feedbackCountAttribute(feedback.getType()));
+            counterUpdates.add(counterName + " :one");
+        }
 
-                // Check if we found any matching items
-                if (response.count() > 0) {
-                    finalFeedbackId = response.items().get(0).get("feedbackId").s();
-                    exists = true;
-                    break; // We found a match, no need to continue scanning
-                }
+        // Keep the per-location feedback counts used by the location feedback listing in step with inserts
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("locationId", AttributeValue.builder().s(locationId).build());
 
-                // Update lastEvaluatedKey for the next iteration
-                lastEvaluatedKey = response.lastEvaluatedKey();
+        transactItems.add(TransactWriteItem.builder()
+                .update(Update.builder()
+                        .tableName(locationTable)
+                        .key(key)
+                        .updateExpression("ADD " + String.join(", ", counterUpdates))
+                        .conditionExpression("attribute_exists(locationId)")
+                        .expressionAttributeNames(counterNames)
+                        .expressionAttributeValues(Map.of(":one", AttributeValue.builder().n("1").build()))
+                        .build())
+                .build());
+
+        dynamoDbClient.transactWriteItems(TransactWriteItemsRequest.builder()
+                .transactItems(transactItems)
+                .build());
+    }
 
-                // Fix: Check if lastEvaluatedKey is null or empty
-            } while (lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty());
 
-            LOG.info("Feedback for reservation {} and type {} exists: {}", reservationId, type, exists);
-            return exists;
-        } catch (Exception e) {
-            LOG.error("Error checking if feedback exists: {}", e.getMessage(), e);
-            throw new RuntimeException("Error checking if feedback exists", e);
-        }
+    /**
+     * Get every feedback given for a reservation with one query on the reservationId index
+     * @param reservationId The reservation ID
+     * @return The feedback items
+     */
+    public List<Map<String, AttributeValue>> getFeedbacksForReservation(String reservationId) {
+        return AsyncCalls.join(getFeedbacksForReservationAsync(reservationId));
     }
 
-
-    public ScanResponse getAllReservations(String reservationId) {
+    /**
+     * Get every feedback given for a reservation, without blocking
+     * @param reservationId The reservation ID
+     * @return The feedback items
+     */
+    public CompletableFuture<List<Map<String, AttributeValue>>> getFeedbacksForReservationAsync(String reservationId) {
 
         Map<String, AttributeValue> expressionValues = new HashMap<>();
         expressionValues.put(":reservationId", AttributeValue.builder().s(reservationId).build());
 
-        ScanRequest scanRequest = ScanRequest.builder()
+        QueryRequest queryRequest = QueryRequest.builder()
                 .tableName(feedbackTable)
-                .filterExpression("reservationId = :reservationId")
+                .indexName(RESERVATION_INDEX)
+                .keyConditionExpression("reservationId = :reservationId")
                 .expressionAttributeValues(expressionValues).build();
 
-        ScanResponse scanResponse = dynamoDbClient.scan(scanRequest);
-        LOG.info("Scan Response: {}", scanResponse);
-
-
-
-        return scanResponse;
-
+        return AsyncCalls.withTimeout(dynamoDbAsyncClient.get().query(queryRequest))
+                .thenApply(queryResponse -> {
+                    LOG.info("Found {} feedbacks for reservation {}", queryResponse.count(), reservationId);
+                    return queryResponse.items();
+                });
     }
 
     public boolean checkReservationForEmail(String reservationId, String customerEmail) {
+        return AsyncCalls.join(checkReservationForEmailAsync(reservationId, customerEmail));
+    }
 
-        try {
-            Map<String, AttributeValue> key = new HashMap<>();
-            key.put("reservationId", AttributeValue.builder().s(reservationId).build());
-
-            GetItemRequest scanRequest = GetItemRequest.builder()
-                    .tableName(bookingTable)
-                    .key(key)
-                    .build();
-
-            GetItemResponse itemResponse = dynamoDbClient.getItem(scanRequest);
-
-            if (itemResponse.item() == null || itemResponse.item().size()<=0){
-                throw new Exception("Reservation Not found");
-            }
+    /**
+     * Check whether a reservation belongs to a customer, without blocking
+     * @param reservationId The reservation ID
+     * @param customerEmail The customer's email
+     * @return true if the customer made the reservation; fails with BadRequestException if it cannot be read
+     */
+    public CompletableFuture<Boolean> checkReservationForEmailAsync(String reservationId, String customerEmail) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("reservationId", AttributeValue.builder().s(reservationId).build());
 
-            if (itemResponse.item().get("customerEmail").s().equals(customerEmail)) {
-                return true;
-            }
+        GetItemRequest scanRequest = GetItemRequest.builder()
+                .tableName(bookingTable)
+                .key(key)
+                .build();
 
-            return false;
-        }
-        catch (Exception e) {
-            LOG.info("Exception occurred in checkReservationForEmail");
-            throw new BadRequestException("Exception occurred in passing ReservationId");
-        }
+        return AsyncCalls.withTimeout(dynamoDbAsyncClient.get().getItem(scanRequest))
+                .handle((itemResponse, e) -> {
+                    if (e != null || itemResponse.item() == null || itemResponse.item().size()<=0
+                            || !itemResponse.item().containsKey("customerEmail")) {
+                        LOG.info("Exception occurred in checkReservationForEmail");
+                        throw new BadRequestException("Exception occurred in passing ReservationId");
+                    }
+                    return itemResponse.item().get("customerEmail").s().equals(customerEmail);
+                });
     }
 }
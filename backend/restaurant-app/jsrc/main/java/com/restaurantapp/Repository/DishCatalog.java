@@ -0,0 +1,269 @@
+package com.restaurantapp.Repository;
+
+import com.restaurantapp.Model.Dish;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Snapshot of the dishes table held for the life of a warm container. Price, calories and
+ * popularity are parsed once when the snapshot is built, and the dish list, every dish type
+ * and every location have their lists prepared up front, including one presorted list per
+ * supported sort order. Requests only pick a prepared list.
+ *
+ * The snapshot is rebuilt after TTL_MILLIS, or sooner when the "dish-catalog" version stamp
+ * changes.
+ */
+@Singleton
+public class DishCatalog {
+    private static final Logger LOG = LoggerFactory.getLogger(DishCatalog.class);
+
+    private static final long TTL_MILLIS = 5 * 60 * 1000L;
+    private static final long VERSION_CHECK_INTERVAL_MILLIS = 30 * 1000L;
+
+    private static final String VERSION_NAME = "dish-catalog";
+
+    private static final Map<String, Comparator<CatalogDish>> SORT_ORDERS = new LinkedHashMap<>();
+    private static final Map<String, String> SORT_ALIASES = new HashMap<>();
+
+    static {
+        SORT_ORDERS.put("popularity,asc", Comparator.comparingInt(dish -> dish.frequency));
+        SORT_ORDERS.put("popularity,desc", Comparator.comparingInt(dish -> -dish.frequency));
+        SORT_ORDERS.put("price,asc", Comparator.comparingDouble(dish -> dish.price));
+        SORT_ORDERS.put("price,desc", (dish1, dish2) -> Double.compare(dish2.price, dish1.price));
+        // Dishes without a calorie value go last when sorting ascending and first when descending
+        SORT_ORDERS.put("calories,asc", Comparator.comparingInt(
+                dish -> dish.calories != null ? dish.calories : Integer.MAX_VALUE));
+        SORT_ORDERS.put("calories,desc", Comparator.comparingInt(
+                dish -> dish.calories != null ? -dish.calories : Integer.MIN_VALUE));
+
+        SORT_ALIASES.put("popularity ascending", "popularity,asc");
+        SORT_ALIASES.put("popularity descending", "popularity,desc");
+        SORT_ALIASES.put("price ascending", "price,asc");
+        SORT_ALIASES.put("price descending", "price,desc");
+        SORT_ALIASES.put("calories ascending", "calories,asc");
+        SORT_ALIASES.put("low calorie", "calories,asc");
+        SORT_ALIASES.put("calories descending", "calories,desc");
+        SORT_ALIASES.put("high calorie", "calories,desc");
+    }
+
+    private final DishRepository dishRepository;
+    private final VersionStamp versionStamp;
+
+    private Snapshot snapshot;
+    private long generation;
+
+    /** A dish with its numeric fields parsed once */
+    private static final class CatalogDish {
+        private final Dish dish;
+        private final int frequency;
+        private final double price;
+        private final Integer calories;
+
+        private CatalogDish(Dish dish) {
+            this.dish = dish;
+            this.frequency = dish.getDishFrequency();
+            this.price = parsePrice(dish.getPrice());
+            this.calories = parseCalories(dish.getCalories());
+        }
+    }
+
+    /** A list of dishes in table order plus one copy per sort order */
+    private static final class View {
+        private final List<Dish> unsorted;
+        private final Map<String, List<Dish>> sorted = new HashMap<>();
+
+        private View(List<CatalogDish> dishes) {
+            this.unsorted = toDishes(dishes);
+            for (Map.Entry<String, Comparator<CatalogDish>> order : SORT_ORDERS.entrySet()) {
+                List<CatalogDish> copy = new ArrayList<>(dishes);
+                copy.sort(order.getValue());
+                sorted.put(order.getKey(), toDishes(copy));
+            }
+        }
+
+        private List<Dish> get(String sort) {
+            return sort != null ? sorted.get(sort) : unsorted;
+        }
+    }
+
+    private static final class Snapshot {
+        private final long loadedAt;
+        private final Map<String, Dish> byId = new HashMap<>();
+        private final View all;
+        private final Map<String, View> byType = new HashMap<>();
+        private final Map<String, List<Dish>> byLocation = new HashMap<>();
+
+        private Snapshot(List<Dish> dishes, long loadedAt) {
+            this.loadedAt = loadedAt;
+
+            List<CatalogDish> catalogDishes = new ArrayList<>();
+            Map<String, List<CatalogDish>> typeGroups = new LinkedHashMap<>();
+            Map<String, List<Dish>> available = new LinkedHashMap<>();
+            Map<String, List<Dish>> onStop = new LinkedHashMap<>();
+
+            for (Dish dish : dishes) {
+                CatalogDish catalogDish = new CatalogDish(dish);
+                catalogDishes.add(catalogDish);
+                if (dish.getDishId() != null) {
+                    byId.put(dish.getDishId(), dish);
+                }
+                if (dish.getDishType() != null) {
+                    typeGroups.computeIfAbsent(typeKey(dish.getDishType()), key -> new ArrayList<>()).add(catalogDish);
+                }
+                if (dish.getLocationId() != null) {
+                    (dish.isState() ? available : onStop)
+                            .computeIfAbsent(dish.getLocationId(), key -> new ArrayList<>()).add(dish);
+                }
+            }
+
+            this.all = new View(catalogDishes);
+            typeGroups.forEach((type, group) -> byType.put(type, new View(group)));
+
+            // Dishes that can be ordered are listed before those on stop
+            Set<String> locationIds = new LinkedHashSet<>(available.keySet());
+            locationIds.addAll(onStop.keySet());
+            for (String locationId : locationIds) {
+                List<Dish> locationDishes = new ArrayList<>(available.getOrDefault(locationId, Collections.emptyList()));
+                locationDishes.addAll(onStop.getOrDefault(locationId, Collections.emptyList()));
+                byLocation.put(locationId, Collections.unmodifiableList(locationDishes));
+            }
+        }
+    }
+
+    @Inject
+    public DishCatalog(DishRepository dishRepository, DynamoDbClient dynamoDbClient) {
+        this.dishRepository = dishRepository;
+        this.versionStamp = new VersionStamp(dynamoDbClient, VERSION_NAME, VERSION_CHECK_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Convert a sort parameter to one of the supported sort orders
+     * @param sort The sort parameter, e.g. "price,asc" or "low calorie"
+     * @return The sort order, or null if the parameter is not supported
+     */
+    public static String normalizeSort(String sort) {
+        if (sort == null) {
+            return null;
+        }
+        String normalized = sort.trim().toLowerCase(Locale.ROOT);
+        if (SORT_ORDERS.containsKey(normalized)) {
+            return normalized;
+        }
+        return SORT_ALIASES.get(normalized);
+    }
+
+    /**
+     * Get dishes, optionally of one type and in a sort order
+     * @param dishType Dish type compared case-insensitively, or null for all dishes
+     * @param sort A sort order from normalizeSort, or null for table order
+     * @return The dishes
+     */
+    public List<Dish> getDishes(String dishType, String sort) {
+        Snapshot current = snapshot();
+        if (dishType == null || dishType.trim().isEmpty()) {
+            return current.all.get(sort);
+        }
+        View view = current.byType.get(typeKey(dishType));
+        return view != null ? view.get(sort) : Collections.emptyList();
+    }
+
+    /**
+     * Get one dish
+     * @param dishId The dish ID
+     * @return The dish, or null if it is not in the catalog
+     */
+    public Dish getDish(String dishId) {
+        return snapshot().byId.get(dishId);
+    }
+
+    /**
+     * Get the dishes served at a location, available dishes first
+     * @param locationId The location ID
+     * @return The dishes, empty if the location has none
+     */
+    public List<Dish> getDishesForLocation(String locationId) {
+        return snapshot().byLocation.getOrDefault(locationId, Collections.emptyList());
+    }
+
+    /**
+     * Get an identifier of the snapshot currently served; it changes whenever the snapshot
+     * is rebuilt, so anything derived from the dishes can be cached against it
+     * @return The snapshot version
+     */
+    public synchronized String getVersion() {
+        snapshot();
+        return Long.toString(generation);
+    }
+
+    /**
+     * Drop the snapshot so the next read rebuilds it
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    private synchronized Snapshot snapshot() {
+        long now = System.currentTimeMillis();
+        if (versionStamp.hasChanged(now)) {
+            snapshot = null;
+        }
+        if (snapshot == null || now - snapshot.loadedAt > TTL_MILLIS) {
+            List<Dish> dishes = dishRepository.getAllDishes();
+            snapshot = new Snapshot(dishes, now);
+            generation++;
+            LOG.info("Built dish catalog with {} dishes", dishes.size());
+        }
+        return snapshot;
+    }
+
+    private static String typeKey(String dishType) {
+        return dishType.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<Dish> toDishes(List<CatalogDish> dishes) {
+        return Collections.unmodifiableList(dishes.stream().map(dish -> dish.dish).collect(Collectors.toList()));
+    }
+
+    // Prices may carry a currency symbol, e.g. "$12.50"
+    private static double parsePrice(String price) {
+        if (price == null) {
+            return 0.0;
+        }
+        try {
+            return Double.parseDouble(price.replaceAll("[^\\d.]", ""));
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    // Calories are stored as text such as "503 kcal"
+    private static Integer parseCalories(String calories) {
+        if (calories == null) {
+            return null;
+        }
+        String numericPart = calories.replaceAll("[^0-9]", "");
+        if (numericPart.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(numericPart);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
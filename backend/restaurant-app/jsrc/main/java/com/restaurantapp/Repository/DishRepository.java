@@ -3,7 +3,6 @@ package com.restaurantapp.Repository;
 import com.restaurantapp.Model.Dish;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
@@ -18,14 +17,17 @@ public class DishRepository {
     private final DynamoDbClient dynamoDbClient;
 
     @Inject
-    public DishRepository() {
+    public DishRepository(DynamoDbClient dynamoDbClient) {
         this.dishesTableName = System.getenv("dishes_table");
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1)
-                .build();
+        this.dynamoDbClient = dynamoDbClient;
         LOG.info("DishRepository initialized with table: {}", dishesTableName);
     }
 
+    /**
+     * Read every dish in the table
+     * @return All dishes
+     * @throws RuntimeException if the scan fails
+     */
     public List<Dish> getAllDishes() {
         try {
             LOG.info("Fetching all dishes from table: {}", dishesTableName);
@@ -34,10 +36,9 @@ public class DishRepository {
                     .tableName(dishesTableName)
                     .build();
 
-            ScanResponse response = dynamoDbClient.scan(scanRequest);
+            // The paginator keeps scanning until every page of the table has been read
             List<Dish> dishes = new ArrayList<>();
-
-            for (Map<String, AttributeValue> item : response.items()) {
+            for (Map<String, AttributeValue> item : dynamoDbClient.scanPaginator(scanRequest).items()) {
                 dishes.add(mapToDish(item));
             }
 
@@ -45,40 +46,7 @@ public class DishRepository {
             return dishes;
         } catch (Exception e) {
             LOG.error("Error retrieving dishes from DynamoDB", e);
-            return Collections.emptyList();
-        }
-    }
-
-    public List<Dish> getDishesByType(String dishType) {
-        try {
-            // Handle null or empty dish type
-            if (dishType == null || dishType.trim().isEmpty()) {
-                LOG.warn("Empty dish type provided, returning all dishes");
-                return getAllDishes();
-            }
-
-            // Normalize the dish type by trimming spaces
-            String normalizedDishType = dishType.trim();
-
-            LOG.info("Fetching dishes by type: '{}' from table: {}", normalizedDishType, dishesTableName);
-
-            // Get all dishes and filter in memory for case-insensitive comparison
-            List<Dish> allDishes = getAllDishes();
-            List<Dish> filteredDishes = new ArrayList<>();
-
-            for (Dish dish : allDishes) {
-                if (dish.getDishType() != null &&
-                        dish.getDishType().trim().equalsIgnoreCase(normalizedDishType)) {
-                    filteredDishes.add(dish);
-                }
-            }
-
-            LOG.info("Successfully filtered {} dishes of type: '{}' (case-insensitive)",
-                    filteredDishes.size(), normalizedDishType);
-            return filteredDishes;
-        } catch (Exception e) {
-            LOG.error("Error retrieving dishes by type from DynamoDB", e);
-            return Collections.emptyList();
+            throw new RuntimeException("Error retrieving dishes from DynamoDB", e);
         }
     }
 
@@ -4,7 +4,6 @@ import com.restaurantapp.Model.Dish;
 import com.restaurantapp.Model.PopularDishesResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
@@ -12,10 +11,11 @@ import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class DishesRepository {
     private static final Logger LOG = LoggerFactory.getLogger(DishesRepository.class);
@@ -23,11 +23,8 @@ public class DishesRepository {
     private final String dishesTableName = System.getenv("dishes_table");
     private final String bookingTableName = System.getenv("booking_table");
 
-    public DishesRepository() {
-        // Create DynamoDB client
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1) // Change to your region
-                .build();
+    public DishesRepository(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
     }
 
     /**
@@ -79,6 +76,7 @@ public class DishesRepository {
         GetItemRequest getRequest = GetItemRequest.builder()
                 .tableName(bookingTableName)
                 .key(Map.of("reservationId", AttributeValue.builder().s(reservationId).build()))
+                .projectionExpression("locationId")
                 .build();
 
         try {
@@ -98,32 +96,6 @@ public class DishesRepository {
         }
     }
 
-    public List<Dish> getAvailableDishesByLocation(String locationId) {
-        LOG.info("Fetching available dishes for location: {}", locationId);
-
-        ScanRequest scanRequest = ScanRequest.builder()
-                .tableName(dishesTableName)
-                .filterExpression("locationId = :locId")
-                .expressionAttributeValues(Map.of(
-                        ":locId", AttributeValue.builder().s(locationId).build()
-                ))
-                .build();
-
-        try {
-            ScanResponse response = dynamoDbClient.scan(scanRequest);
-
-            List<Dish> dishes = response.items().stream()
-                    .map(this::mapItemToDish)
-                    .collect(Collectors.toList());
-
-            LOG.info("Found {} available dishes for location: {}", dishes.size(), locationId);
-            return dishes;
-        } catch (Exception e) {
-            LOG.error("Error fetching available dishes for location: {}", locationId, e);
-            return Collections.emptyList();
-        }
-    }
-
     public Dish getDishById(String dishId) {
         LOG.info("Getting dish by ID: {}", dishId);
 
@@ -140,41 +112,7 @@ public class DishesRepository {
                 return null;
             }
 
-            Dish dish = new Dish();
-            dish.setDishId(dishId);
-            dish.setDishName(item.containsKey("dishName") ? item.get("dishName").s() : "");
-            dish.setImageUrl(item.containsKey("imageUrl") ? item.get("imageUrl").s() : "");
-
-            // Handle price as double
-            if (item.containsKey("price")) {
-                try {
-                    dish.setPrice(item.get("price").s());
-                } catch (Exception e) {
-                    LOG.warn("Error parsing price for dish {}: {}", dishId, e.getMessage());
-                    dish.setPrice("0.0");
-                }
-            }
-
-            dish.setState(item.containsKey("state") ? item.get("state").bool(): false) ;
-            dish.setLocationId(item.containsKey("locationId") ? item.get("locationId").s() : "");
-            dish.setWeight(item.containsKey("weight") ? item.get("weight").s() : "");
-            dish.setDishDescription(item.containsKey("dishDescription") ? item.get("dishDescription").s() : "");
-            dish.setCalories(item.containsKey("calories") ? item.get("calories").s() : "");
-            dish.setCarbohydrates(item.containsKey("carbohydrates") ? item.get("carbohydrates").s() : "");
-            dish.setProteins(item.containsKey("proteins") ? item.get("proteins").s() : "");
-            dish.setFats(item.containsKey("fats") ? item.get("fats").s() : "");
-            dish.setVitamins(item.containsKey("vitamins") ? item.get("vitamins").s() : "");
-            dish.setDishType(item.containsKey("dishType") ? item.get("dishType").s() : "");
-
-            // Handle dishFrequency as int
-            if (item.containsKey("dishFrequency")) {
-                try {
-                    dish.setDishFrequency(Integer.parseInt(item.get("dishFrequency").n()));
-                } catch (Exception e) {
-                    LOG.warn("Error parsing dishFrequency for dish {}: {}", dishId, e.getMessage());
-                    dish.setDishFrequency(0);
-                }
-            }
+            Dish dish = toDish(dishId, item);
 
             LOG.info("Found dish: {}, location: {}", dish.getDishName(), dish.getLocationId());
             return dish;
@@ -184,26 +122,50 @@ public class DishesRepository {
         }
     }
 
-    private Dish mapItemToDish(Map<String, AttributeValue> item) {
-        Dish dish = new Dish();
+    /**
+     * Get several dishes in one batched read
+     * @param dishIds The dish IDs
+     * @return The dishes found, by ID; missing dishes have no entry
+     */
+    public Map<String, Dish> getDishesByIds(Collection<String> dishIds) {
+        LOG.info("Getting {} dishes by ID", dishIds.size());
+
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (String dishId : new LinkedHashSet<>(dishIds)) {
+            keys.add(Map.of("dishId", AttributeValue.builder().s(dishId).build()));
+        }
+
+        Map<String, Dish> dishes = new HashMap<>();
+        try {
+            for (Map<String, AttributeValue> item : BatchReads.getItems(dynamoDbClient, dishesTableName, keys, null, null)) {
+                String dishId = item.get("dishId").s();
+                dishes.put(dishId, toDish(dishId, item));
+            }
+        } catch (Exception e) {
+            LOG.error("Error getting dishes by ID: {}", dishIds, e);
+            throw new RuntimeException("Error getting dishes", e);
+        }
+        return dishes;
+    }
 
-        dish.setDishId(item.containsKey("dishId") ? item.get("dishId").s() : "");
+    private Dish toDish(String dishId, Map<String, AttributeValue> item) {
+        Dish dish = new Dish();
+        dish.setDishId(dishId);
         dish.setDishName(item.containsKey("dishName") ? item.get("dishName").s() : "");
         dish.setImageUrl(item.containsKey("imageUrl") ? item.get("imageUrl").s() : "");
-        dish.setState(item.containsKey("state") ? item.get("state").bool(): false);
-        dish.setLocationId(item.containsKey("locationId") ? item.get("locationId").s() : "");
 
-        // Parse price as double
+        // Handle price as double
         if (item.containsKey("price")) {
             try {
                 dish.setPrice(item.get("price").s());
-            } catch (NumberFormatException e) {
-                LOG.error("Error parsing price for dish {}", dish.getDishId(), e);
+            } catch (Exception e) {
+                LOG.warn("Error parsing price for dish {}: {}", dishId, e.getMessage());
                 dish.setPrice("0.0");
             }
-        } else {
-            dish.setPrice("0.0");
         }
+
+        dish.setState(item.containsKey("state") ? item.get("state").bool(): false) ;
+        dish.setLocationId(item.containsKey("locationId") ? item.get("locationId").s() : "");
         dish.setWeight(item.containsKey("weight") ? item.get("weight").s() : "");
         dish.setDishDescription(item.containsKey("dishDescription") ? item.get("dishDescription").s() : "");
         dish.setCalories(item.containsKey("calories") ? item.get("calories").s() : "");
@@ -213,18 +175,15 @@ public class DishesRepository {
         dish.setVitamins(item.containsKey("vitamins") ? item.get("vitamins").s() : "");
         dish.setDishType(item.containsKey("dishType") ? item.get("dishType").s() : "");
 
-        // Parse dish frequency
+        // Handle dishFrequency as int
         if (item.containsKey("dishFrequency")) {
             try {
                 dish.setDishFrequency(Integer.parseInt(item.get("dishFrequency").n()));
-            } catch (NumberFormatException e) {
-                LOG.error("Error parsing dishFrequency for dish {}", dish.getDishId(), e);
+            } catch (Exception e) {
+                LOG.warn("Error parsing dishFrequency for dish {}: {}", dishId, e.getMessage());
                 dish.setDishFrequency(0);
             }
-        } else {
-            dish.setDishFrequency(0);
         }
         return dish;
     }
-
-}
\ No newline at end of file
+}
@@ -1,110 +1,160 @@
 package com.restaurantapp.Repository;
 
+import com.restaurantapp.Model.CursorPage;
 import com.restaurantapp.Model.Feedback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class FeedbackRepository {
     private static final Logger LOG = LoggerFactory.getLogger(FeedbackRepository.class);
+
+    // Feedback table indexes: partition key locationType (locationId#type), sort key date or rating
+    private static final String LOCATION_TYPE_DATE_INDEX = "locationType-date-index";
+    private static final String LOCATION_TYPE_RATING_INDEX = "locationType-rating-index";
+
+    public static final Set<String> FEEDBACK_TYPES = Set.of("SERVICE_EXPERIENCE", "CUISINE_EXPERIENCE");
+
     private final DynamoDbClient dynamoDbClient;
     private final String tableName = System.getenv("feedback_table");
     private final String locationTablename=System.getenv("location_table");
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
-    public FeedbackRepository() {
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1) // Change to your region
-                .build();
+    public FeedbackRepository(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
+    }
+
+    /**
+     * Build the index partition key shared by all feedback of one type at one location
+     * @param locationId The location ID
+     * @param type The feedback type
+     * @return The locationType key
+     */
+    public static String buildLocationTypeKey(String locationId, String type) {
+        return locationId + "#" + type;
     }
 
-    public List<Feedback> getFeedbackByLocationAndType(String locationId, String type, int page, int size, List<String> sort) {
+    /**
+     * Name of the location item attribute holding the feedback count for a type
+     * @param type The feedback type
+     * @return The counter attribute name
+     */
+    public static String feedbackCountAttribute(String type) {
+        return "feedbackCount_" + type;
+    }
+
+    /**
+     * Get one page of feedback for a location and type. The page is read from the index
+     * that is sorted by the requested property, so only the requested items are fetched.
+     * @param locationId The location ID
+     * @param type The feedback type
+     * @param sortProperty "date" or "rate"
+     * @param ascending Sort direction
+     * @param size Page size
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @return The page and the cursor for the next one
+     */
+    public CursorPage<Feedback> getFeedbackByLocationAndType(String locationId, String type, String sortProperty,
+                                                             boolean ascending, int size, String cursor) {
+        Map<String, AttributeValue> exclusiveStartKey = PageCursor.decode(cursor);
         try {
-            LOG.info("Retrieving feedback for location: {} and type: {}", locationId, type);
-
-            // Create expression attribute values
-            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-            expressionAttributeValues.put(":locationId", AttributeValue.builder().s(locationId).build());
-            expressionAttributeValues.put(":type", AttributeValue.builder().s(type).build());
-
-            // Replace the query with a scan operation
-            ScanRequest scanRequest = ScanRequest.builder()
-                    .tableName(tableName)
-                    // Use filter expressions instead of key condition expressions
-                    .filterExpression("locationId = :locationId AND #type = :type")
-                    .expressionAttributeNames(Map.of("#type", "type")) // 'type' is a reserved word in DynamoDB
-                    .expressionAttributeValues(expressionAttributeValues)
-                    .build();
+            LOG.info("Retrieving feedback for location: {} and type: {} sorted by {} {}",
+                    locationId, type, sortProperty, ascending ? "asc" : "desc");
 
-            // Execute scan
-            ScanResponse response = dynamoDbClient.scan(scanRequest);
+            if (size == 0) {
+                return new CursorPage<>(Collections.emptyList(), cursor);
+            }
 
-            // Convert DynamoDB items to Feedback objects
-            List<Feedback> allFeedbacks = response.items().stream()
+            QueryRequest.Builder queryBuilder = buildQuery(locationId, type, sortProperty, ascending)
+                    .limit(size);
+            if (exclusiveStartKey != null) {
+                queryBuilder.exclusiveStartKey(exclusiveStartKey);
+            }
+
+            QueryResponse response = dynamoDbClient.query(queryBuilder.build());
+
+            List<Feedback> feedbacks = response.items().stream()
                     .map(this::mapToFeedback)
                     .collect(Collectors.toList());
 
-            // Apply sorting if provided
-            if (sort != null && !sort.isEmpty()) {
-                applySorting(allFeedbacks, sort);
-            }
+            return new CursorPage<>(feedbacks, PageCursor.encode(response.lastEvaluatedKey()));
 
-            // Apply pagination
-            int startIndex = page * size;
-            int endIndex = Math.min(startIndex + size, allFeedbacks.size());
+        } catch (Exception e) {
+            LOG.error("Error retrieving feedback from DynamoDB", e);
+            throw new RuntimeException("Failed to retrieve feedback", e);
+        }
+    }
 
-            if (startIndex >= allFeedbacks.size()) {
-                return Collections.emptyList();
-            }
+    /**
+     * Find the cursor that starts at the given offset. Used only for page-number requests
+     * from older clients; cursor requests do not need it.
+     * @param locationId The location ID
+     * @param type The feedback type
+     * @param sortProperty "date" or "rate"
+     * @param ascending Sort direction
+     * @param offset Number of items to skip
+     * @return The cursor positioned after offset items, or null if fewer items exist
+     */
+    public String findCursorAtOffset(String locationId, String type, String sortProperty, boolean ascending, int offset) {
+        try {
+            LOG.info("Skipping {} feedback items for location: {} and type: {}", offset, locationId, type);
+
+            Map<String, AttributeValue> lastEvaluatedKey = null;
+            int remaining = offset;
+            do {
+                QueryRequest.Builder queryBuilder = buildQuery(locationId, type, sortProperty, ascending)
+                        .limit(remaining);
+                if (lastEvaluatedKey != null) {
+                    queryBuilder.exclusiveStartKey(lastEvaluatedKey);
+                }
+
+                QueryResponse response = dynamoDbClient.query(queryBuilder.build());
+                remaining -= response.count();
+                lastEvaluatedKey = response.lastEvaluatedKey();
+            } while (remaining > 0 && lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty());
 
-            return allFeedbacks.subList(startIndex, endIndex);
+            return remaining > 0 ? null : PageCursor.encode(lastEvaluatedKey);
 
         } catch (Exception e) {
-            LOG.error("Error retrieving feedback from DynamoDB", e);
+            LOG.error("Error skipping feedback in DynamoDB", e);
             throw new RuntimeException("Failed to retrieve feedback", e);
         }
     }
 
+    /**
+     * Read the maintained feedback count for a location and type from the location item
+     * @param locationId The location ID
+     * @param type The feedback type
+     * @return The count, -1 if the location does not exist, -2 if the type is invalid
+     */
     public long countFeedbackByLocationAndType(String locationId, String type) {
         try {
-            // Create expression attribute values
-
-            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-            expressionAttributeValues.put(":locationId", AttributeValue.builder().s(locationId).build());
-            expressionAttributeValues.put(":type", AttributeValue.builder().s(type).build());
-
-            // Replace query with scan for counting
-            ScanRequest scanRequest = ScanRequest.builder()
-                    .tableName(tableName)
-                    .filterExpression("locationId = :locationId AND #type = :type")
-                    .expressionAttributeNames(Map.of("#type", "type"))
-                    .expressionAttributeValues(expressionAttributeValues)
-                    .build();
-            LOG.info("Retrieving feedback ");
-            ScanRequest locationScanRequest = ScanRequest.builder()
+            Map<String, AttributeValue> key = new HashMap<>();
+            key.put("locationId", AttributeValue.builder().s(locationId).build());
+
+            GetItemRequest request = GetItemRequest.builder()
                     .tableName(locationTablename)
-                    .filterExpression("locationId = :locationId")
-                    .expressionAttributeValues(Map.of(":locationId", AttributeValue.builder().s(locationId).build()))
+                    .key(key)
+                    .projectionExpression("locationId, #count")
+                    .expressionAttributeNames(Map.of("#count", feedbackCountAttribute(type)))
                     .build();
-            LOG.info("Retrieving feedback {}", locationScanRequest.toString());
-            // Execute scan
-            ScanResponse response = dynamoDbClient.scan(scanRequest);
-            ScanResponse locationResponse=dynamoDbClient.scan(locationScanRequest);
-            if(locationResponse.count()==0)
+
+            GetItemResponse response = dynamoDbClient.getItem(request);
+            if (!response.hasItem() || response.item().isEmpty()) {
                 return -1;
-            else if(!(type.equalsIgnoreCase("SERVICE_EXPERIENCE")||type.equalsIgnoreCase("CUISINE_EXPERIENCE")))
+            }
+            if (!FEEDBACK_TYPES.contains(type)) {
                 return -2;
-            else
-                return response.count();
+            }
+
+            AttributeValue count = response.item().get(feedbackCountAttribute(type));
+            return count != null && count.n() != null ? Long.parseLong(count.n()) : 0;
 
         } catch (Exception e) {
             LOG.error("Error counting feedback from DynamoDB", e);
@@ -112,6 +162,16 @@ public class FeedbackRepository {
         }
     }
 
+    private QueryRequest.Builder buildQuery(String locationId, String type, String sortProperty, boolean ascending) {
+        return QueryRequest.builder()
+                .tableName(tableName)
+                .indexName("rate".equalsIgnoreCase(sortProperty) ? LOCATION_TYPE_RATING_INDEX : LOCATION_TYPE_DATE_INDEX)
+                .keyConditionExpression("locationType = :locationType")
+                .expressionAttributeValues(Map.of(":locationType",
+                        AttributeValue.builder().s(buildLocationTypeKey(locationId, type)).build()))
+                .scanIndexForward(ascending);
+    }
+
     private Feedback mapToFeedback(Map<String, AttributeValue> item) {
         Feedback feedback = new Feedback();
         feedback.setId(item.get("feedbackId").s());
@@ -125,87 +185,4 @@ public class FeedbackRepository {
         return feedback;
     }
 
-    private void applySorting(List<Feedback> feedbacks, List<String> sortCriteria) {
-        Comparator<Feedback> finalComparator = null;
-            String property = sortCriteria.get(0);
-            boolean ascending = sortCriteria.size() == 1 || "asc".equalsIgnoreCase(sortCriteria.get(1));
-          String criteria="asc";
-           Comparator<Feedback> comparator = createComparator(property);
-            if (!ascending) {
-                comparator = comparator.reversed();
-                criteria="desc";
-            }
-            if (finalComparator == null) {
-                finalComparator = comparator;
-            } else {
-                finalComparator = finalComparator.thenComparing(comparator);
-            }
-
-
-
-        if (finalComparator != null) {
-            LOG.info("Sorting feedback list with {} criteria: {} , {}", sortCriteria.size(),sortCriteria.get(0),criteria);
-            feedbacks.sort(finalComparator);
-        }
-    }
-
-    private Comparator<Feedback> createComparator(String property) {
-
-        LOG.info("Sorting feedback list with {} criteria", property);
-        switch (property.toLowerCase()) {
-
-            case "date":
-
-                return Comparator.comparing(feedback -> parseDate(feedback.getDate()));
-
-            case "rate":
-
-                return Comparator.comparing(feedback -> {
-
-                    try {
-
-                        return Integer.parseInt(feedback.getRate());
-
-                    } catch (NumberFormatException e) {
-
-                        LOG.warn("Invalid rate value: {}", feedback.getRate());
-
-                        return 0;
-
-                    }
-
-                });
-
-            case "username":
-
-                return Comparator.comparing(Feedback::getUserName,
-
-                        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
-
-            default:
-
-                LOG.warn("Unknown sort property: {}, defaulting to ID", property);
-
-                return Comparator.comparing(Feedback::getId);
-
-        }
-
-    }
-
-    private LocalDateTime parseDate(String dateStr) {
-
-        try {
-
-            return LocalDateTime.parse(dateStr, DATE_FORMATTER);
-
-        } catch (DateTimeParseException e) {
-
-            LOG.warn("Failed to parse date: {}", dateStr);
-
-            return LocalDateTime.MIN; // Default value for unparseable dates
-
-        }
-
-    }
-
 }
@@ -1,12 +1,8 @@
 package com.restaurantapp.Repository;
 
-import com.amazonaws.services.dynamodbv2.xspec.S;
 import com.restaurantapp.Model.Location;
 import com.restaurantapp.Model.LocationDTO;
 import com.restaurantapp.Model.SpecialityDishes;
-import org.checkerframework.checker.units.qual.A;
-import org.w3c.dom.Attr;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
@@ -20,10 +16,9 @@ public class LocationRepository {
     private final String dishesTable=System.getenv("dishes_table");
 
     private static final Logger LOG = Logger.getLogger(LocationRepository.class.getName());
-    public LocationRepository(){
-        this.dynamoDbClient=DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1)
-                .build();
+
+    public LocationRepository(DynamoDbClient dynamoDbClient){
+        this.dynamoDbClient = dynamoDbClient;
     }
 
     public List<Location> findAll(){
@@ -51,41 +46,46 @@ public class LocationRepository {
         );
     }
     public List<SpecialityDishes> findSpecialityDishes(String locationId){
-        List<SpecialityDishes> specialityDishes=new ArrayList<>();
         Map<String,AttributeValue> key=new HashMap<>();
         key.put("locationId", AttributeValue.builder().s(locationId).build());
         GetItemRequest getItemRequest=GetItemRequest.builder()
                 .tableName(restaurantTable)
                 .key(key)
+                .projectionExpression("listOfDishes")
                 .build();
         GetItemResponse getItemResponse=dynamoDbClient.getItem(getItemRequest);
-        if(getItemResponse.hasItem() && getItemResponse.item().containsKey("listOfDishes")){
-            LOG.info("List of dishes found");
-            List<String> dishIds=new ArrayList<>();
-            List<AttributeValue> dishIdValue=getItemResponse.item().get("listOfDishes").l();
-            LOG.info(dishIdValue.toString());
-            for(AttributeValue dishId:dishIdValue){
-                dishIds.add(dishId.s());
-            }
-            LOG.info(dishIds.toString());
-            for(String dishId:dishIds){
-                Map<String, AttributeValue> dishKey = new HashMap<>();
-                LOG.info("Dish ID: "+dishId);
-                dishKey.put("dishId", AttributeValue.builder().s(dishId).build());
-                GetItemRequest dishRequest = GetItemRequest.builder()
-                        .tableName(dishesTable)
-                        .key(dishKey)
-                        .build();
-
-                GetItemResponse dishResponse = dynamoDbClient.getItem(dishRequest);
-                if (dishResponse.hasItem()) {
-                    specialityDishes.add(mapItemToSpecialityDishes(dishResponse.item()));
-                }
-            }
+        if(!getItemResponse.hasItem() || !getItemResponse.item().containsKey("listOfDishes")){
+            return new ArrayList<>();
+        }
+
+        List<String> dishIds=new ArrayList<>();
+        for(AttributeValue dishId:getItemResponse.item().get("listOfDishes").l()){
+            dishIds.add(dishId.s());
         }
+        LOG.info("List of dishes found: "+dishIds);
 
+        // A batch may not contain the same key twice
+        List<Map<String, AttributeValue>> keys=new ArrayList<>();
+        for(String dishId:new LinkedHashSet<>(dishIds)){
+            keys.add(Map.of("dishId", AttributeValue.builder().s(dishId).build()));
+        }
+        Map<String, Map<String, AttributeValue>> dishesById=new HashMap<>();
+        for(Map<String, AttributeValue> item:BatchReads.getItems(dynamoDbClient, dishesTable, keys,
+                "dishId, dishName, #weight, imageUrl, price", Map.of("#weight", "weight"))){
+            dishesById.put(item.get("dishId").s(), item);
+        }
+
+        // Keep the order of listOfDishes; dishes that no longer exist are skipped
+        List<SpecialityDishes> specialityDishes=new ArrayList<>();
+        for(String dishId:dishIds){
+            Map<String, AttributeValue> item=dishesById.get(dishId);
+            if(item!=null){
+                specialityDishes.add(mapItemToSpecialityDishes(item));
+            }
+        }
         return specialityDishes;
     }
+
     public SpecialityDishes mapItemToSpecialityDishes(Map<String, AttributeValue> item){
         SpecialityDishes specialityDishes=new SpecialityDishes();
         specialityDishes.setName(item.get("dishName").s());
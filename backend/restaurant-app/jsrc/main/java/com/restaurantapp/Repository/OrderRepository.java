@@ -1,15 +1,22 @@
 package com.restaurantapp.Repository;
 
+import com.restaurantapp.Exception.ConflictException;
+import com.restaurantapp.Exception.ForbiddenException;
 import com.restaurantapp.Model.Cart;
 import com.restaurantapp.Model.Order;
 import com.restaurantapp.Model.OrderItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
 
 import javax.inject.Singleton;
 import java.util.*;
@@ -19,131 +26,152 @@ public class OrderRepository {
     private static final Logger LOG = LoggerFactory.getLogger(OrderRepository.class);
     private final DynamoDbClient dynamoDbClient;
     private final String ordersTableName = System.getenv("order_table");
+    private final String cartTableName = System.getenv("cart_table");
+    private final String reservationTableName = System.getenv("booking_table");
 
-    public OrderRepository() {
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1)
-                .build();
+    public OrderRepository(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
     }
 
-    public String createOrderFromCart(Cart cart) {
+    /**
+     * Submit a cart as an order. Putting the order, deleting the cart and recording the
+     * pre-order on its reservation are one transaction, conditioned on the cart still being
+     * the version that was read and on the reservation belonging to the cart's customer, so a
+     * submission is never left half done.
+     * @param cart The cart as read
+     * @return The order, built from the cart
+     * @throws ConflictException if the cart has no reservation, changed since it was read or its reservation is gone
+     * @throws ForbiddenException if the reservation belongs to another customer
+     */
+    public Order submitOrder(Cart cart) {
         LOG.info("Creating order from cart for customer: {}", cart.getCustomerEmail());
 
-        String orderId = UUID.randomUUID().toString();
-
-        try {
-            Map<String, AttributeValue> item = new HashMap<>();
-            item.put("orderId", AttributeValue.builder().s(orderId).build());
-            item.put("customerEmail", AttributeValue.builder().s(cart.getCustomerEmail()).build());
-
-            // Ensure date is not null
-            String date = cart.getDate() != null ? cart.getDate() : "";
-            item.put("date", AttributeValue.builder().s(date).build());
-
-            // Ensure locationId is not null
-            String locationId = cart.getLocationId() != null ? cart.getLocationId() : "";
-            item.put("locationId", AttributeValue.builder().s(locationId).build());
-
-            // Ensure reservationId is not null
-            String reservationId = cart.getReservationId() != null ? cart.getReservationId() : "";
-            item.put("reservationId", AttributeValue.builder().s(reservationId).build());
-
-            item.put("state", AttributeValue.builder().s("SUBMITTED").build());
-
-            // Ensure timeSlot is not null
-            String timeSlot = cart.getTimeSlot() != null ? cart.getTimeSlot() : "";
-            item.put("timeSlot", AttributeValue.builder().s(timeSlot).build());
-
-            // Ensure address is not null
-            String address = cart.getAddress() != null ? cart.getAddress() : "";
-            item.put("address", AttributeValue.builder().s(address).build());
+        // Carts from before reservations were recorded on them have nothing to pre-order for
+        if (cart.getReservationId() == null || cart.getReservationId().isBlank()) {
+            LOG.warn("Cart {} of customer {} has no reservation", cart.getId(), cart.getCustomerEmail());
+            throw new ConflictException("The cart is not linked to a reservation, please add its dishes from a reservation again");
+        }
 
-            LOG.info("Saving order with date: {}, timeSlot: {}, address: {}", date, timeSlot, address);
+        Order order = toOrder(UUID.randomUUID().toString(), cart);
+        LOG.info("Saving order with date: {}, timeSlot: {}, address: {}",
+                order.getDate(), order.getTimeSlot(), order.getAddress());
+
+        Map<String, AttributeValue> cartKey = new HashMap<>();
+        cartKey.put("customerEmail", AttributeValue.builder().s(cart.getCustomerEmail()).build());
+        cartKey.put("id", AttributeValue.builder().s(cart.getId()).build());
+
+        // Carts written before the version counter have none
+        Delete.Builder deleteCart = Delete.builder()
+                .tableName(cartTableName)
+                .key(cartKey);
+        if (cart.getVersion() > 0) {
+            deleteCart.conditionExpression("version = :version")
+                    .expressionAttributeValues(Map.of(
+                            ":version", AttributeValue.builder().n(String.valueOf(cart.getVersion())).build()));
+        } else {
+            deleteCart.conditionExpression("attribute_exists(id) AND attribute_not_exists(version)");
+        }
 
-            // Convert order items to AttributeValue
-            List<AttributeValue> dishItemsAttr = new ArrayList<>();
-            for (OrderItem orderItem : cart.getOrderItems()) {
-                Map<String, AttributeValue> dishItemMap = new HashMap<>();
-                dishItemMap.put("dishId", AttributeValue.builder().s(orderItem.getDishId()).build());
-                dishItemMap.put("dishName", AttributeValue.builder().s(orderItem.getDishName()).build());
-                dishItemMap.put("dishImageUrl", AttributeValue.builder().s(orderItem.getDishImageUrl()).build());
-                dishItemMap.put("dishPrice", AttributeValue.builder().s(orderItem.getDishPrice()).build());
-                dishItemMap.put("dishQuantity", AttributeValue.builder().n(String.valueOf(orderItem.getOrderQuantity())).build());
+        // Reservation pages show the pre-order from the booking record
+        Map<String, AttributeValue> preOrderValues = new HashMap<>();
+        preOrderValues.put(":orderId", AttributeValue.builder().s(order.getId()).build());
+        preOrderValues.put(":count", AttributeValue.builder().n(String.valueOf(order.getDishItems().size())).build());
+        preOrderValues.put(":customerEmail", AttributeValue.builder().s(cart.getCustomerEmail()).build());
+
+        List<TransactWriteItem> items = new ArrayList<>();
+        items.add(TransactWriteItem.builder()
+                .put(Put.builder()
+                        .tableName(ordersTableName)
+                        .item(toItem(order))
+                        .conditionExpression("attribute_not_exists(orderId)")
+                        .build())
+                .build());
+        items.add(TransactWriteItem.builder().delete(deleteCart.build()).build());
+        items.add(TransactWriteItem.builder()
+                .update(Update.builder()
+                        .tableName(reservationTableName)
+                        .key(Map.of("reservationId", AttributeValue.builder().s(order.getReservationId()).build()))
+                        .updateExpression("SET preOrderId = :orderId, preOrderCount = :count")
+                        .conditionExpression("attribute_exists(reservationId) AND customerEmail = :customerEmail")
+                        .expressionAttributeValues(preOrderValues)
+                        // Tells a missing reservation apart from another customer's
+                        .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                        .build())
+                .build());
 
-                dishItemsAttr.add(AttributeValue.builder().m(dishItemMap).build());
+        try {
+            dynamoDbClient.transactWriteItems(TransactWriteItemsRequest.builder()
+                    .transactItems(items)
+                    .build());
+            LOG.info("Created order with ID: {}", order.getId());
+            return order;
+        } catch (TransactionCanceledException e) {
+            List<CancellationReason> reasons = e.cancellationReasons();
+            LOG.warn("Order transaction cancelled for customer {}: {}", cart.getCustomerEmail(), reasons);
+            if (reasons.size() > 2 && "ConditionalCheckFailed".equals(reasons.get(2).code())) {
+                Map<String, AttributeValue> reservation = reasons.get(2).item();
+                if (reservation != null && !reservation.isEmpty()) {
+                    throw new ForbiddenException("The reservation for this cart belongs to another customer");
+                }
+                throw new ConflictException("The reservation for this cart no longer exists");
             }
-            item.put("dishItems", AttributeValue.builder().l(dishItemsAttr).build());
-
-            PutItemRequest putRequest = PutItemRequest.builder()
-                    .tableName(ordersTableName)
-                    .item(item)
-                    .build();
-
-            dynamoDbClient.putItem(putRequest);
-            return orderId;
+            throw new ConflictException("The cart was changed by another request, please try again");
         } catch (Exception e) {
             LOG.error("Error creating order for customer: {}", cart.getCustomerEmail(), e);
-            return null;
+            throw new RuntimeException("Error creating order", e);
         }
     }
 
-    public Order getOrderById(String orderId) {
-        LOG.info("Fetching order with ID: {}", orderId);
-
-        GetItemRequest getRequest = GetItemRequest.builder()
-                .tableName(ordersTableName)
-                .key(Map.of("orderId", AttributeValue.builder().s(orderId).build()))  // Use orderId as per table schema
-                .build();
-
-        try {
-            Map<String, AttributeValue> item = dynamoDbClient.getItem(getRequest).item();
-
-            if (item == null || item.isEmpty()) {
-                LOG.warn("No order found with ID: {}", orderId);
-                return null;
-            }
-
-            Order order = new Order();
-            order.setId(orderId);  // Set id (not orderId) in the response model
-            order.setCustomerEmail(item.containsKey("customerEmail") ? item.get("customerEmail").s() : "");
-            order.setDate(item.containsKey("date") ? item.get("date").s() : "");
-            order.setLocationId(item.containsKey("locationId") ? item.get("locationId").s() : "");
-            order.setReservationId(item.containsKey("reservationId") ? item.get("reservationId").s() : "");
-            order.setState(item.containsKey("state") ? item.get("state").s() : "");
-            order.setTimeSlot(item.containsKey("timeSlot") ? item.get("timeSlot").s() : "");
-            order.setAddress(item.containsKey("address") ? item.get("address").s() : "");
-
-            // Parse dish items
-            List<Order.DishItem> dishItems = new ArrayList<>();
-            if (item.containsKey("dishItems") && item.get("dishItems").l() != null) {
-                for (AttributeValue dishItemAttr : item.get("dishItems").l()) {
-                    Map<String, AttributeValue> dishItemMap = dishItemAttr.m();
-                    Order.DishItem dishItem = new Order.DishItem();
-                    dishItem.setDishId(dishItemMap.containsKey("dishId") ? dishItemMap.get("dishId").s() : "");
-                    dishItem.setDishName(dishItemMap.containsKey("dishName") ? dishItemMap.get("dishName").s() : "");
-                    dishItem.setDishImageUrl(dishItemMap.containsKey("dishImageUrl") ? dishItemMap.get("dishImageUrl").s() : "");
-                    dishItem.setDishPrice(dishItemMap.containsKey("dishPrice") ? dishItemMap.get("dishPrice").s() : "");
-
-                    if (dishItemMap.containsKey("dishQuantity")) {
-                        try {
-                            dishItem.setDishQuantity(Integer.parseInt(dishItemMap.get("dishQuantity").n()));
-                        } catch (NumberFormatException e) {
-                            LOG.error("Error parsing dish quantity", e);
-                            dishItem.setDishQuantity(1);
-                        }
-                    } else {
-                        dishItem.setDishQuantity(1);
-                    }
-
-                    dishItems.add(dishItem);
-                }
-            }
-            order.setDishItems(dishItems);
+    private Order toOrder(String orderId, Cart cart) {
+        Order order = new Order();
+        order.setId(orderId);
+        order.setCustomerEmail(cart.getCustomerEmail());
+        // Ensure no field is null
+        order.setDate(cart.getDate() != null ? cart.getDate() : "");
+        order.setLocationId(cart.getLocationId() != null ? cart.getLocationId() : "");
+        order.setReservationId(cart.getReservationId());
+        order.setState("SUBMITTED");
+        order.setTimeSlot(cart.getTimeSlot() != null ? cart.getTimeSlot() : "");
+        order.setAddress(cart.getAddress() != null ? cart.getAddress() : "");
+
+        List<Order.DishItem> dishItems = new ArrayList<>();
+        for (OrderItem orderItem : cart.getOrderItems()) {
+            Order.DishItem dishItem = new Order.DishItem();
+            dishItem.setDishId(orderItem.getDishId());
+            dishItem.setDishName(orderItem.getDishName());
+            dishItem.setDishImageUrl(orderItem.getDishImageUrl());
+            dishItem.setDishPrice(orderItem.getDishPrice());
+            dishItem.setDishQuantity(orderItem.getOrderQuantity());
+            dishItems.add(dishItem);
+        }
+        order.setDishItems(dishItems);
+        return order;
+    }
 
-            return order;
-        } catch (Exception e) {
-            LOG.error("Error fetching order with ID: {}", orderId, e);
-            return null;
+    private Map<String, AttributeValue> toItem(Order order) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("orderId", AttributeValue.builder().s(order.getId()).build());
+        item.put("customerEmail", AttributeValue.builder().s(order.getCustomerEmail()).build());
+        item.put("date", AttributeValue.builder().s(order.getDate()).build());
+        item.put("locationId", AttributeValue.builder().s(order.getLocationId()).build());
+        item.put("reservationId", AttributeValue.builder().s(order.getReservationId()).build());
+        item.put("state", AttributeValue.builder().s(order.getState()).build());
+        item.put("timeSlot", AttributeValue.builder().s(order.getTimeSlot()).build());
+        item.put("address", AttributeValue.builder().s(order.getAddress()).build());
+
+        // Convert order items to AttributeValue
+        List<AttributeValue> dishItemsAttr = new ArrayList<>();
+        for (Order.DishItem dishItem : order.getDishItems()) {
+            Map<String, AttributeValue> dishItemMap = new HashMap<>();
+            dishItemMap.put("dishId", AttributeValue.builder().s(dishItem.getDishId()).build());
+            dishItemMap.put("dishName", AttributeValue.builder().s(dishItem.getDishName()).build());
+            dishItemMap.put("dishImageUrl", AttributeValue.builder().s(dishItem.getDishImageUrl()).build());
+            dishItemMap.put("dishPrice", AttributeValue.builder().s(dishItem.getDishPrice()).build());
+            dishItemMap.put("dishQuantity", AttributeValue.builder().n(String.valueOf(dishItem.getDishQuantity())).build());
+
+            dishItemsAttr.add(AttributeValue.builder().m(dishItemMap).build());
         }
+        item.put("dishItems", AttributeValue.builder().l(dishItemsAttr).build());
+        return item;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package com.restaurantapp.Repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts a DynamoDB LastEvaluatedKey to an opaque cursor string and back.
+ * Only string and number key attributes are supported, which covers every
+ * table and index key used by the repositories.
+ */
+public final class PageCursor {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private PageCursor() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Encode a LastEvaluatedKey as a cursor
+     * @param lastEvaluatedKey The key returned by a query, may be null or empty
+     * @return The cursor, or null if there are no more pages
+     */
+    public static String encode(Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> values = new HashMap<>();
+        for (Map.Entry<String, AttributeValue> entry : lastEvaluatedKey.entrySet()) {
+            AttributeValue value = entry.getValue();
+            values.put(entry.getKey(), value.n() != null ? "N:" + value.n() : "S:" + value.s());
+        }
+
+        try {
+            byte[] json = OBJECT_MAPPER.writeValueAsBytes(values);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new RuntimeException("Error encoding page cursor", e);
+        }
+    }
+
+    /**
+     * Decode a cursor back into an ExclusiveStartKey
+     * @param cursor The cursor from a previous page, may be null or empty
+     * @return The start key, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static Map<String, AttributeValue> decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            Map<String, String> values = OBJECT_MAPPER.readValue(json, new TypeReference<Map<String, String>>() {});
+
+            Map<String, AttributeValue> key = new HashMap<>();
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                String value = entry.getValue();
+                if (value.startsWith("N:")) {
+                    key.put(entry.getKey(), AttributeValue.builder().n(value.substring(2)).build());
+                } else if (value.startsWith("S:")) {
+                    key.put(entry.getKey(), AttributeValue.builder().s(value.substring(2)).build());
+                } else {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+            }
+            return key;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
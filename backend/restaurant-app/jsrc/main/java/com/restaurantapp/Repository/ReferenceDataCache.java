@@ -0,0 +1,241 @@
+package com.restaurantapp.Repository;
+
+import com.restaurantapp.Model.Location;
+import com.restaurantapp.Model.LocationLayout;
+import com.restaurantapp.Model.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locations and their layouts (tables, capacities, waiter roster and address) kept in
+ * memory for the life of a warm container. They change only when an admin edits them, but
+ * are read on almost every booking and availability request.
+ *
+ * Every entry expires after TTL_MILLIS. In addition, the "reference-data" version stamp
+ * is read at most once per VERSION_CHECK_INTERVAL_MILLIS; when admin tooling bumps it
+ * after an edit, every container drops its cache on the next check.
+ *
+ * Reads from DynamoDB happen outside the lock, so a slow location does not hold up cached
+ * reads of the others; a load that overlaps an invalidation is returned but not kept.
+ */
+@Singleton
+public class ReferenceDataCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private static final long TTL_MILLIS = 10 * 60 * 1000L;
+    private static final long VERSION_CHECK_INTERVAL_MILLIS = 30 * 1000L;
+
+    // Upper bound on the number of locations whose layout is held in memory
+    private static final int MAX_LAYOUTS = 100;
+
+    private static final String VERSION_NAME = "reference-data";
+
+    private final RestaurantLocationRepository restaurantLocationRepository;
+    private final TableRepository tableRepository;
+    private final WaiterRepository waiterRepository;
+    private final VersionStamp versionStamp;
+
+    private Entry<Map<String, Location>> locations;
+    private long locationsGeneration;
+    // Incremented whenever entries are dropped, so loads that started before are not kept
+    private long invalidations;
+    private final Map<String, Entry<LocationLayout>> layouts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry<LocationLayout>> eldest) {
+            return size() > MAX_LAYOUTS;
+        }
+    };
+
+    private static final class Entry<T> {
+        private final T value;
+        private final long loadedAt;
+
+        private Entry(T value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - loadedAt > TTL_MILLIS;
+        }
+    }
+
+    @Inject
+    public ReferenceDataCache(RestaurantLocationRepository restaurantLocationRepository,
+                              TableRepository tableRepository,
+                              WaiterRepository waiterRepository,
+                              DynamoDbClient dynamoDbClient) {
+        this.restaurantLocationRepository = restaurantLocationRepository;
+        this.tableRepository = tableRepository;
+        this.waiterRepository = waiterRepository;
+        this.versionStamp = new VersionStamp(dynamoDbClient, VERSION_NAME, VERSION_CHECK_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Get all locations
+     * @return The locations in table scan order
+     */
+    public List<Location> getLocations() {
+        return Collections.unmodifiableList(new ArrayList<>(locationsById().values()));
+    }
+
+    /**
+     * Get one location
+     * @param locationId The location ID
+     * @return The location, or null if it does not exist
+     */
+    public Location getLocation(String locationId) {
+        return locationId == null ? null : locationsById().get(locationId);
+    }
+
+    /**
+     * Get the address of a location
+     * @param locationId The location ID
+     * @return The address, or null if the location or its address does not exist
+     */
+    public String getLocationAddress(String locationId) {
+        Location location = getLocation(locationId);
+        return location != null ? location.getLocationAddress() : null;
+    }
+
+    /**
+     * Get an identifier of the location list currently held; it changes whenever the list
+     * is reloaded, so anything derived from locations can be cached against it
+     * @return The location list version
+     */
+    public String getLocationsVersion() {
+        locationsById();
+        synchronized (this) {
+            return Long.toString(locationsGeneration);
+        }
+    }
+
+    /**
+     * Get the layout of a location. A cold load costs the table query and the waiter
+     * roster query; the address comes from the cached location list. Layouts of locations
+     * that do not exist are not cached, so unknown IDs cannot push real layouts out.
+     * @param locationId The location ID
+     * @return The layout; its address is null if the location does not exist
+     */
+    public LocationLayout getLayout(String locationId) {
+        long now = System.currentTimeMillis();
+        checkVersion(now);
+
+        long seenInvalidations;
+        synchronized (this) {
+            Entry<LocationLayout> entry = layouts.get(locationId);
+            if (entry != null && !entry.isExpired(now)) {
+                return entry.value;
+            }
+            seenInvalidations = invalidations;
+        }
+
+        LOG.info("Loading layout for location {}", locationId);
+        Location location = locationsById().get(locationId);
+        LocationLayout layout = new LocationLayout(
+                locationId,
+                location != null ? location.getLocationAddress() : null,
+                tableRepository.findByLocationId(locationId),
+                waiterRepository.findEmailsByLocation(locationId));
+
+        if (location != null) {
+            synchronized (this) {
+                if (seenInvalidations == invalidations) {
+                    layouts.put(locationId, new Entry<>(layout, now));
+                }
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Get the tables of a location
+     * @param locationId The location ID
+     * @return The tables, empty if the location has none
+     */
+    public List<Table> getTables(String locationId) {
+        return getLayout(locationId).getTables();
+    }
+
+    /**
+     * Get a table by its number within a location
+     * @param locationId The location ID
+     * @param tableNumber The table number
+     * @return The table, or null if the location has no such table
+     */
+    public Table getTable(String locationId, String tableNumber) {
+        if (locationId == null || tableNumber == null) {
+            return null;
+        }
+        return getLayout(locationId).getTable(tableNumber);
+    }
+
+    /**
+     * Drop the cached layout of a location after its waiter roster changed, and bump the
+     * version stamp so every other container drops its layouts too
+     * @param locationId The location ID, or null to drop every layout
+     */
+    public void rosterChanged(String locationId) {
+        synchronized (this) {
+            if (locationId == null) {
+                layouts.clear();
+            } else {
+                layouts.remove(locationId);
+            }
+            invalidations++;
+        }
+        versionStamp.bump();
+    }
+
+    /**
+     * Drop everything held by this container
+     */
+    public synchronized void invalidate() {
+        locations = null;
+        layouts.clear();
+        invalidations++;
+    }
+
+    private Map<String, Location> locationsById() {
+        long now = System.currentTimeMillis();
+        checkVersion(now);
+
+        long seenInvalidations;
+        synchronized (this) {
+            if (locations != null && !locations.isExpired(now)) {
+                return locations.value;
+            }
+            seenInvalidations = invalidations;
+        }
+
+        LOG.info("Loading locations into reference data cache");
+        Map<String, Location> byId = new LinkedHashMap<>();
+        for (Location location : restaurantLocationRepository.findAll()) {
+            byId.put(location.getLocationId(), location);
+        }
+
+        synchronized (this) {
+            if (seenInvalidations == invalidations) {
+                locations = new Entry<>(byId, now);
+                locationsGeneration++;
+            }
+        }
+        return byId;
+    }
+
+    private void checkVersion(long now) {
+        if (versionStamp.hasChanged(now)) {
+            LOG.info("Reference data changed, clearing cache");
+            invalidate();
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.restaurantapp.Repository;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
@@ -16,11 +15,17 @@ public class ReservationDeletionRepository {
     private final DynamoDbClient dynamoDbClient;
     private final String bookingTableName = System.getenv("booking_table");
 
+    private static final String CHANGED_MESSAGE = "The reservation was changed by another request, please try again";
+
+    private final SlotClaimRepository slotClaimRepository;
+    private final WaiterLoadRepository waiterLoadRepository;
+
     @Inject
-    public ReservationDeletionRepository() {
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1)
-                .build();
+    public ReservationDeletionRepository(DynamoDbClient dynamoDbClient, SlotClaimRepository slotClaimRepository,
+                                         WaiterLoadRepository waiterLoadRepository) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.slotClaimRepository = slotClaimRepository;
+        this.waiterLoadRepository = waiterLoadRepository;
     }
 
     /**
@@ -56,42 +61,57 @@ public class ReservationDeletionRepository {
     }
 
     /**
-     * Update the status of a reservation to Cancelled
-     * @param reservationId The reservation ID
-     * @return true if the update was successful, false otherwise
+     * Cancel a reservation. The status change, the release of its table slot claim and the
+     * decrement of its waiter's counters are written in one transaction, conditioned on the
+     * status still being the one that was read.
+     * @param reservation The reservation as read by getReservationById
+     * @param context The new status
+     * @return true if the update was successful
+     * @throws com.restaurantapp.Exception.ConflictException if the reservation changed since it was read
      */
-    public boolean cancelReservation(String reservationId,String context) {
-        try {
-            LOG.info("Cancelling reservation with ID: {}", reservationId);
-
-            Map<String, AttributeValue> key = new HashMap<>();
-            key.put("reservationId", AttributeValue.builder().s(reservationId).build());
-
-            LOG.info("pUT IN THE MAP");
-
-            Map<String, AttributeValueUpdate> updates = new HashMap<>();
-            updates.put("status", AttributeValueUpdate.builder()
-                    .value(AttributeValue.builder().s(context).build())
-                    .action(AttributeAction.PUT)
-                    .build());
-
-            LOG.info("STATUS PUT IN MAP {}", updates);
-
-
-
-            UpdateItemRequest request = UpdateItemRequest.builder()
-                    .tableName(bookingTableName)
-                    .key(key)
-                    .attributeUpdates(updates)
-                    .build();
+    public boolean cancelReservation(Map<String, AttributeValue> reservation, String context) {
+        String reservationId = reservation.get("reservationId").s();
+        LOG.info("Cancelling reservation with ID: {}", reservationId);
+
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("reservationId", AttributeValue.builder().s(reservationId).build());
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":status", AttributeValue.builder().s(context).build());
+        expressionAttributeValues.put(":current", reservation.get("status"));
+
+        BookingTransaction transaction = new BookingTransaction().require(TransactWriteItem.builder()
+                .update(Update.builder()
+                        .tableName(bookingTableName)
+                        .key(key)
+                        .updateExpression("SET #status = :status")
+                        .conditionExpression("#status = :current")
+                        .expressionAttributeNames(Map.of("#status", "status"))
+                        .expressionAttributeValues(expressionAttributeValues)
+                        .build())
+                .build(), CHANGED_MESSAGE);
+
+        String locationId = stringOrNull(reservation, "locationId");
+        String tableId = stringOrNull(reservation, "tableId");
+        String waiterEmail = stringOrNull(reservation, "waiterEmail");
+        String date = reservation.get("date").s();
+        String slotId = reservation.get("slotId").s();
+
+        // Free the table slot so it can be booked again, and the waiter no longer serves it
+        if (locationId != null && tableId != null) {
+            transaction.cleanup(slotClaimRepository.releaseWrite(locationId, tableId, date, slotId, reservationId));
+        }
+        if (locationId != null && waiterEmail != null) {
+            transaction.cleanup(waiterLoadRepository.decrementWrite(locationId, date, slotId, waiterEmail));
+        }
 
-            dynamoDbClient.updateItem(request);
+        transaction.commit(dynamoDbClient);
+        LOG.info("Successfully cancelled reservation: {}", reservationId);
+        return true;
+    }
 
-            LOG.info("Successfully cancelled reservation: {}", reservationId);
-            return true;
-        } catch (Exception e) {
-            LOG.error("Error cancelling reservation: {}", e.getMessage(), e);
-            throw new RuntimeException("Error cancelling reservation", e);
-        }
+    private static String stringOrNull(Map<String, AttributeValue> item, String attribute) {
+        AttributeValue value = item.get(attribute);
+        return value == null ? null : value.s();
     }
-}
\ No newline at end of file
+}
@@ -6,14 +6,15 @@ import com.restaurantapp.Model.ReservationGet;
 import com.restaurantapp.Model.Slot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -22,11 +23,14 @@ public class ReservationGetRepository
 {
     private static final Logger LOG = LoggerFactory.getLogger(ReservationGetRepository.class);
 
+    // Booking table index: partition key waiterEmail, sort key date
+    private static final String WAITER_EMAIL_INDEX = "waiterEmail-date-index";
+
     private final DynamoDbClient dynamoDbClient;
+    private final ReferenceDataCache referenceDataCache;
     private final String reservationTableName;
     private final String locationTableName;
     private final String waiterTable = System.getenv("waiter_table");
-    private final String orderTable=System.getenv("order_table");
     private final String userTable=System.getenv("user_table");
 
 
@@ -34,11 +38,10 @@ public class ReservationGetRepository
     private final Map<String, Slot> slotMap;
 
     @Inject
-    public ReservationGetRepository()
+    public ReservationGetRepository(DynamoDbClient dynamoDbClient, ReferenceDataCache referenceDataCache)
     {
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1)
-                .build();
+        this.dynamoDbClient = dynamoDbClient;
+        this.referenceDataCache = referenceDataCache;
 
         this.reservationTableName = System.getenv("booking_table");
         this.locationTableName = System.getenv("location_table");
@@ -87,39 +90,45 @@ public class ReservationGetRepository
         map.put(slotId, slot);
     }
 
-    public String findUserNameFromEmail(String customerEmail) {
-        Map<String,AttributeValue> expressionAttributeValues =new HashMap<>();
-        expressionAttributeValues.put(":email", AttributeValue.builder().s(customerEmail).build());
-        Map<String,String> expressionAttributeNames =new HashMap<>();
-        expressionAttributeNames.put("#email","email");
-
-        ScanRequest scanRequest=ScanRequest.builder()
-                .tableName(userTable)
-                .filterExpression("#email = :email")
-                .expressionAttributeValues(expressionAttributeValues)
-                .expressionAttributeNames(expressionAttributeNames)
-                .build();
-        ScanResponse scanResponse=dynamoDbClient.scan(scanRequest);
-        if(scanResponse.items().isEmpty() || scanResponse.items()==null){
-            return "User not found";
-        }
-        Map<String, AttributeValue> userItem=scanResponse.items().get(0);
-        if(!userItem.containsKey("firstName")){
-            throw new RuntimeException("User data is incomplete: first name not found");
-        }
-        String lastName="";
-        if(userItem.containsKey("lastName")){
-            lastName=userItem.get("lastName").s();
+    /**
+     * Find the display names of users with one batched read of the user table.
+     *
+     * @param emails The users' emails
+     * @return "firstName lastName" by email; users that do not exist or have no first name are left out
+     */
+    public Map<String, String> findUserNamesByEmail(Collection<String> emails) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (String email : new LinkedHashSet<>(emails)) {
+            keys.add(Map.of("email", AttributeValue.builder().s(email).build()));
         }
-        String firstName=userItem.get("firstName").s();
 
-        return firstName+" "+lastName;
+        Map<String, String> names = new HashMap<>();
+        for (Map<String, AttributeValue> item : BatchReads.getItems(dynamoDbClient, userTable, keys,
+                "#email, firstName, lastName", Map.of("#email", "email"))) {
+            if (!item.containsKey("firstName")) {
+                LOG.warn("User data is incomplete: first name not found for {}", item.get("email").s());
+                continue;
+            }
+            String lastName = item.containsKey("lastName") ? item.get("lastName").s() : "";
+            names.put(item.get("email").s(), item.get("firstName").s() + " " + lastName);
+        }
+        return names;
     }
-    public List<ReservationGet> findReservationsByEmail(String email)
+    /**
+     * Find a waiter's reservations using the waiter email index. The key condition limits
+     * the read to the waiter's bookings in the date range, and the paginator follows
+     * LastEvaluatedKey so no page is dropped.
+     *
+     * @param waiterEmail The waiter's email
+     * @param dateFrom First date to include (yyyy-MM-dd), or null for no lower bound
+     * @param dateTo Last date to include (yyyy-MM-dd), or null for no upper bound
+     * @param slotId Time slot to include, or null for every slot
+     * @return The waiter's reservations ordered by date
+     */
+    public List<ReservationGet> findReservationsByWaiter(String waiterEmail, String dateFrom, String dateTo, String slotId)
     {
         try {
-            LOG.info("Finding reservations for email: {}", email);
-            LOG.debug("Using reservation table: {}", reservationTableName);
+            LOG.info("Finding reservations for waiter: {} from {} to {} in slot {}", waiterEmail, dateFrom, dateTo, slotId);
 
             // Check if table name is available
             if (reservationTableName == null || reservationTableName.isEmpty()) {
@@ -127,44 +136,58 @@ public class ReservationGetRepository
                 throw new RuntimeException("Reservation table name is not configured");
             }
 
-            List<ReservationGet> reservations = new ArrayList<>();
+            Map<String, String> expressionAttributeNames = new HashMap<>();
+            expressionAttributeNames.put("#waiterEmail", "waiterEmail");
 
+            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+            expressionAttributeValues.put(":waiterEmail", AttributeValue.builder().s(waiterEmail).build());
 
-            try {
-                Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-                expressionAttributeValues.put(":email", AttributeValue.builder().s(email).build());
+            String keyCondition = "#waiterEmail = :waiterEmail";
+            if (dateFrom != null || dateTo != null) {
+                expressionAttributeNames.put("#date", "date");
+            }
+            if (dateFrom != null && dateTo != null) {
+                expressionAttributeValues.put(":dateFrom", AttributeValue.builder().s(dateFrom).build());
+                expressionAttributeValues.put(":dateTo", AttributeValue.builder().s(dateTo).build());
+                keyCondition += " AND #date BETWEEN :dateFrom AND :dateTo";
+            } else if (dateFrom != null) {
+                expressionAttributeValues.put(":dateFrom", AttributeValue.builder().s(dateFrom).build());
+                keyCondition += " AND #date >= :dateFrom";
+            } else if (dateTo != null) {
+                expressionAttributeValues.put(":dateTo", AttributeValue.builder().s(dateTo).build());
+                keyCondition += " AND #date <= :dateTo";
+            }
 
-                ScanRequest scanRequest = ScanRequest.builder()
-                        .tableName(reservationTableName)
-                        .filterExpression("waiterEmail = :email")
-                        .expressionAttributeValues(expressionAttributeValues)
-                        .build();
+            QueryRequest.Builder queryBuilder = QueryRequest.builder()
+                    .tableName(reservationTableName)
+                    .indexName(WAITER_EMAIL_INDEX)
+                    .keyConditionExpression(keyCondition);
 
-                ScanResponse response = dynamoDbClient.scan(scanRequest);
+            if (slotId != null) {
+                expressionAttributeValues.put(":slotId", AttributeValue.builder().s(slotId).build());
+                queryBuilder.filterExpression("slotId = :slotId");
+            }
 
-                for (Map<String, AttributeValue> item : response.items()) {
-                    try {
-                        LOG.info(item.toString(), "bdkajsbd");
-                        ReservationGet reservation = mapToReservation(item);
-                        reservations.add(reservation);
-                    } catch (Exception e) {
-                        LOG.error("Error mapping item to reservation: {}", e.getMessage());
-                        LOG.error("Problematic item: {}", item);
-                    }
-                }
+            QueryRequest queryRequest = queryBuilder
+                    .expressionAttributeNames(expressionAttributeNames)
+                    .expressionAttributeValues(expressionAttributeValues)
+                    .build();
 
-                LOG.info("Found {} reservations with CustomerEmail", reservations.size());
-            }
-            catch (Exception e)
-            {
-                LOG.warn("Error scanning with CustomerEmail: {}", e.getMessage());
+            List<ReservationGet> reservations = new ArrayList<>();
+            for (Map<String, AttributeValue> item : dynamoDbClient.queryPaginator(queryRequest).items()) {
+                try {
+                    reservations.add(mapToReservation(item));
+                } catch (Exception e) {
+                    LOG.error("Error mapping item to reservation: {}", e.getMessage());
+                    LOG.error("Problematic item: {}", item);
+                }
             }
 
-            LOG.info("Found {} total reservations for email: {}", reservations.size(), email);
+            LOG.info("Found {} total reservations for waiter: {}", reservations.size(), waiterEmail);
             return reservations;
         } catch (Exception e) {
-            LOG.error("Error finding reservations by email: {}", e.getMessage(), e);
-            throw new RuntimeException("Error finding reservations by email: " + e.getMessage(), e);
+            LOG.error("Error finding reservations by waiter: {}", e.getMessage(), e);
+            throw new RuntimeException("Error finding reservations by waiter: " + e.getMessage(), e);
         }
     }
 
@@ -173,49 +196,25 @@ public class ReservationGetRepository
         try {
             LOG.info("Getting location by ID: {}", locationId);
 
-            if (locationTableName == null || locationTableName.isEmpty()) {
-                LOG.error("Location table name is null or empty");
-                return null;
-            }
-
-            // Create key condition
-            Map<String, AttributeValue> key = new HashMap<>();
-            key.put("id", AttributeValue.builder().s(locationId).build());
-            LOG.info("Nab=ndini");
-            // Create request
-            GetItemRequest request = GetItemRequest.builder()
-                    .tableName(locationTableName)
-                    .key(key)
-                    .build();
-
-            LOG.info("Nandini");
-            // Execute request
-            GetItemResponse response = dynamoDbClient.getItem(request);
-            LOG.info("sharda");
-            // If location not found
-            if (response.item().isEmpty()) {
+            Location cached = referenceDataCache.getLocation(locationId);
+            if (cached == null) {
                 LOG.warn("Location not found: {}", locationId);
                 return null;
             }
 
-            // Map DynamoDB item to Location object
-            Map<String, AttributeValue> item = response.item();
+            // Copy only the fields callers use so the cached instance is never modified
             Location location = new Location();
-            location.setLocationId(item.get("id").s());
+            location.setLocationId(cached.getLocationId());
 
             // Handle potential missing address
-            if (item.containsKey("address")) {
-                LOG.info("cc", item.get("address").s());
-                location.setLocationAddress(item.get("address").s());
+            if (cached.getLocationAddress() != null) {
+                location.setLocationAddress(cached.getLocationAddress());
             } else {
                 location.setLocationAddress("Address not available");
             }
 
             LOG.info("Found location: {}", location.getLocationId());
             return location;
-        } catch (ResourceNotFoundException e) {
-            LOG.error("Location table '{}' does not exist", locationTableName, e);
-            return null;
         } catch (Exception e) {
             LOG.error("Error getting location by ID: {}", locationId, e);
             return null; // Return null instead of throwing exception to make code more resilient
@@ -245,32 +244,6 @@ public class ReservationGetRepository
         return slot;
     }
 
-    public String findNumberOfDishesOfOrder(String customerEmail) {
-//        String orderId=findOrderId(reservationId);
-//        String orderId="1";
-        Map<String,AttributeValue> expressionAttributeValues =new HashMap<>();
-        expressionAttributeValues.put(":customerEmail", AttributeValue.builder().s(customerEmail).build());
-        Map<String, String> expressionAttributeNames = new HashMap<>();
-        expressionAttributeNames.put("#email", "customerEmail");
-//        log.info("order table is {}",orderTable);
-        ScanRequest scanRequest=ScanRequest.builder()
-                .tableName(orderTable)
-                .filterExpression("#email = :customerEmail")
-                .expressionAttributeNames(expressionAttributeNames)
-                .expressionAttributeValues(expressionAttributeValues)
-                .build();
-        ScanResponse scanResponse=dynamoDbClient.scan(scanRequest);
-        if(scanResponse.items()==null || scanResponse.items().isEmpty()){
-            return "No orders found";
-        }
-        Map<String, AttributeValue> item=scanResponse.items().get(0);
-        if (!item.containsKey("dishItems")) {
-//            log.warn("list of dishes not found: {}", customerEmail);
-            throw new RuntimeException("Reservation data incomplete:  not found");
-        }
-        List<AttributeValue> dishesOfOrderId=item.get("dishItems").l();
-        return String.valueOf(dishesOfOrderId.size());
-    }
     private ReservationGet mapToReservation(Map<String, AttributeValue> item)
     {
         ReservationGet reservation = new ReservationGet();
@@ -312,6 +285,18 @@ public class ReservationGetRepository
                 reservation.setDate(item.get("date").s());
             }
 
+            // Stored on the booking since it was made; older bookings fall back to the cached location
+            if (item.containsKey("locationAddress")) {
+                reservation.setLocationAddress(item.get("locationAddress").s());
+            } else if (item.containsKey("locationId")) {
+                reservation.setLocationAddress(getLocationAddress(item.get("locationId").s()));
+            }
+
+            // Recorded on the booking when its pre-order is submitted
+            if (item.containsKey("preOrderCount")) {
+                reservation.setPreOrder(item.get("preOrderCount").n());
+            }
+
             if (item.containsKey("numberOfGuests"))
             {
                 AttributeValue guestsValue = item.get("numberOfGuests");
@@ -331,57 +316,31 @@ public class ReservationGetRepository
         return reservation;
     }
     public String findLocationIdFromWaiterTable(String waiterEmail){
-        Map<String, String> expressionAttributeNames = new HashMap<>();
-        expressionAttributeNames.put("#email", "email");
-
-        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-        expressionAttributeValues.put(":email", AttributeValue.builder().s(waiterEmail).build());
-
-        // Create a scan request to find the waiter by email
-        ScanRequest scanRequest = ScanRequest.builder()
+        GetItemRequest getItemRequest = GetItemRequest.builder()
                 .tableName(waiterTable)
-                .filterExpression("#email = :email")
-                .expressionAttributeNames(expressionAttributeNames)
-                .expressionAttributeValues(expressionAttributeValues)
+                .key(Map.of("email", AttributeValue.builder().s(waiterEmail).build()))
+                .projectionExpression("locationId")
                 .build();
 
-        // Execute the scan
-        ScanResponse response = dynamoDbClient.scan(scanRequest);
+        GetItemResponse response = dynamoDbClient.getItem(getItemRequest);
 
         // Check if the waiter was found
-        if (response.items() == null || response.items().isEmpty()) {
+        if (!response.hasItem() || response.item().isEmpty()) {
             throw new RuntimeException("Waiter not found with email: " + waiterEmail);
         }
 
-        // Get the first (and should be only) item from the result
-        Map<String, AttributeValue> waiterItem = response.items().get(0);
-
         // Check if the waiter has a location assigned
-        if (!waiterItem.containsKey("locationId")) {
+        if (!response.item().containsKey("locationId")) {
             throw new RuntimeException("Waiter has no location assigned: " + waiterEmail);
         }
 
-        // Return the location ID
-        return waiterItem.get("locationId").s();
+        return response.item().get("locationId").s();
     }
 
     public String getLocationAddress(String locationId) {
         try {
-            Map<String, AttributeValue> key = new HashMap<>();
-//            log.info("loc id {}",locationId);
-            key.put("locationId", AttributeValue.builder().s(locationId).build());
-            GetItemRequest request = GetItemRequest.builder()
-                    .tableName(locationTableName)
-                    .key(key)
-                    .build();
-
-            GetItemResponse response = dynamoDbClient.getItem(request);
-
-            if (response.item().isEmpty()) {
-                return "Unknown Location";
-            }
-
-            return response.item().get("address").s();
+            String address = referenceDataCache.getLocationAddress(locationId);
+            return address != null ? address : "Unknown Location";
         } catch (Exception e) {
 //            log.error("Error getting location address: {}", e.getMessage());
             return "Unknown Location";
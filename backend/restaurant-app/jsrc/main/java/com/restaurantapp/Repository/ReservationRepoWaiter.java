@@ -3,60 +3,71 @@ package com.restaurantapp.Repository;
 import com.restaurantapp.Controller.ReservationWaiterController;
 import com.restaurantapp.Model.Booking;
 import com.restaurantapp.Model.BookingWaiter;
+import com.restaurantapp.Model.Table;
+import dagger.Lazy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import javax.inject.Inject;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class ReservationRepoWaiter {
     private final DynamoDbClient dynamoDbClient;
+    private final Lazy<DynamoDbAsyncClient> dynamoDbAsyncClient;
     private final String bookingTable = System.getenv("booking_table");
     private final String waiterTable = System.getenv("waiter_table");
-    private final String locationTableName = System.getenv("location_table");
     private final String userTable=System.getenv("user_table");
     private final String orderTable=System.getenv("order_table");
-    private final String diningTableName=System.getenv("tables_table_name");
     private static final Logger log = LoggerFactory.getLogger(ReservationWaiterController.class);
 //environment variable -> properties file, Configuration files application.properties, application.yaml,yml
+    private final ReferenceDataCache referenceDataCache;
+    private final SlotClaimRepository slotClaimRepository;
+    private final WaiterLoadRepository waiterLoadRepository;
+    private static final String CHANGED_MESSAGE = "The reservation was changed by another request, please try again";
     @Inject
-    public ReservationRepoWaiter() {
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1)
-                .build();
+    public ReservationRepoWaiter(DynamoDbClient dynamoDbClient, Lazy<DynamoDbAsyncClient> dynamoDbAsyncClient,
+                                 ReferenceDataCache referenceDataCache, SlotClaimRepository slotClaimRepository,
+                                 WaiterLoadRepository waiterLoadRepository) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+        this.referenceDataCache = referenceDataCache;
+        this.slotClaimRepository = slotClaimRepository;
+        this.waiterLoadRepository = waiterLoadRepository;
     }
     public String findLocationIdFromWaiterTable(String waiterEmail){
-        Map<String, String> expressionAttributeNames = new HashMap<>();
-        expressionAttributeNames.put("#email", "email");
-
-        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-        expressionAttributeValues.put(":email", AttributeValue.builder().s(waiterEmail).build());
+        return AsyncCalls.join(findLocationIdFromWaiterTableAsync(waiterEmail));
+    }
 
-        // Create a scan request to find the waiter by email
-        ScanRequest scanRequest = ScanRequest.builder()
+    /**
+     * Look up the location a waiter is assigned to, without blocking
+     * @param waiterEmail The waiter's email
+     * @return The location ID; fails with IllegalArgumentException if the email is not a waiter's
+     */
+    public CompletableFuture<String> findLocationIdFromWaiterTableAsync(String waiterEmail){
+        // The waiter table is keyed by email
+        GetItemRequest getItemRequest = GetItemRequest.builder()
                 .tableName(waiterTable)
-                .filterExpression("#email = :email")
-                .expressionAttributeNames(expressionAttributeNames)
-                .expressionAttributeValues(expressionAttributeValues)
+                .key(Map.of("email", AttributeValue.builder().s(waiterEmail).build()))
+                .projectionExpression("locationId")
                 .build();
 
-        // Execute the scan
-        ScanResponse response = dynamoDbClient.scan(scanRequest);
+        return AsyncCalls.withTimeout(dynamoDbAsyncClient.get().getItem(getItemRequest))
+                .thenApply(response -> toLocationId(response, waiterEmail));
+    }
 
+    private static String toLocationId(GetItemResponse response, String waiterEmail) {
         // Check if the waiter was found
-        if (response.items() == null || response.items().isEmpty()) {
+        if (!response.hasItem() || response.item().isEmpty()) {
             throw new IllegalArgumentException("Forbidden: Only waiters are authorized to create bookings using this API.");
         }
 
-        // Get the first (and should be only) item from the result
-        Map<String, AttributeValue> waiterItem = response.items().get(0);
-
         // Check if the waiter has a location assigned
+        Map<String, AttributeValue> waiterItem = response.item();
         if (!waiterItem.containsKey("locationId")) {
             throw new RuntimeException("Waiter has no location assigned: " + waiterEmail);
         }
@@ -66,130 +77,91 @@ public class ReservationRepoWaiter {
     }
 
     public String getTableId(String locationId, String tableNumber) {
-        try {
-            log.info("Getting table ID for table {} at location {}", tableNumber, locationId);
-
-            // Create expression attribute values
-            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-            expressionAttributeValues.put(":locationId", AttributeValue.builder().s(locationId).build());
-            expressionAttributeValues.put(":tableNumber", AttributeValue.builder().s(tableNumber).build());
-
-            // Create scan request with filter
-            ScanRequest scanRequest = ScanRequest.builder()
-                    .tableName(diningTableName)
-                    .filterExpression("locationId = :locationId AND tableNumber = :tableNumber")
-                    .expressionAttributeValues(expressionAttributeValues)
-                    .build();
-
-            ScanResponse response = dynamoDbClient.scan(scanRequest);
-
-            if (response.items().isEmpty()) {
-                log.warn("Table {} not found at location {}", tableNumber, locationId);
-                return null;
-            }
-
-            // Get the table ID from the first (and should be only) item
-            Map<String, AttributeValue> item = response.items().get(0);
-            if (!item.containsKey("tableId")) {
-                log.warn("Table ID not found for table {} at location {}", tableNumber, locationId);
-                return null;
-            }
-
-            String tableId = item.get("tableId").s();
-            log.info("Table {} at location {} has ID {}", tableNumber, locationId, tableId);
-            return tableId;
-        } catch (Exception e) {
-            log.error("Error getting table ID: {}", e.getMessage(), e);
-            throw new RuntimeException("Error getting table ID", e);
+        Table table = referenceDataCache.getTable(locationId, tableNumber);
+        if (table == null) {
+            log.warn("Table {} not found at location {}", tableNumber, locationId);
+            return null;
         }
-    }
-    public boolean isTableAlreadyBooked(String locationId, String tableId, String date, String slotId) {
-        try {
-            log.info("Checking if table {} at location {} is already booked for date {} and slot {}",
-                    tableId, locationId, date, slotId);
-
-            // Create expression attribute values
-            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-            expressionAttributeValues.put(":locationId", AttributeValue.builder().s(locationId).build());
-            expressionAttributeValues.put(":tableId", AttributeValue.builder().s(tableId).build());
-            expressionAttributeValues.put(":date", AttributeValue.builder().s(date).build());
-            expressionAttributeValues.put(":slotId", AttributeValue.builder().s(slotId).build());
-            expressionAttributeValues.put(":status", AttributeValue.builder().s("Reserved").build());
-
-            // Create expression attribute names for reserved keywords
-            Map<String, String> expressionAttributeNames = new HashMap<>();
-            expressionAttributeNames.put("#date", "date");  // Use #date to refer to the reserved keyword 'date'
-            expressionAttributeNames.put("#status", "status");  // Also use for status just to be safe
-
-            // Create scan request with filter and expression attribute names
-            ScanRequest scanRequest = ScanRequest.builder()
-                    .tableName(bookingTable)
-                    .filterExpression("locationId = :locationId AND tableId = :tableId AND #date = :date AND slotId = :slotId AND #status = :status")
-                    .expressionAttributeValues(expressionAttributeValues)
-                    .expressionAttributeNames(expressionAttributeNames)
-                    .build();
-
-            ScanResponse response = dynamoDbClient.scan(scanRequest);
 
-            boolean isBooked = !response.items().isEmpty();
-            log.info("Table {} at location {} for date {} and slot {} is already booked: {}",
-                    tableId, locationId, date, slotId, isBooked);
-
-            return isBooked;
-        } catch (Exception e) {
-            log.error("Error checking if table is already booked: {}", e.getMessage(), e);
-            throw new RuntimeException("Error checking booking availability", e);
-        }
+        log.info("Table {} at location {} has ID {}", tableNumber, locationId, table.getId());
+        return table.getId();
     }
+    /**
+     * Create a waiter's booking. The booking item, the claim on its table slot and the
+     * waiter's counters are written in one transaction; the waiter's table limit is not
+     * checked since they serve the table they booked.
+     * @param booking The booking
+     * @return The booking
+     * @throws com.restaurantapp.Exception.ConflictException if the table slot is already taken
+     */
     public BookingWaiter createBooking(BookingWaiter booking) {
-        try {
-            // Create item attributes
-            Map<String, AttributeValue> item = new HashMap<>();
-            item.put("reservationId", AttributeValue.builder().s(booking.getReservationId()).build());
-            item.put("tableId", AttributeValue.builder().s(booking.getTableId()).build());
-            item.put("customerEmail", AttributeValue.builder().s(booking.getCustomerEmail()).build());
-            item.put("slotId", AttributeValue.builder().s(booking.getSlotId()).build());
-            item.put("date", AttributeValue.builder().s(booking.getDate()).build());
-            item.put("waiterEmail", AttributeValue.builder().s(booking.getWaiterEmail()).build());
-            item.put("status", AttributeValue.builder().s(booking.getStatus()).build());
-            item.put("locationId", AttributeValue.builder().s(booking.getLocationId()).build());
-            item.put("numberOfGuests", AttributeValue.builder().s(booking.getNumberOfGuests()).build());
-//            item.put("feedbackId", AttributeValue.builder().s(booking.getFeedbackId()).build());
-
-            // Create request
-            PutItemRequest request = PutItemRequest.builder()
-                    .tableName(bookingTable)
-                    .item(item)
-                    .build();
-
-            // Execute request
-            dynamoDbClient.putItem(request);
-            log.info("Booking created successfully: {}", booking.getReservationId());
-
-            return booking;
-        } catch (Exception e) {
-            log.error("Error creating booking: {}", e.getMessage());
-            throw new RuntimeException("Error creating booking", e);
+        // Create item attributes
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("reservationId", AttributeValue.builder().s(booking.getReservationId()).build());
+        item.put("tableId", AttributeValue.builder().s(booking.getTableId()).build());
+        item.put("customerEmail", AttributeValue.builder().s(booking.getCustomerEmail()).build());
+        item.put("slotId", AttributeValue.builder().s(booking.getSlotId()).build());
+        item.put("date", AttributeValue.builder().s(booking.getDate()).build());
+        item.put("waiterEmail", AttributeValue.builder().s(booking.getWaiterEmail()).build());
+        item.put("status", AttributeValue.builder().s(booking.getStatus()).build());
+        item.put("locationId", AttributeValue.builder().s(booking.getLocationId()).build());
+        item.put("numberOfGuests", AttributeValue.builder().s(booking.getNumberOfGuests()).build());
+        item.put("preOrderCount", AttributeValue.builder().n("0").build());
+        if (booking.getLocationAddress() != null) {
+            item.put("locationAddress", AttributeValue.builder().s(booking.getLocationAddress()).build());
+        }
+        if (booking.getTimeSlot() != null) {
+            item.put("timeSlot", AttributeValue.builder().s(booking.getTimeSlot()).build());
+        }
+        if (booking.getTableNumber() != null) {
+            item.put("tableNumber", AttributeValue.builder().s(booking.getTableNumber()).build());
         }
+//        item.put("feedbackId", AttributeValue.builder().s(booking.getFeedbackId()).build());
+
+        new BookingTransaction()
+                .require(TransactWriteItem.builder()
+                        .put(Put.builder()
+                                .tableName(bookingTable)
+                                .item(item)
+                                .conditionExpression("attribute_not_exists(reservationId)")
+                                .build())
+                        .build(), CHANGED_MESSAGE)
+                .require(slotClaimRepository.claimWrite(booking.getLocationId(), booking.getTableId(),
+                        booking.getDate(), booking.getSlotId(), booking.getReservationId()),
+                        BookingRepository.SLOT_TAKEN_MESSAGE)
+                .write(waiterLoadRepository.recordWrite(booking.getLocationId(), booking.getDate(),
+                        booking.getSlotId(), booking.getWaiterEmail()))
+                .commit(dynamoDbClient);
+        log.info("Booking created successfully: {}", booking.getReservationId());
+
+        return booking;
     }
 
     public String findUserNameFromEmail(String customerEmail) {
-        Map<String,AttributeValue> expressionAttributeValues =new HashMap<>();
-        expressionAttributeValues.put(":email", AttributeValue.builder().s(customerEmail).build());
-        Map<String,String> expressionAttributeNames =new HashMap<>();
-        expressionAttributeNames.put("#email","email");
+        return AsyncCalls.join(findUserNameFromEmailAsync(customerEmail));
+    }
 
-        ScanRequest scanRequest=ScanRequest.builder()
+    /**
+     * Look up a user's full name, without blocking
+     * @param customerEmail The user's email
+     * @return The first and last name; fails with IllegalArgumentException if there is no such user
+     */
+    public CompletableFuture<String> findUserNameFromEmailAsync(String customerEmail) {
+        // The user table is keyed by email
+        GetItemRequest getItemRequest = GetItemRequest.builder()
                 .tableName(userTable)
-                .filterExpression("#email = :email")
-                .expressionAttributeValues(expressionAttributeValues)
-                .expressionAttributeNames(expressionAttributeNames)
+                .key(Map.of("email", AttributeValue.builder().s(customerEmail).build()))
+                .projectionExpression("firstName, lastName")
                 .build();
-        ScanResponse scanResponse=dynamoDbClient.scan(scanRequest);
-        if(scanResponse.items().isEmpty() || scanResponse.items()==null){
+        return AsyncCalls.withTimeout(dynamoDbAsyncClient.get().getItem(getItemRequest))
+                .thenApply(response -> toUserName(response, customerEmail));
+    }
+
+    private static String toUserName(GetItemResponse response, String customerEmail) {
+        if(!response.hasItem() || response.item().isEmpty()){
             throw new IllegalArgumentException("User not found with email id "+customerEmail);
         }
-        Map<String, AttributeValue> userItem=scanResponse.items().get(0);
+        Map<String, AttributeValue> userItem=response.item();
         if(!userItem.containsKey("firstName")){
             throw new RuntimeException("User data is incomplete: first name not found");
         }
@@ -221,32 +193,6 @@ public class ReservationRepoWaiter {
         String orderid=getItemResponse.item().get("orderId").s();
         return orderid;
     }
-    public String findNumberOfDishesOfOrder(String customerEmail) {
-//        String orderId=findOrderId(reservationId);
-//        String orderId="1";
-        Map<String,AttributeValue> expressionAttributeValues =new HashMap<>();
-        expressionAttributeValues.put(":customerEmail", AttributeValue.builder().s(customerEmail).build());
-        Map<String, String> expressionAttributeNames = new HashMap<>();
-        expressionAttributeNames.put("#email", "customerEmail");
-        log.info("order table is {}",orderTable);
-        ScanRequest scanRequest=ScanRequest.builder()
-                .tableName(orderTable)
-                .filterExpression("#email = :customerEmail")
-                .expressionAttributeNames(expressionAttributeNames)
-                .expressionAttributeValues(expressionAttributeValues)
-                .build();
-        ScanResponse scanResponse=dynamoDbClient.scan(scanRequest);
-        if(scanResponse.items()==null || scanResponse.items().isEmpty()){
-            return String.valueOf(0);
-        }
-        Map<String, AttributeValue> item=scanResponse.items().get(0);
-        if (!item.containsKey("dishItems")) {
-            log.warn("list of dishes not found: {}", customerEmail);
-            throw new RuntimeException("Reservation data incomplete:  not found");
-        }
-        List<AttributeValue> dishesOfOrderId=item.get("dishItems").l();
-        return String.valueOf(dishesOfOrderId.size());
-    }
     public String findStatusOfOrder(String customerEmail) {
         log.info("entering in findStatusOfOrder");
         Map<String,AttributeValue> expressionAttributeValues =new HashMap<>();
@@ -278,78 +224,95 @@ public class ReservationRepoWaiter {
     }
     public String getLocationAddress(String locationId) {
         try {
-            Map<String, AttributeValue> key = new HashMap<>();
-            log.info("loc id {}",locationId);
-            key.put("locationId", AttributeValue.builder().s(locationId).build());
-            GetItemRequest request = GetItemRequest.builder()
-                    .tableName(locationTableName)
-                    .key(key)
-                    .build();
-
-            GetItemResponse response = dynamoDbClient.getItem(request);
-
-            if (response.item().isEmpty()) {
-                return "Unknown Location";
-            }
-
-            return response.item().get("address").s();
+            String address = referenceDataCache.getLocationAddress(locationId);
+            return address != null ? address : "Unknown Location";
         } catch (Exception e) {
             log.error("Error getting location address: {}", e.getMessage());
             return "Unknown Location";
         }
     }
 
-    public String reservationRepoWaiter(String email, String slotId, String tableNumber,String locationId, String date) {
-        try {
-            // First, find the reservation with the given criteria
-            String tableId = getTableId(locationId, tableNumber);
+    /**
+     * Find a customer's reservation at a table
+     * @param email The customer's email
+     * @param tableId The table ID
+     * @param date The requested date, used in the error message
+     * @return The reservation item
+     */
+    public Map<String, AttributeValue> findReservationByCustomerAndTable(String email, String tableId, String date) {
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":customerEmail", AttributeValue.builder().s(email).build());
+        expressionAttributeValues.put(":tableId", AttributeValue.builder().s(tableId).build());
+        log.info("before scan req");
+        ScanRequest scanRequest = ScanRequest.builder()
+                .tableName(bookingTable)
+                .filterExpression("customerEmail = :customerEmail AND tableId = :tableId")
+                .expressionAttributeValues(expressionAttributeValues)
+                .build();
+        log.info("after scan req {}",scanRequest);
+        ScanResponse scanResponse = dynamoDbClient.scan(scanRequest);
+        log.info("after scan response {}",scanResponse);
+        if (scanResponse.items().isEmpty()) {
+            throw new RuntimeException("No reservation found for customer with email: " + email +
+                    " on date: " + date);
+        }
+        return scanResponse.items().get(0);
+    }
 
-            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-            expressionAttributeValues.put(":customerEmail", AttributeValue.builder().s(email).build());
-            expressionAttributeValues.put(":tableId", AttributeValue.builder().s(tableId).build());
-            log.info("before scan req");
-            ScanRequest scanRequest = ScanRequest.builder()
-                    .tableName(bookingTable)
-                    .filterExpression("customerEmail = :customerEmail AND tableId = :tableId")
-                    .expressionAttributeValues(expressionAttributeValues)
-                    .build();
-            log.info("after scan req {}",scanRequest);
-            ScanResponse scanResponse = dynamoDbClient.scan(scanRequest);
-            log.info("after scan response {}",scanResponse);
-            if (scanResponse.items().isEmpty()) {
-                throw new RuntimeException("No reservation found for customer with email: " + email +
-                        " on date: " + date);
+    /**
+     * Move a reservation to another time slot
+     * @param reservationId The reservation ID
+     * @param slotId The new time slot ID
+     * @param timeSlot The new slot's formatted time, stored for the reservation pages
+     */
+    /**
+     * Move a reservation to another slot on the same day. The booking item, the claims on its
+     * old and new slots and its waiter's counters are written in one transaction, conditioned
+     * on the booking still being in the old slot.
+     * @param reservation The reservation as read
+     * @param slotId The new slot ID
+     * @param timeSlot The new slot's display string
+     * @throws com.restaurantapp.Exception.ConflictException if the new slot is taken or the booking moved since it was read
+     */
+    public void updateReservationSlot(Map<String, AttributeValue> reservation, String slotId, String timeSlot) {
+        String reservationId = reservation.get("reservationId").s();
+        String oldSlotId = reservation.get("slotId").s();
+
+        // Create key for the update operation
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("reservationId", AttributeValue.builder().s(reservationId).build());
+
+        // Create expression attribute values for the update
+        Map<String, AttributeValue> updateExpressionValues = new HashMap<>();
+        updateExpressionValues.put(":slotId", AttributeValue.builder().s(slotId).build());
+        updateExpressionValues.put(":timeSlot", AttributeValue.builder().s(timeSlot).build());
+        updateExpressionValues.put(":oldSlotId", AttributeValue.builder().s(oldSlotId).build());
+
+        BookingTransaction transaction = new BookingTransaction().require(TransactWriteItem.builder()
+                .update(Update.builder()
+                        .tableName(bookingTable)
+                        .key(key)
+                        .updateExpression("SET slotId = :slotId, timeSlot = :timeSlot")
+                        .conditionExpression("slotId = :oldSlotId")
+                        .expressionAttributeValues(updateExpressionValues)
+                        .build())
+                .build(), CHANGED_MESSAGE);
+
+        if (!slotId.equals(oldSlotId)) {
+            String locationId = reservation.get("locationId").s();
+            String tableId = reservation.get("tableId").s();
+            String date = reservation.get("date").s();
+            transaction.require(slotClaimRepository.claimWrite(locationId, tableId, date, slotId, reservationId),
+                    BookingRepository.SLOT_TAKEN_MESSAGE);
+            transaction.cleanup(slotClaimRepository.releaseWrite(locationId, tableId, date, oldSlotId, reservationId));
+            // The same waiter keeps the table, so move their count to the new slot
+            if (reservation.containsKey("waiterEmail")) {
+                String waiterEmail = reservation.get("waiterEmail").s();
+                transaction.write(waiterLoadRepository.moveWrite(locationId, date, oldSlotId, slotId, waiterEmail, false),
+                        waiterLoadRepository.recordWrite(locationId, date, slotId, waiterEmail));
             }
-
-            // Update the found reservation
-            Map<String, AttributeValue> item = scanResponse.items().get(0);
-            String reservationId = item.get("reservationId").s();
-
-            // Create key for the update operation
-            Map<String, AttributeValue> key = new HashMap<>();
-            key.put("reservationId", AttributeValue.builder().s(reservationId).build());
-
-            // Create expression attribute values for the update
-            Map<String, AttributeValue> updateExpressionValues = new HashMap<>();
-            updateExpressionValues.put(":slotId", AttributeValue.builder().s(slotId).build());
-//            updateExpressionValues.put(":tableId", AttributeValue.builder().s(tableNumber).build());
-
-            // Create the update request
-            UpdateItemRequest updateRequest = UpdateItemRequest.builder()
-                    .tableName(bookingTable)
-                    .key(key)
-                    .updateExpression("SET slotId = :slotId")
-//                    .updateExpression("SET slotId = :slotId, tableId = :tableId")
-                    .expressionAttributeValues(updateExpressionValues)
-                    .build();
-
-            // Execute the update
-            dynamoDbClient.updateItem(updateRequest);
-            return "Reservation Updated";
-
-
-        } catch (Exception e) {
-            return "Error updating reservation: " + e.getMessage();
         }
+
+        transaction.commit(dynamoDbClient);
     }
 }
@@ -1,11 +1,11 @@
 package com.restaurantapp.Repository;
 
+import com.restaurantapp.Model.CursorPage;
 import com.restaurantapp.Model.Location;
 import com.restaurantapp.Model.Reservation;
 import com.restaurantapp.Model.Slot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
@@ -21,7 +21,11 @@ public class ReservationRepository
 {
     private static final Logger LOG = LoggerFactory.getLogger(ReservationRepository.class);
 
+    // Booking table index: partition key customerEmail, sort key date
+    private static final String CUSTOMER_EMAIL_INDEX = "customerEmail-date-index";
+
     private final DynamoDbClient dynamoDbClient;
+    private final ReferenceDataCache referenceDataCache;
     private final String reservationTableName;
     private final String locationTableName;
 
@@ -29,11 +33,10 @@ public class ReservationRepository
     private final Map<String, Slot> slotMap;
 
     @Inject
-    public ReservationRepository()
+    public ReservationRepository(DynamoDbClient dynamoDbClient, ReferenceDataCache referenceDataCache)
     {
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1)
-                .build();
+        this.dynamoDbClient = dynamoDbClient;
+        this.referenceDataCache = referenceDataCache;
 
         this.reservationTableName = System.getenv("booking_table");
         this.locationTableName = System.getenv("location_table");
@@ -82,82 +85,93 @@ public class ReservationRepository
         map.put(slotId, slot);
     }
 
-    public List<Reservation> findReservationsByEmail(String email)
+    /**
+     * Find all reservations for a customer, following LastEvaluatedKey until the
+     * customer's history is exhausted so nothing is dropped past the 1 MB page limit.
+     *
+     * @param email The customer's email
+     * @param fromDate Earliest date to include (yyyy-MM-dd), or null for the full history
+     * @return The customer's reservations, ordered by date
+     */
+    public List<Reservation> findReservationsByEmail(String email, String fromDate)
     {
+        List<Reservation> reservations = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Reservation> page = findReservationsPageByEmail(email, fromDate, null, cursor);
+            reservations.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        LOG.info("Found {} total reservations for email: {}", reservations.size(), email);
+        return reservations;
+    }
+
+    /**
+     * Find one page of a customer's reservations using the customer email index.
+     * Upcoming reservations are returned soonest first, the full history newest first.
+     *
+     * @param email The customer's email
+     * @param fromDate Earliest date to include (yyyy-MM-dd), or null for the full history
+     * @param limit Maximum number of reservations in the page, or null for no limit
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @return The page of reservations and the cursor for the next page
+     */
+    public CursorPage<Reservation> findReservationsPageByEmail(String email, String fromDate, Integer limit, String cursor)
+    {
+        // Check if table name is available
+        if (reservationTableName == null || reservationTableName.isEmpty()) {
+            LOG.error("Reservation table name is null or empty");
+            throw new RuntimeException("Reservation table name is not configured");
+        }
+
+        Map<String, AttributeValue> exclusiveStartKey = PageCursor.decode(cursor);
+
         try {
-            LOG.info("Finding reservations for email: {}", email);
-            LOG.debug("Using reservation table: {}", reservationTableName);
+            LOG.info("Querying reservations for email: {} from date: {}", email, fromDate);
 
-            // Check if table name is available
-            if (reservationTableName == null || reservationTableName.isEmpty()) {
-                LOG.error("Reservation table name is null or empty");
-                throw new RuntimeException("Reservation table name is not configured");
-            }
+            Map<String, String> expressionAttributeNames = new HashMap<>();
+            expressionAttributeNames.put("#email", "customerEmail");
 
-            List<Reservation> reservations = new ArrayList<>();
+            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+            expressionAttributeValues.put(":email", AttributeValue.builder().s(email).build());
 
-            // Try with CustomerEmail first
-            try {
-                Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-                expressionAttributeValues.put(":email", AttributeValue.builder().s(email).build());
-
-                ScanRequest scanRequest = ScanRequest.builder()
-                        .tableName(reservationTableName)
-                        .filterExpression("customerEmail = :email")
-                        .expressionAttributeValues(expressionAttributeValues)
-                        .build();
-
-                ScanResponse response = dynamoDbClient.scan(scanRequest);
-
-                for (Map<String, AttributeValue> item : response.items()) {
-                    try {
-                        Reservation reservation = mapToReservation(item);
-                        reservations.add(reservation);
-                    } catch (Exception e) {
-                        LOG.error("Error mapping item to reservation: {}", e.getMessage());
-                        LOG.error("Problematic item: {}", item);
-                    }
-                }
+            String keyCondition = "#email = :email";
+            if (fromDate != null) {
+                expressionAttributeNames.put("#date", "date");
+                expressionAttributeValues.put(":fromDate", AttributeValue.builder().s(fromDate).build());
+                keyCondition += " AND #date >= :fromDate";
+            }
 
-                LOG.info("Found {} reservations with CustomerEmail", reservations.size());
+            QueryRequest.Builder queryBuilder = QueryRequest.builder()
+                    .tableName(reservationTableName)
+                    .indexName(CUSTOMER_EMAIL_INDEX)
+                    .keyConditionExpression(keyCondition)
+                    .expressionAttributeNames(expressionAttributeNames)
+                    .expressionAttributeValues(expressionAttributeValues)
+                    .scanIndexForward(fromDate != null);
+
+            if (limit != null) {
+                queryBuilder.limit(limit);
             }
-            catch (Exception e)
-            {
-                LOG.warn("Error scanning with CustomerEmail: {}", e.getMessage());
+            if (exclusiveStartKey != null) {
+                queryBuilder.exclusiveStartKey(exclusiveStartKey);
             }
 
-            // If no results with CustomerEmail, try with Email
-            if (reservations.isEmpty()) {
-                try {
-                    Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-                    expressionAttributeValues.put(":email", AttributeValue.builder().s(email).build());
-
-                    ScanRequest scanRequest = ScanRequest.builder()
-                            .tableName(reservationTableName)
-                            .filterExpression("email = :email")
-                            .expressionAttributeValues(expressionAttributeValues)
-                            .build();
-
-                    ScanResponse response = dynamoDbClient.scan(scanRequest);
-
-                    for (Map<String, AttributeValue> item : response.items()) {
-                        try {
-                            Reservation reservation = mapToReservation(item);
-                            reservations.add(reservation);
-                        } catch (Exception e) {
-                            LOG.error("Error mapping item to reservation: {}", e.getMessage());
-                            LOG.error("Problematic item: {}", item);
-                        }
-                    }
+            QueryResponse response = dynamoDbClient.query(queryBuilder.build());
 
-                    LOG.info("Found {} reservations with Email", reservations.size());
+            List<Reservation> reservations = new ArrayList<>();
+            for (Map<String, AttributeValue> item : response.items()) {
+                try {
+                    reservations.add(mapToReservation(item));
                 } catch (Exception e) {
-                    LOG.warn("Error scanning with Email: {}", e.getMessage());
+                    LOG.error("Error mapping item to reservation: {}", e.getMessage());
+                    LOG.error("Problematic item: {}", item);
                 }
             }
 
-            LOG.info("Found {} total reservations for email: {}", reservations.size(), email);
-            return reservations;
+            LOG.info("Found {} reservations in page for email: {}", reservations.size(), email);
+            return new CursorPage<>(reservations, PageCursor.encode(response.lastEvaluatedKey()));
         } catch (Exception e) {
             LOG.error("Error finding reservations by email: {}", e.getMessage(), e);
             throw new RuntimeException("Error finding reservations by email: " + e.getMessage(), e);
@@ -169,49 +183,25 @@ public class ReservationRepository
         try {
             LOG.info("Getting location by ID: {}", locationId);
 
-            if (locationTableName == null || locationTableName.isEmpty()) {
-                LOG.error("Location table name is null or empty");
-                return null;
-            }
-
-            // Create key condition
-            Map<String, AttributeValue> key = new HashMap<>();
-            key.put("locationId", AttributeValue.builder().s(locationId).build());
-            LOG.info("Nab=ndini");
-            // Create request
-            GetItemRequest request = GetItemRequest.builder()
-                    .tableName(locationTableName)
-                    .key(key)
-                    .build();
-
-            LOG.info("Nandini");
-            // Execute request
-            GetItemResponse response = dynamoDbClient.getItem(request);
-            LOG.info("sharda");
-            // If location not found
-            if (response.item().isEmpty()) {
+            Location cached = referenceDataCache.getLocation(locationId);
+            if (cached == null) {
                 LOG.warn("Location not found: {}", locationId);
                 return null;
             }
 
-            // Map DynamoDB item to Location object
-            Map<String, AttributeValue> item = response.item();
+            // Copy only the fields callers use so the cached instance is never modified
             Location location = new Location();
-            location.setLocationId(item.get("locationId").s());
+            location.setLocationId(cached.getLocationId());
 
             // Handle potential missing address
-            if (item.containsKey("address")) {
-                LOG.info("cc", item.get("address").s());
-                location.setLocationAddress(item.get("address").s());
+            if (cached.getLocationAddress() != null) {
+                location.setLocationAddress(cached.getLocationAddress());
             } else {
                 location.setLocationAddress("Address not available");
             }
 
             LOG.info("Found location: {}", location.getLocationId());
             return location;
-        } catch (ResourceNotFoundException e) {
-            LOG.error("Location table '{}' does not exist", locationTableName, e);
-            return null;
         } catch (Exception e) {
             LOG.error("Error getting location by ID: {}", locationId, e);
             return null; // Return null instead of throwing exception to make code more resilient
@@ -287,6 +277,20 @@ public class ReservationRepository
                 reservation.setDate(item.get("date").s());
             }
 
+            // Display fields stored with the booking; older bookings don't have them
+            if (item.containsKey("locationAddress")) {
+                reservation.setLocationAddress(item.get("locationAddress").s());
+            }
+            if (item.containsKey("timeSlot")) {
+                reservation.setTimeSlot(item.get("timeSlot").s());
+            }
+            if (item.containsKey("tableNumber")) {
+                reservation.setTableNumber(item.get("tableNumber").s());
+            }
+            if (item.containsKey("preOrderCount")) {
+                reservation.setPreOrderCount(Integer.parseInt(item.get("preOrderCount").n()));
+            }
+
             // Handle NumberOfGuests
             if (item.containsKey("numberOfGuests"))
             {
@@ -352,12 +356,16 @@ public class ReservationRepository
                 String slotId = item.get("slotId").s();
                 details.put("slotId", slotId);
 
-                // Get time slot details from the slot map
-                Slot slot = getSlotById(slotId);
-                if (slot != null) {
-                    details.put("timeSlot", slot.getStartTime() + " - " + slot.getEndTime());
+                // Use the time slot stored with the booking, or the slot map for older bookings
+                if (item.containsKey("timeSlot")) {
+                    details.put("timeSlot", item.get("timeSlot").s());
                 } else {
-                    details.put("timeSlot", "");
+                    Slot slot = getSlotById(slotId);
+                    if (slot != null) {
+                        details.put("timeSlot", slot.getStartTime() + " - " + slot.getEndTime());
+                    } else {
+                        details.put("timeSlot", "");
+                    }
                 }
             }
 
@@ -365,12 +373,16 @@ public class ReservationRepository
                 String locationId = item.get("locationId").s();
                 details.put("locationId", locationId);
 
-                // Get location address
-                Location location = getLocationById(locationId);
-                if (location != null) {
-                    details.put("address", location.getLocationAddress());
+                // Use the address stored with the booking, or look it up for older bookings
+                if (item.containsKey("locationAddress")) {
+                    details.put("address", item.get("locationAddress").s());
                 } else {
-                    details.put("address", "");
+                    Location location = getLocationById(locationId);
+                    if (location != null) {
+                        details.put("address", location.getLocationAddress());
+                    } else {
+                        details.put("address", "");
+                    }
                 }
             }
 
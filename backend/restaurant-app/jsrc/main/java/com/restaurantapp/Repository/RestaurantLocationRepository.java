@@ -1,29 +1,25 @@
 package com.restaurantapp.Repository;
 
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
-import com.amazonaws.services.dynamodbv2.document.DynamoDB;
-import com.amazonaws.services.dynamodbv2.document.Item;
-import com.amazonaws.services.dynamodbv2.document.ItemCollection;
-import com.amazonaws.services.dynamodbv2.document.ScanOutcome;
-import com.amazonaws.services.dynamodbv2.document.spec.ScanSpec;
 import com.restaurantapp.Model.Location;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class RestaurantLocationRepository {
     private static final Logger LOG = LoggerFactory.getLogger(RestaurantLocationRepository.class);
 
-    private final DynamoDB dynamoDB;
+    private final DynamoDbClient dynamoDbClient;
     private final String tableName;
 
-    public RestaurantLocationRepository() {
-        AmazonDynamoDB client = AmazonDynamoDBClientBuilder.standard().build();
-        this.dynamoDB = new DynamoDB(client);
+    public RestaurantLocationRepository(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
         this.tableName = System.getenv("location_table");
         LOG.info("Initialized RestaurantLocationRepository with table name: {}", tableName);
     }
@@ -33,15 +29,12 @@ public class RestaurantLocationRepository {
         List<Location> locations = new ArrayList<>();
 
         try {
-            com.amazonaws.services.dynamodbv2.document.Table ddbTable = dynamoDB.getTable(tableName);
-            ScanSpec scanSpec = new ScanSpec();
-
-            ItemCollection<ScanOutcome> items = ddbTable.scan(scanSpec);
-            Iterator<Item> iterator = items.iterator();
+            ScanRequest scanRequest = ScanRequest.builder()
+                    .tableName(tableName)
+                    .build();
 
-            while (iterator.hasNext()) {
-                Item item = iterator.next();
-                LOG.debug("Raw location data: {}", item.toJSON());
+            for (Map<String, AttributeValue> item : dynamoDbClient.scanPaginator(scanRequest).items()) {
+                LOG.debug("Raw location data: {}", item);
                 locations.add(mapToLocation(item));
             }
 
@@ -54,55 +47,55 @@ public class RestaurantLocationRepository {
         return locations;
     }
 
-    private Location mapToLocation(Item item) {
+    private Location mapToLocation(Map<String, AttributeValue> item) {
         Location location = new Location();
-        location.setLocationId(item.getString("locationId"));
+        location.setLocationId(getString(item, "locationId"));
 
-        if (item.hasAttribute("address")) {
-            location.setLocationAddress(item.getString("address"));
+        if (item.containsKey("address")) {
+            location.setLocationAddress(getString(item, "address"));
         }
 
         // Handle averageOccupancy as a string that might contain a percentage sign
-        if (item.hasAttribute("averageOccupancy")) {
+        if (item.containsKey("averageOccupancy")) {
             try {
-                String occupancyStr = item.getString("averageOccupancy");
+                String occupancyStr = getString(item, "averageOccupancy");
                 // Remove percentage sign if present and convert to integer
                 occupancyStr = occupancyStr.replace("%", "").trim();
                 location.setAverageOccupancy(occupancyStr);
             } catch (Exception e) {
-                LOG.warn("Error parsing averageOccupancy for location {}: {}", item.getString("id"), e.getMessage());
+                LOG.warn("Error parsing averageOccupancy for location {}: {}", getString(item, "locationId"), e.getMessage());
                 // Set a default value
                 location.setAverageOccupancy("0");
             }
         }
 
-        if (item.hasAttribute("description")) {
-            location.setDescription(item.getString("description"));
+        if (item.containsKey("description")) {
+            location.setDescription(getString(item, "description"));
         }
 
-        if (item.hasAttribute("imageUrl")) {
-            location.setImageURL(item.getString("imageUrl"));
+        if (item.containsKey("imageUrl")) {
+            location.setImageURL(getString(item, "imageUrl"));
         }
 
         // Handle rating as a string that might need conversion
-        if (item.hasAttribute("rating")) {
+        if (item.containsKey("rating")) {
             try {
-                String ratingStr = item.getString("rating");
+                String ratingStr = getString(item, "rating");
                 location.setRating(ratingStr);
             } catch (Exception e) {
-                LOG.warn("Error parsing rating for location {}: {}", item.getString("id"), e.getMessage());
+                LOG.warn("Error parsing rating for location {}: {}", getString(item, "locationId"), e.getMessage());
                 // Set a default value
                 location.setRating("0.0");
             }
         }
 
         // Handle totalCapacity as a string that might need conversion
-        if (item.hasAttribute("totalCapacity")) {
+        if (item.containsKey("totalCapacity")) {
             try {
-                String capacityStr = item.getString("totalCapacity");
+                String capacityStr = getString(item, "totalCapacity");
                 location.setTotalCapacity(capacityStr);
             } catch (Exception e) {
-                LOG.warn("Error parsing totalCapacity for location {}: {}", item.getString("id"), e.getMessage());
+                LOG.warn("Error parsing totalCapacity for location {}: {}", getString(item, "locationId"), e.getMessage());
                 // Set a default value
                 location.setTotalCapacity("0");
             }
@@ -110,4 +103,13 @@ public class RestaurantLocationRepository {
 
         return location;
     }
-}
\ No newline at end of file
+
+    // Numeric attributes are returned as strings, matching how the rest of the model stores them
+    private String getString(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        if (value == null) {
+            return null;
+        }
+        return value.s() != null ? value.s() : value.n();
+    }
+}
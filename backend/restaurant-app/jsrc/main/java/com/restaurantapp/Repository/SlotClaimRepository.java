@@ -0,0 +1,105 @@
+package com.restaurantapp.Repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ledger of claimed table slots. Each item is keyed by location, table, date and slot,
+ * so checking and taking a slot is a single conditional write instead of a scan of the
+ * booking table followed by an unconditional put. Claims are written in the same
+ * transaction as the booking they belong to.
+ */
+@Singleton
+public class SlotClaimRepository {
+    private static final Logger LOG = LoggerFactory.getLogger(SlotClaimRepository.class);
+    private final DynamoDbClient dynamoDbClient;
+    private final String slotClaimTableName = System.getenv("slot_claim_table");
+
+    @Inject
+    public SlotClaimRepository(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
+    }
+
+    /**
+     * Build the ledger key for a table slot
+     * @param locationId The location ID
+     * @param tableId The table ID
+     * @param date The date of booking
+     * @param slotId The time slot ID
+     * @return The slot key
+     */
+    public static String buildSlotKey(String locationId, String tableId, String date, String slotId) {
+        return locationId + "#" + tableId + "#" + date + "#" + slotId;
+    }
+
+    /**
+     * Build the write that claims a table slot for a reservation, for a booking transaction.
+     * Its condition only holds if the slot is free or already held by the same reservation,
+     * so concurrent requests cannot both win.
+     * @param locationId The location ID
+     * @param tableId The table ID
+     * @param date The date of booking
+     * @param slotId The time slot ID
+     * @param reservationId The reservation claiming the slot
+     * @return The conditional put
+     */
+    public TransactWriteItem claimWrite(String locationId, String tableId, String date, String slotId, String reservationId) {
+        String slotKey = buildSlotKey(locationId, tableId, date, slotId);
+
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("slotKey", AttributeValue.builder().s(slotKey).build());
+        item.put("reservationId", AttributeValue.builder().s(reservationId).build());
+        item.put("locationId", AttributeValue.builder().s(locationId).build());
+        item.put("tableId", AttributeValue.builder().s(tableId).build());
+        item.put("date", AttributeValue.builder().s(date).build());
+        item.put("slotId", AttributeValue.builder().s(slotId).build());
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":reservationId", AttributeValue.builder().s(reservationId).build());
+
+        return TransactWriteItem.builder()
+                .put(Put.builder()
+                        .tableName(slotClaimTableName)
+                        .item(item)
+                        .conditionExpression("attribute_not_exists(slotKey) OR reservationId = :reservationId")
+                        .expressionAttributeValues(expressionAttributeValues)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Build the write that releases a table slot held by a reservation, for a booking
+     * transaction. Its condition fails if the slot is held by a different reservation.
+     * @param locationId The location ID
+     * @param tableId The table ID
+     * @param date The date of booking
+     * @param slotId The time slot ID
+     * @param reservationId The reservation releasing the slot
+     * @return The conditional delete
+     */
+    public TransactWriteItem releaseWrite(String locationId, String tableId, String date, String slotId, String reservationId) {
+        String slotKey = buildSlotKey(locationId, tableId, date, slotId);
+
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("slotKey", AttributeValue.builder().s(slotKey).build());
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":reservationId", AttributeValue.builder().s(reservationId).build());
+
+        return TransactWriteItem.builder()
+                .delete(Delete.builder()
+                        .tableName(slotClaimTableName)
+                        .key(key)
+                        .conditionExpression("reservationId = :reservationId")
+                        .expressionAttributeValues(expressionAttributeValues)
+                        .build())
+                .build();
+    }
+}
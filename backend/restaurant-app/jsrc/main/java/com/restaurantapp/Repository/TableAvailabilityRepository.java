@@ -1,132 +1,128 @@
 package com.restaurantapp.Repository;
 
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
-import com.amazonaws.services.dynamodbv2.document.DynamoDB;
-import com.amazonaws.services.dynamodbv2.document.Item;
-import com.amazonaws.services.dynamodbv2.document.ItemCollection;
-import com.amazonaws.services.dynamodbv2.document.QueryOutcome;
-import com.amazonaws.services.dynamodbv2.document.ScanOutcome;
-import com.amazonaws.services.dynamodbv2.document.spec.QuerySpec;
-import com.amazonaws.services.dynamodbv2.document.spec.ScanSpec;
 import com.restaurantapp.Model.Reservation;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 public class TableAvailabilityRepository {
     private static final Logger LOG = LoggerFactory.getLogger(TableAvailabilityRepository.class);
 
-    private final DynamoDB dynamoDB;
+    // Booking table index: partition key locationId, sort key date
+    private static final String LOCATION_DATE_INDEX = "locationId-date-index";
+
+    private final DynamoDbClient dynamoDbClient;
     private final String tableName;
 
-    public TableAvailabilityRepository() {
-        AmazonDynamoDB client = AmazonDynamoDBClientBuilder.standard().build();
-        this.dynamoDB = new DynamoDB(client);
+    public TableAvailabilityRepository(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
         this.tableName = System.getenv("booking_table");
         LOG.info("Initialized TableAvailabilityRepository with table name: {}", tableName);
     }
 
-    public List<Reservation> findByDate(LocalDate date) {
-        LOG.info("Finding reservations for date: {}", date);
-        List<Reservation> reservations = new ArrayList<>();
+    /**
+     * Find the reservations for one location on one day using the booking table's
+     * locationId-date index, so only that location's bookings for the day are read.
+     * @param locationId The location ID
+     * @param date The date of the reservations
+     * @return The reservations for the location and date
+     * @throws RuntimeException if the table is not configured or the query fails
+     */
+    public List<Reservation> findByLocationAndDate(String locationId, LocalDate date) {
+        LOG.info("Finding reservations for location {} on date {}", locationId, date);
+
+        if (tableName == null || tableName.isEmpty()) {
+            LOG.error("Reservation table name is null or empty. Check booking_table environment variable.");
+            throw new IllegalStateException("Reservation table name is not configured");
+        }
 
         try {
-            if (tableName == null || tableName.isEmpty()) {
-                LOG.warn("Reservation table name is null or empty. Check RESERVATIONS_TABLE_NAME environment variable.");
-                return reservations;
-            }
-
-            com.amazonaws.services.dynamodbv2.document.Table ddbTable = dynamoDB.getTable(tableName);
-
             // Use expression attribute names to handle reserved keyword 'date'
             Map<String, String> nameMap = new HashMap<>();
+            nameMap.put("#locationAttr", "locationId");
             nameMap.put("#dateAttr", "date");
 
-            Map<String, Object> valueMap = new HashMap<>();
-            valueMap.put(":dateValue", date.toString());
-
-            ScanSpec scanSpec = new ScanSpec()
-                    .withFilterExpression("#dateAttr = :dateValue")
-                    .withNameMap(nameMap)
-                    .withValueMap(valueMap);
-
-            ItemCollection<ScanOutcome> items = ddbTable.scan(scanSpec);
-            Iterator<Item> iterator = items.iterator();
-
-            while (iterator.hasNext()) {
-                Item item = iterator.next();
-                LOG.debug("Raw reservation data: {}", item.toJSON());
+            Map<String, AttributeValue> valueMap = new HashMap<>();
+            valueMap.put(":locationValue", AttributeValue.builder().s(locationId).build());
+            valueMap.put(":dateValue", AttributeValue.builder().s(date.toString()).build());
+
+            QueryRequest queryRequest = QueryRequest.builder()
+                    .tableName(tableName)
+                    .indexName(LOCATION_DATE_INDEX)
+                    .keyConditionExpression("#locationAttr = :locationValue AND #dateAttr = :dateValue")
+                    .expressionAttributeNames(nameMap)
+                    .expressionAttributeValues(valueMap)
+                    .build();
+
+            // The paginator fetches further pages as the iteration advances
+            List<Reservation> reservations = new ArrayList<>();
+            for (Map<String, AttributeValue> item : dynamoDbClient.queryPaginator(queryRequest).items()) {
+                LOG.debug("Raw reservation data: {}", item);
                 reservations.add(mapToReservation(item));
             }
 
-            LOG.info("Found {} reservations for date {}", reservations.size(), date);
+            LOG.info("Found {} reservations for location {} on date {}", reservations.size(), locationId, date);
+            return reservations;
         } catch (Exception e) {
-            LOG.error("Error fetching reservations by date from DynamoDB: {}", e.getMessage(), e);
-            // Return empty list instead of throwing exception to be more resilient
-            return new ArrayList<>();
+            LOG.error("Error fetching reservations for location {} on date {}: {}", locationId, date, e.getMessage(), e);
+            throw new RuntimeException("Error fetching reservations for location " + locationId + " on " + date, e);
         }
-
-        return reservations;
     }
 
 
-    private Reservation mapToReservation(Item item) {
+    private Reservation mapToReservation(Map<String, AttributeValue> item) {
         Reservation reservation = new Reservation();
 
         try {
             // Map fields based on the updated schema
-            if (item.hasAttribute("reservationId")) {
-                reservation.setReservationId(item.getString("reservationId"));
-            } else if (item.hasAttribute("id")) {
+            if (item.containsKey("reservationId")) {
+                reservation.setReservationId(getString(item, "reservationId"));
+            } else if (item.containsKey("id")) {
                 // Fallback to "id" if "reservationId" doesn't exist
-                reservation.setReservationId(item.getString("id"));
+                reservation.setReservationId(getString(item, "id"));
             }
 
-            if (item.hasAttribute("customerEmail")) {
-                reservation.setCustomerEmail(item.getString("customerEmail"));
+            if (item.containsKey("customerEmail")) {
+                reservation.setCustomerEmail(getString(item, "customerEmail"));
             }
 
-            if (item.hasAttribute("date")) {
-                reservation.setDate(item.getString("date"));
+            if (item.containsKey("date")) {
+                reservation.setDate(getString(item, "date"));
             }
 
-            if (item.hasAttribute("locationId")) {
-                reservation.setLocationId(item.getString("locationId"));
+            if (item.containsKey("locationId")) {
+                reservation.setLocationId(getString(item, "locationId"));
             }
 
-            if (item.hasAttribute("numberOfGuests")) {
-                try {
-                    reservation.setNumberOfGuests(item.getInt("numberOfGuests"));
-                } catch (Exception e) {
-                    // Try parsing as string
-                    String guestsStr = item.getString("numberOfGuests");
-                    reservation.setNumberOfGuests(Integer.parseInt(guestsStr));
-                }
+            if (item.containsKey("numberOfGuests")) {
+                // Stored as a number or as a numeric string
+                reservation.setNumberOfGuests(Integer.parseInt(getString(item, "numberOfGuests")));
             }
 
-            if (item.hasAttribute("slotId")) {
-                reservation.setSlotId(item.getString("slotId"));
+            if (item.containsKey("slotId")) {
+                reservation.setSlotId(getString(item, "slotId"));
                 // We don't need to set time from slotId here as TableService handles this conversion
             }
 
-            if (item.hasAttribute("status")) {
-                reservation.setStatus(item.getString("status"));
+            if (item.containsKey("status")) {
+                reservation.setStatus(getString(item, "status"));
             }
 
-            if (item.hasAttribute("tableId")) {
-                reservation.setTableId(item.getString("tableId"));
+            if (item.containsKey("tableId")) {
+                reservation.setTableId(getString(item, "tableId"));
             }
 
-            if (item.hasAttribute("waiterEmail")) {
-                reservation.setWaiterEmail(item.getString("waiterEmail"));
+            if (item.containsKey("waiterEmail")) {
+                reservation.setWaiterEmail(getString(item, "waiterEmail"));
             }
 
             // Log the mapped reservation for debugging
@@ -140,4 +136,12 @@ public class TableAvailabilityRepository {
 
         return reservation;
     }
-}
\ No newline at end of file
+
+    private String getString(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        if (value == null) {
+            return null;
+        }
+        return value.s() != null ? value.s() : value.n();
+    }
+}
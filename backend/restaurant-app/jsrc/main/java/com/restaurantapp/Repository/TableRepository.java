@@ -1,32 +1,23 @@
 package com.restaurantapp.Repository;
 
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
-import com.amazonaws.services.dynamodbv2.document.DynamoDB;
-import com.amazonaws.services.dynamodbv2.document.Item;
-import com.amazonaws.services.dynamodbv2.document.ItemCollection;
-import com.amazonaws.services.dynamodbv2.document.QueryOutcome;
-import com.amazonaws.services.dynamodbv2.document.ScanOutcome;
-import com.amazonaws.services.dynamodbv2.document.spec.QuerySpec;
-import com.amazonaws.services.dynamodbv2.document.spec.ScanSpec;
-import com.amazonaws.services.dynamodbv2.document.utils.NameMap;
-import com.amazonaws.services.dynamodbv2.document.utils.ValueMap;
 import com.restaurantapp.Model.Table;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 public class TableRepository {
 
-    private final DynamoDB dynamoDB;
+    private final DynamoDbClient dynamoDbClient;
     private final String tableName;
 
-    public TableRepository() {
-        AmazonDynamoDB client = AmazonDynamoDBClientBuilder.standard().build();
-        this.dynamoDB = new DynamoDB(client);
+    public TableRepository(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
         this.tableName = System.getenv("tables_table_name");
     }
 
@@ -34,14 +25,11 @@ public class TableRepository {
         List<Table> tables = new ArrayList<>();
 
         try {
-            com.amazonaws.services.dynamodbv2.document.Table ddbTable = dynamoDB.getTable(tableName);
-            ScanSpec scanSpec = new ScanSpec();
+            ScanRequest scanRequest = ScanRequest.builder()
+                    .tableName(tableName)
+                    .build();
 
-            ItemCollection<ScanOutcome> items = ddbTable.scan(scanSpec);
-            Iterator<Item> iterator = items.iterator();
-
-            while (iterator.hasNext()) {
-                Item item = iterator.next();
+            for (Map<String, AttributeValue> item : dynamoDbClient.scanPaginator(scanRequest).items()) {
                 tables.add(mapToTable(item));
             }
         } catch (Exception e) {
@@ -55,24 +43,20 @@ public class TableRepository {
         List<Table> tables = new ArrayList<>();
 
         try {
-            com.amazonaws.services.dynamodbv2.document.Table ddbTable = dynamoDB.getTable(tableName);
-
             Map<String, String> nameMap = new HashMap<>();
             nameMap.put("#locationId", "locationId");
 
-            Map<String, Object> valueMap = new HashMap<>();
-            valueMap.put(":locationId", locationId);
-
-            QuerySpec querySpec = new QuerySpec()
-                    .withKeyConditionExpression("#locationId = :locationId")
-                    .withNameMap(new NameMap().with("#locationId", "locationId"))
-                    .withValueMap(new ValueMap().with(":locationId", locationId));
+            Map<String, AttributeValue> valueMap = new HashMap<>();
+            valueMap.put(":locationId", AttributeValue.builder().s(locationId).build());
 
-            ItemCollection<QueryOutcome> items = ddbTable.query(querySpec);
-            Iterator<Item> iterator = items.iterator();
+            QueryRequest queryRequest = QueryRequest.builder()
+                    .tableName(tableName)
+                    .keyConditionExpression("#locationId = :locationId")
+                    .expressionAttributeNames(nameMap)
+                    .expressionAttributeValues(valueMap)
+                    .build();
 
-            while (iterator.hasNext()) {
-                Item item = iterator.next();
+            for (Map<String, AttributeValue> item : dynamoDbClient.queryPaginator(queryRequest).items()) {
                 tables.add(mapToTable(item));
             }
         } catch (Exception e) {
@@ -87,17 +71,13 @@ public class TableRepository {
         List<Table> tables = new ArrayList<>();
 
         try {
-            com.amazonaws.services.dynamodbv2.document.Table ddbTable = dynamoDB.getTable(tableName);
-
-            ScanSpec scanSpec = new ScanSpec()
-                    .withFilterExpression("locationId = :locationId")
-                    .withValueMap(new ValueMap().with(":locationId", locationId));
-
-            ItemCollection<ScanOutcome> items = ddbTable.scan(scanSpec);
-            Iterator<Item> iterator = items.iterator();
+            ScanRequest scanRequest = ScanRequest.builder()
+                    .tableName(tableName)
+                    .filterExpression("locationId = :locationId")
+                    .expressionAttributeValues(Map.of(":locationId", AttributeValue.builder().s(locationId).build()))
+                    .build();
 
-            while (iterator.hasNext()) {
-                Item item = iterator.next();
+            for (Map<String, AttributeValue> item : dynamoDbClient.scanPaginator(scanRequest).items()) {
                 tables.add(mapToTable(item));
             }
         } catch (Exception e) {
@@ -107,12 +87,25 @@ public class TableRepository {
         return tables;
     }
 
-    private Table mapToTable(Item item) {
+    private Table mapToTable(Map<String, AttributeValue> item) {
         Table table = new Table();
-        table.setId(item.getString("tableId"));
-        table.setLocationId(item.getString("locationId"));
-        table.setTableNumber(item.getString("tableNumber"));
-        table.setCapacity(item.getInt("capacity"));
+        table.setId(getString(item, "tableId"));
+        table.setLocationId(getString(item, "locationId"));
+        table.setTableNumber(getString(item, "tableNumber"));
+        table.setCapacity(getInt(item, "capacity"));
         return table;
     }
-}
\ No newline at end of file
+
+    private String getString(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        if (value == null) {
+            return null;
+        }
+        return value.s() != null ? value.s() : value.n();
+    }
+
+    private int getInt(Map<String, AttributeValue> item, String name) {
+        String value = getString(item, name);
+        return value != null ? Integer.parseInt(value) : 0;
+    }
+}
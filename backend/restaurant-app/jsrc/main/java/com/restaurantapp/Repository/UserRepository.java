@@ -2,7 +2,6 @@ package com.restaurantapp.Repository;
 
 import com.restaurantapp.Model.User;
 import com.restaurantapp.Model.Waiter;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
@@ -16,11 +15,8 @@ public class UserRepository {
     private final String tableName = System.getenv("user_table");
     private final String tableWaiterName = System.getenv("waiter_table");
 
-    public UserRepository() {
-        // Create DynamoDB client
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1) // Change to your region
-                .build();
+    public UserRepository(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
     }
 
     public boolean emailExists(String email) {
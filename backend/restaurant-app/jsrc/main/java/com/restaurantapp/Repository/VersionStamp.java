@@ -0,0 +1,105 @@
+package com.restaurantapp.Repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.Map;
+
+/**
+ * Version counter for one kind of cached data, stored as an item in the reference_version
+ * table (key name, numeric attribute version). Whatever edits the data increments the
+ * counter; caches call hasChanged and drop their contents when it returns true. The item
+ * is read at most once per check interval, so the check is cheap on every request.
+ */
+public class VersionStamp {
+    private static final Logger LOG = LoggerFactory.getLogger(VersionStamp.class);
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String versionTableName = System.getenv("reference_version_table");
+    private final String name;
+    private final long checkIntervalMillis;
+
+    private String version;
+    private long lastCheck;
+
+    public VersionStamp(DynamoDbClient dynamoDbClient, String name, long checkIntervalMillis) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.name = name;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    /**
+     * Read the version if the check interval has passed. Only the caller that claims the
+     * check reads the item, and no lock is held while it does
+     * @param now Current time in milliseconds
+     * @return true if the version differs from the one seen at the previous read
+     */
+    public boolean hasChanged(long now) {
+        if (versionTableName == null || versionTableName.isEmpty()) {
+            return false;
+        }
+        synchronized (this) {
+            if (now - lastCheck < checkIntervalMillis) {
+                return false;
+            }
+            lastCheck = now;
+        }
+
+        String currentVersion;
+        try {
+            GetItemRequest request = GetItemRequest.builder()
+                    .tableName(versionTableName)
+                    .key(Map.of("name", AttributeValue.builder().s(name).build()))
+                    .projectionExpression("#version")
+                    .expressionAttributeNames(Map.of("#version", "version"))
+                    .build();
+
+            GetItemResponse response = dynamoDbClient.getItem(request);
+            AttributeValue value = response.hasItem() ? response.item().get("version") : null;
+            currentVersion = value != null ? value.n() : null;
+        } catch (Exception e) {
+            // Keep serving cached data; the cache TTL still bounds how stale it can get
+            LOG.warn("Error reading version of {}: {}", name, e.getMessage());
+            return false;
+        }
+
+        synchronized (this) {
+            boolean changed = version != null && !version.equals(currentVersion);
+            if (changed) {
+                LOG.info("Version of {} changed from {} to {}", name, version, currentVersion);
+            }
+            version = currentVersion;
+            return changed;
+        }
+    }
+
+    /**
+     * Increment the version, so every cache checking it drops its contents at its next check
+     */
+    public void bump() {
+        if (versionTableName == null || versionTableName.isEmpty()) {
+            return;
+        }
+
+        try {
+            UpdateItemRequest request = UpdateItemRequest.builder()
+                    .tableName(versionTableName)
+                    .key(Map.of("name", AttributeValue.builder().s(name).build()))
+                    .updateExpression("ADD #version :one")
+                    .expressionAttributeNames(Map.of("#version", "version"))
+                    .expressionAttributeValues(Map.of(":one", AttributeValue.builder().n("1").build()))
+                    .build();
+
+            dynamoDbClient.updateItem(request);
+            LOG.info("Bumped version of {}", name);
+        } catch (Exception e) {
+            // Other containers then catch up when their entries expire
+            LOG.warn("Error bumping version of {}: {}", name, e.getMessage());
+        }
+    }
+}
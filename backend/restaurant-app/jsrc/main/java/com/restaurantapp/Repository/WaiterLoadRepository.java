@@ -0,0 +1,228 @@
+package com.restaurantapp.Repository;
+
+import com.restaurantapp.Model.WaiterLoad;
+import dagger.Lazy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Booking counters per waiter, location and day. Each item holds the waiter's booking
+ * count for the day and one table count per time slot, so all waiters at a location can
+ * be compared with one query and a booking updates both counters in a single write, made
+ * in the same transaction as the booking itself.
+ */
+@Singleton
+public class WaiterLoadRepository {
+    private static final Logger LOG = LoggerFactory.getLogger(WaiterLoadRepository.class);
+
+    // Maximum number of tables a waiter can handle in a single time slot
+    public static final int MAX_TABLES_PER_WAITER = 4;
+
+    private final Lazy<DynamoDbAsyncClient> dynamoDbAsyncClient;
+    private final String waiterLoadTableName = System.getenv("waiter_load_table");
+
+    @Inject
+    public WaiterLoadRepository(Lazy<DynamoDbAsyncClient> dynamoDbAsyncClient) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    /**
+     * Build the partition key shared by all waiters of a location on one day
+     * @param locationId The location ID
+     * @param date The date
+     * @return The locationDate key
+     */
+    public static String buildLocationDateKey(String locationId, String date) {
+        return locationId + "#" + date;
+    }
+
+    private static String slotAttribute(String slotId) {
+        return "slot_" + slotId;
+    }
+
+    /**
+     * Read the loads of every waiter at a location for one day
+     * @param locationId The location ID
+     * @param date The date
+     * @param slotId The time slot whose table count is returned
+     * @return Loads keyed by waiter email; waiters without bookings that day are absent
+     */
+    public Map<String, WaiterLoad> findLoadsForDay(String locationId, String date, String slotId) {
+        return AsyncCalls.join(findLoadsForDayAsync(locationId, date, slotId));
+    }
+
+    /**
+     * Read the loads of every waiter at a location for one day, without blocking
+     * @param locationId The location ID
+     * @param date The date
+     * @param slotId The time slot whose table count is returned
+     * @return Loads keyed by waiter email; waiters without bookings that day are absent
+     */
+    public CompletableFuture<Map<String, WaiterLoad>> findLoadsForDayAsync(String locationId, String date, String slotId) {
+        LOG.info("Reading waiter loads for location {} on date {}", locationId, date);
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":locationDate",
+                AttributeValue.builder().s(buildLocationDateKey(locationId, date)).build());
+
+        QueryRequest queryRequest = QueryRequest.builder()
+                .tableName(waiterLoadTableName)
+                .keyConditionExpression("locationDate = :locationDate")
+                .expressionAttributeValues(expressionAttributeValues)
+                .build();
+
+        Map<String, WaiterLoad> loads = new ConcurrentHashMap<>();
+        CompletableFuture<Void> pages = dynamoDbAsyncClient.get().queryPaginator(queryRequest).items().subscribe(item -> {
+            String waiterEmail = item.get("waiterEmail").s();
+            loads.put(waiterEmail, new WaiterLoad(
+                    waiterEmail,
+                    readCount(item.get("bookingCount")),
+                    readCount(item.get(slotAttribute(slotId)))
+            ));
+        });
+
+        return AsyncCalls.withTimeout(pages)
+                .handle((ignored, e) -> {
+                    if (e != null) {
+                        LOG.error("Error reading waiter loads: {}", e.getMessage(), e);
+                        throw new RuntimeException("Error reading waiter loads", AsyncCalls.unwrap(e));
+                    }
+                    LOG.info("Found loads for {} waiters at location {} on date {}", loads.size(), locationId, date);
+                    return loads;
+                });
+    }
+
+    /**
+     * Build the write that adds a booking to a waiter's counters, for a booking transaction.
+     * Its condition only holds while the waiter has fewer than MAX_TABLES_PER_WAITER tables
+     * in the slot, so the check and the increment are one write.
+     * @param locationId The location ID
+     * @param date The date
+     * @param slotId The time slot ID
+     * @param waiterEmail The waiter's email
+     * @return The conditional update
+     */
+    public TransactWriteItem incrementWrite(String locationId, String date, String slotId, String waiterEmail) {
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":one", AttributeValue.builder().n("1").build());
+        expressionAttributeValues.put(":max", AttributeValue.builder().n(String.valueOf(MAX_TABLES_PER_WAITER)).build());
+
+        return TransactWriteItem.builder()
+                .update(Update.builder()
+                        .tableName(waiterLoadTableName)
+                        .key(buildKey(locationId, date, waiterEmail))
+                        .updateExpression("ADD bookingCount :one, #slot :one")
+                        .conditionExpression("attribute_not_exists(#slot) OR #slot < :max")
+                        .expressionAttributeNames(Map.of("#slot", slotAttribute(slotId)))
+                        .expressionAttributeValues(expressionAttributeValues)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Build the write that adds a booking to a waiter's counters without checking the table
+     * limit. Used when a waiter books a table for their own guests.
+     * @param locationId The location ID
+     * @param date The date
+     * @param slotId The time slot ID
+     * @param waiterEmail The waiter's email
+     * @return The update
+     */
+    public TransactWriteItem recordWrite(String locationId, String date, String slotId, String waiterEmail) {
+        return TransactWriteItem.builder()
+                .update(Update.builder()
+                        .tableName(waiterLoadTableName)
+                        .key(buildKey(locationId, date, waiterEmail))
+                        .updateExpression("ADD bookingCount :one, #slot :one")
+                        .expressionAttributeNames(Map.of("#slot", slotAttribute(slotId)))
+                        .expressionAttributeValues(Map.of(":one", AttributeValue.builder().n("1").build()))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Build the write that removes a booking from a waiter's counters. Its condition fails
+     * if the booking was never counted, as for bookings made before the counters existed.
+     * @param locationId The location ID
+     * @param date The date
+     * @param slotId The time slot ID
+     * @param waiterEmail The waiter's email
+     * @return The conditional update
+     */
+    public TransactWriteItem decrementWrite(String locationId, String date, String slotId, String waiterEmail) {
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":minusOne", AttributeValue.builder().n("-1").build());
+        expressionAttributeValues.put(":zero", AttributeValue.builder().n("0").build());
+
+        return TransactWriteItem.builder()
+                .update(Update.builder()
+                        .tableName(waiterLoadTableName)
+                        .key(buildKey(locationId, date, waiterEmail))
+                        .updateExpression("ADD bookingCount :minusOne, #slot :minusOne")
+                        .conditionExpression("#slot > :zero AND bookingCount > :zero")
+                        .expressionAttributeNames(Map.of("#slot", slotAttribute(slotId)))
+                        .expressionAttributeValues(expressionAttributeValues)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Build the write that moves a waiter's booking from one slot to another on the same day.
+     * A transaction may touch an item only once, so this replaces an increment and a decrement
+     * of the same counters item. The day's booking count is unchanged. Its condition fails if
+     * the old slot was never counted, as for bookings made before the counters existed, so the
+     * count cannot go negative; the transaction then counts the booking with an increment instead.
+     * @param locationId The location ID
+     * @param date The date
+     * @param oldSlotId The slot the booking leaves
+     * @param newSlotId The slot the booking moves to
+     * @param waiterEmail The waiter's email
+     * @param checkLimit Whether the new slot must be below MAX_TABLES_PER_WAITER
+     * @return The conditional update
+     */
+    public TransactWriteItem moveWrite(String locationId, String date, String oldSlotId, String newSlotId,
+                                       String waiterEmail, boolean checkLimit) {
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":one", AttributeValue.builder().n("1").build());
+        expressionAttributeValues.put(":minusOne", AttributeValue.builder().n("-1").build());
+        expressionAttributeValues.put(":zero", AttributeValue.builder().n("0").build());
+
+        Update.Builder update = Update.builder()
+                .tableName(waiterLoadTableName)
+                .key(buildKey(locationId, date, waiterEmail))
+                .updateExpression("ADD #newSlot :one, #oldSlot :minusOne")
+                .expressionAttributeNames(Map.of(
+                        "#newSlot", slotAttribute(newSlotId),
+                        "#oldSlot", slotAttribute(oldSlotId)));
+        if (checkLimit) {
+            expressionAttributeValues.put(":max", AttributeValue.builder().n(String.valueOf(MAX_TABLES_PER_WAITER)).build());
+            update.conditionExpression("#oldSlot > :zero AND (attribute_not_exists(#newSlot) OR #newSlot < :max)");
+        } else {
+            update.conditionExpression("#oldSlot > :zero");
+        }
+
+        return TransactWriteItem.builder()
+                .update(update.expressionAttributeValues(expressionAttributeValues).build())
+                .build();
+    }
+
+    private Map<String, AttributeValue> buildKey(String locationId, String date, String waiterEmail) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("locationDate", AttributeValue.builder().s(buildLocationDateKey(locationId, date)).build());
+        key.put("waiterEmail", AttributeValue.builder().s(waiterEmail).build());
+        return key;
+    }
+
+    private int readCount(AttributeValue value) {
+        return value != null && value.n() != null ? Integer.parseInt(value.n()) : 0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.restaurantapp.Repository;
+
+import com.restaurantapp.Model.WaiterProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Waiter profiles kept in memory for a short time. Every guest of a waiter opens the
+ * feedback page with the same name, image and rating, so one read serves many requests.
+ * A waiter's entry is dropped when a service rating for them is written in this
+ * container; elsewhere it expires after TTL_MILLIS.
+ */
+@Singleton
+public class WaiterProfileCache {
+    private static final Logger LOG = LoggerFactory.getLogger(WaiterProfileCache.class);
+
+    private static final long TTL_MILLIS = 60 * 1000L;
+
+    // Upper bound on the number of waiters whose profile is held in memory
+    private static final int MAX_PROFILES = 500;
+
+    private final WaiterRepository waiterRepository;
+
+    private final Map<String, Entry> profiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_PROFILES;
+        }
+    };
+
+    private static final class Entry {
+        private final WaiterProfile profile;
+        private final long loadedAt;
+
+        private Entry(WaiterProfile profile, long loadedAt) {
+            this.profile = profile;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    @Inject
+    public WaiterProfileCache(WaiterRepository waiterRepository) {
+        this.waiterRepository = waiterRepository;
+    }
+
+    /**
+     * Get a waiter's profile
+     * @param email The waiter's email
+     * @return The profile, with fallbacks for anything missing
+     */
+    public WaiterProfile getProfile(String email) {
+        long now = System.currentTimeMillis();
+        synchronized (profiles) {
+            Entry entry = profiles.get(email);
+            if (entry != null && now - entry.loadedAt <= TTL_MILLIS) {
+                return entry.profile;
+            }
+        }
+
+        // Read outside the lock so a slow read does not hold up other waiters
+        WaiterProfile profile = waiterRepository.getWaiterProfile(email);
+        if (email != null) {
+            synchronized (profiles) {
+                profiles.put(email, new Entry(profile, now));
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Drop a waiter's profile so the next request reads it again
+     * @param email The waiter's email
+     */
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        synchronized (profiles) {
+            if (profiles.remove(email) != null) {
+                LOG.info("Dropped cached profile of waiter {}", email);
+            }
+        }
+    }
+}
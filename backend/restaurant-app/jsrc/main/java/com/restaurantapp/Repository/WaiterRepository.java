@@ -1,6 +1,6 @@
 package com.restaurantapp.Repository;
 
-import software.amazon.awssdk.regions.Region;
+import com.restaurantapp.Model.WaiterProfile;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 import org.slf4j.Logger;
@@ -8,7 +8,10 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Singleton
@@ -18,124 +21,117 @@ public class WaiterRepository {
     private final String waiterTableName = System.getenv("waiter_table");
     private final String userTableName = System.getenv("user_table");
 
+    // Waiter table index: partition key locationId
+    private static final String WAITER_LOCATION_INDEX = "locationId-index";
+
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+    private static final String DEFAULT_IMAGE_URL = "https://s3-alpha-sig.figma.com/img/a852/9476/63ac9702acd3da9fa577cb0df4b4364d?Expires=1745798400&Key-Pair-Id=APKAQ4GOSFWCW27IBOMQ&Signature=Dhp19G~65Le6Q7KVSCZWBSstYLKrhG11TbscuuGG1eepNIUsJ5DqQHWJAhdflXrc0xiSYyC0zVcTvpkfRd-Ly-kqXeRjQVDg-xfn0vN0anQdyrc0vxI3esPm45bVtKj2JTT2plhmfL5KRLxsimDsfLLFPjTNbZGggRJ-q-WpWVI9vM4Doz-d7NZ~eaKFCK3mo6WI8m~wDLzjnP1HNj2p8EqvKI-SHwf0YF6y~ulAeZhMNV09-LDeJol74PbRfahOPxYhVTWQ5lCUATTIx67jHv0LXz8n2JAjgwSy9WTwuJdvHlCtSAwPn~-YpISxKBRx1RNUMVxVbDkd2I1LQQnREg__";
+
     @Inject
-    public WaiterRepository() {
-        this.dynamoDbClient = DynamoDbClient.builder()
-                .region(Region.AP_SOUTHEAST_1)
-                .build();
+    public WaiterRepository(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
     }
 
     /**
-     * Get waiter name by email
+     * Get the profile shown to guests leaving feedback. The name lives in the user table and
+     * the image and rating in the waiter table; both items are fetched with one BatchGetItem,
+     * projected to the attributes used here.
      * @param email The waiter's email
-     * @return The waiter's name or "Unknown Waiter" if not found
+     * @return The profile, with fallbacks for anything that is missing or cannot be read
      */
-    public String getWaiterName(String email) {
-        try {
-            LOG.info("Getting name for waiter: {}", email);
-
-            Map<String, AttributeValue> key = new HashMap<>();
-            key.put("email", AttributeValue.builder().s(email).build());
-
-            GetItemRequest request = GetItemRequest.builder()
-                    .tableName(userTableName)
-                    .key(key)
-                    .build();
-
-            GetItemResponse response = dynamoDbClient.getItem(request);
-
-            if (response.item().isEmpty() || !response.item().containsKey("firstName")) {
-                LOG.warn("Waiter name not found for email: {}", email);
-                return "Unknown Waiter";
-            }
-
-            String firstNamename = response.item().get("firstName").s();
-            String lastName = response.item().get("lastName").s();
-            String name  = firstNamename + " " + lastName;
-            LOG.info("Found name for waiter {}: {}", email, name);
-            return name;
-        } catch (Exception e) {
-            LOG.error("Error getting waiter name: {}", e.getMessage(), e);
-            return "Unknown Waiter";
+    public WaiterProfile getWaiterProfile(String email) {
+        WaiterProfile profile = new WaiterProfile("Unknown Waiter", DEFAULT_IMAGE_URL, "N/A");
+        if (email == null) {
+            return profile;
         }
-    }
 
-    /**
-     * Get waiter image URL by email
-     * @param email The waiter's email
-     * @return The waiter's image URL or default image if not found
-     */
-    public String getWaiterImageUrl(String email) {
         try {
-            LOG.info("Getting image URL for waiter: {}", email);
-
-            Map<String, AttributeValue> key = new HashMap<>();
-            key.put("email", AttributeValue.builder().s(email).build());
-
-            GetItemRequest request = GetItemRequest.builder()
-                    .tableName(waiterTableName)
-                    .key(key)
-                    .build();
+            LOG.info("Getting profile for waiter: {}", email);
+
+            Map<String, AttributeValue> key = Map.of("email", AttributeValue.builder().s(email).build());
+
+            Map<String, KeysAndAttributes> requestItems = new HashMap<>();
+            requestItems.put(userTableName, KeysAndAttributes.builder()
+                    .keys(key)
+                    .projectionExpression("firstName, lastName")
+                    .build());
+            requestItems.put(waiterTableName, KeysAndAttributes.builder()
+                    .keys(key)
+                    .projectionExpression("imageUrl, rating")
+                    .build());
+
+            Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+            for (int attempt = 0; attempt < MAX_BATCH_ATTEMPTS && !requestItems.isEmpty(); attempt++) {
+                BatchGetItemResponse response = dynamoDbClient.batchGetItem(BatchGetItemRequest.builder()
+                        .requestItems(requestItems)
+                        .build());
+                response.responses().forEach((table, items) ->
+                        responses.computeIfAbsent(table, name -> new ArrayList<>()).addAll(items));
+                requestItems = response.unprocessedKeys();
+            }
+            if (!requestItems.isEmpty()) {
+                LOG.warn("Part of the profile of waiter {} was not read: {}", email, requestItems.keySet());
+            }
 
-            GetItemResponse response = dynamoDbClient.getItem(request);
+            Map<String, AttributeValue> user = firstItem(responses.get(userTableName));
+            if (user.containsKey("firstName")) {
+                AttributeValue lastName = user.get("lastName");
+                profile.setName(lastName != null
+                        ? user.get("firstName").s() + " " + lastName.s()
+                        : user.get("firstName").s());
+            }
 
-            if (response.item().isEmpty() || !response.item().containsKey("imageUrl")) {
-                LOG.warn("Waiter image URL not found for email: {}", email);
-                return "https://s3-alpha-sig.figma.com/img/a852/9476/63ac9702acd3da9fa577cb0df4b4364d?Expires=1745798400&Key-Pair-Id=APKAQ4GOSFWCW27IBOMQ&Signature=Dhp19G~65Le6Q7KVSCZWBSstYLKrhG11TbscuuGG1eepNIUsJ5DqQHWJAhdflXrc0xiSYyC0zVcTvpkfRd-Ly-kqXeRjQVDg-xfn0vN0anQdyrc0vxI3esPm45bVtKj2JTT2plhmfL5KRLxsimDsfLLFPjTNbZGggRJ-q-WpWVI9vM4Doz-d7NZ~eaKFCK3mo6WI8m~wDLzjnP1HNj2p8EqvKI-SHwf0YF6y~ulAeZhMNV09-LDeJol74PbRfahOPxYhVTWQ5lCUATTIx67jHv0LXz8n2JAjgwSy9WTwuJdvHlCtSAwPn~-YpISxKBRx1RNUMVxVbDkd2I1LQQnREg__";
+            Map<String, AttributeValue> waiter = firstItem(responses.get(waiterTableName));
+            if (waiter.containsKey("imageUrl")) {
+                profile.setImageUrl(waiter.get("imageUrl").s());
+            }
+            AttributeValue rating = waiter.get("rating");
+            if (rating != null) {
+                // Ratings may be stored as numbers or strings
+                String value = rating.n() != null ? rating.n() : rating.s();
+                if (value != null) {
+                    profile.setRating(value);
+                }
             }
 
-            String imageUrl = response.item().get("imageUrl").s();
-            LOG.info("Found image URL for waiter {}: {}", email, imageUrl);
-            return imageUrl;
+            return profile;
         } catch (Exception e) {
-            LOG.error("Error getting waiter image URL: {}", e.getMessage(), e);
-            return "https://s3-alpha-sig.figma.com/img/a852/9476/63ac9702acd3da9fa577cb0df4b4364d?Expires=1745798400&Key-Pair-Id=APKAQ4GOSFWCW27IBOMQ&Signature=Dhp19G~65Le6Q7KVSCZWBSstYLKrhG11TbscuuGG1eepNIUsJ5DqQHWJAhdflXrc0xiSYyC0zVcTvpkfRd-Ly-kqXeRjQVDg-xfn0vN0anQdyrc0vxI3esPm45bVtKj2JTT2plhmfL5KRLxsimDsfLLFPjTNbZGggRJ-q-WpWVI9vM4Doz-d7NZ~eaKFCK3mo6WI8m~wDLzjnP1HNj2p8EqvKI-SHwf0YF6y~ulAeZhMNV09-LDeJol74PbRfahOPxYhVTWQ5lCUATTIx67jHv0LXz8n2JAjgwSy9WTwuJdvHlCtSAwPn~-YpISxKBRx1RNUMVxVbDkd2I1LQQnREg__";
+            LOG.error("Error getting waiter profile: {}", e.getMessage(), e);
+            return profile;
         }
     }
 
+    private static Map<String, AttributeValue> firstItem(List<Map<String, AttributeValue>> items) {
+        return items == null || items.isEmpty() ? Collections.emptyMap() : items.get(0);
+    }
+
     /**
-     * Get waiter rating by email
-     * @param email The waiter's email
-     * @return The waiter's rating or "N/A" if not found
+     * Get all waiters for a specific location
+     * @param locationId The location ID
+     * @return List of waiter emails for the location
      */
-    public String getWaiterRating(String email) {
+    public List<String> findEmailsByLocation(String locationId) {
         try {
-            LOG.info("Getting rating for waiter: {}", email);
+            LOG.info("Getting waiters for location: {}", locationId);
 
-            Map<String, AttributeValue> key = new HashMap<>();
-            key.put("email", AttributeValue.builder().s(email).build());
-
-            GetItemRequest request = GetItemRequest.builder()
+            QueryRequest queryRequest = QueryRequest.builder()
                     .tableName(waiterTableName)
-                    .key(key)
+                    .indexName(WAITER_LOCATION_INDEX)
+                    .keyConditionExpression("locationId = :locationId")
+                    .projectionExpression("email")
+                    .expressionAttributeValues(Map.of(":locationId", AttributeValue.builder().s(locationId).build()))
                     .build();
 
-            GetItemResponse response = dynamoDbClient.getItem(request);
-
-            if (response.item().isEmpty() || !response.item().containsKey("rating")) {
-                LOG.warn("Waiter rating not found for email: {}", email);
-                return "N/A";
-            }
-
-            // Try to get rating as a number first
-            if (response.item().get("rating").n() != null) {
-                String rating = response.item().get("rating").n();
-                LOG.info("Found rating for waiter {}: {}", email, rating);
-                return rating;
-            }
-
-            // Fall back to string if number is not available
-            if (response.item().get("rating").s() != null) {
-                String rating = response.item().get("rating").s();
-                LOG.info("Found rating for waiter {}: {}", email, rating);
-                return rating;
+            List<String> waiterEmails = new ArrayList<>();
+            for (Map<String, AttributeValue> item : dynamoDbClient.queryPaginator(queryRequest).items()) {
+                waiterEmails.add(item.get("email").s());
             }
 
-            LOG.warn("Could not parse rating for waiter: {}", email);
-            return "N/A";
+            LOG.info("Found {} waiters for location {}", waiterEmails.size(), locationId);
+            return waiterEmails;
         } catch (Exception e) {
-            LOG.error("Error getting waiter rating: {}", e.getMessage(), e);
-            return "N/A";
+            LOG.error("Error getting waiters by location: {}", e.getMessage(), e);
+            throw new RuntimeException("Error getting waiters by location", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package com.restaurantapp;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.restaurantapp.Controller.ApiResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Serialized response bodies for catalog-style GET routes, each stored with the content
+ * version it was built from and an ETag derived from its bytes. While the version is
+ * unchanged the body is served from memory, and a request whose If-None-Match carries the
+ * ETag gets a 304 without a body.
+ */
+final class ResponseCache {
+
+    static final String CACHE_CONTROL = "public, max-age=60";
+
+    // Upper bound on the number of distinct responses held, e.g. one per query string
+    private static final int MAX_ENTRIES = 200;
+
+    private static final class Entry {
+        private final String version;
+        private final String body;
+        private final String etag;
+
+        private Entry(String version, String body, String etag) {
+            this.version = version;
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Answer a GET from the cache, calling the loader only if nothing is cached for the
+     * current version. Only 200 responses are cached; anything else is returned as is.
+     * @param request The API Gateway request
+     * @param key Identifies the response, e.g. the route plus its parameters
+     * @param version The current version of the data behind the response
+     * @param loader Builds the response when the cache has none for this version
+     * @return The response, 304 if the client's copy is current
+     */
+    APIGatewayProxyResponseEvent respond(APIGatewayProxyRequestEvent request, String key, String version,
+                                         Supplier<APIGatewayProxyResponseEvent> loader) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        if (entry == null || !entry.version.equals(version)) {
+            APIGatewayProxyResponseEvent response = loader.get();
+            if (response.getStatusCode() == null || response.getStatusCode() != 200 || response.getBody() == null) {
+                return response;
+            }
+            entry = new Entry(version, response.getBody(), etagOf(response.getBody()));
+            synchronized (entries) {
+                entries.put(key, entry);
+            }
+        }
+
+        APIGatewayProxyResponseEvent response = matches(ifNoneMatch(request), entry.etag)
+                ? ApiResponse.notModified()
+                : ApiResponse.successSerialized(entry.body);
+        response.getHeaders().put("ETag", entry.etag);
+        response.getHeaders().put("Cache-Control", CACHE_CONTROL);
+        return response;
+    }
+
+    // Header names are matched case-insensitively; HTTP/2 clients send them in lower case
+    private static String ifNoneMatch(APIGatewayProxyRequestEvent request) {
+        Map<String, String> headers = request.getHeaders();
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if ("If-None-Match".equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    // If-None-Match may list several tags, mark them weak, or be *
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etagOf(String body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.restaurantapp;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Route table built once when the handler starts. Paths are stored as a trie of segments,
+ * so a lookup walks one node per path segment no matter how many routes are registered.
+ * Literal segments take precedence over {param} segments; if the literal branch has no
+ * route for the method, the param branch is tried.
+ */
+final class Router {
+
+    /** Wildcard method, used when a path answers every method the same way */
+    static final String ANY_METHOD = "*";
+
+    interface Handler {
+        /**
+         * Handle a matched request
+         * @param request The API Gateway request
+         * @param pathParams Values bound to the {param} segments of the route
+         * @param claims Token claims for protected routes, null for public ones
+         * @return The response
+         */
+        APIGatewayProxyResponseEvent handle(APIGatewayProxyRequestEvent request,
+                                            Map<String, String> pathParams,
+                                            Map<String, Object> claims);
+    }
+
+    static final class Route {
+        private final List<String> paramNames;
+        private final boolean authRequired;
+        private final Handler handler;
+
+        private Route(List<String> paramNames, boolean authRequired, Handler handler) {
+            this.paramNames = paramNames;
+            this.authRequired = authRequired;
+            this.handler = handler;
+        }
+
+        boolean isAuthRequired() {
+            return authRequired;
+        }
+
+        Handler getHandler() {
+            return handler;
+        }
+    }
+
+    static final class Match {
+        private final Route route;
+        private final Map<String, String> pathParams;
+
+        private Match(Route route, Map<String, String> pathParams) {
+            this.route = route;
+            this.pathParams = pathParams;
+        }
+
+        Route getRoute() {
+            return route;
+        }
+
+        Map<String, String> getPathParams() {
+            return pathParams;
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node param;
+        private final Map<String, Route> routesByMethod = new HashMap<>();
+    }
+
+    private final Node root = new Node();
+
+    Router publicRoute(String method, String pattern, Handler handler) {
+        return add(method, pattern, false, handler);
+    }
+
+    Router protectedRoute(String method, String pattern, Handler handler) {
+        return add(method, pattern, true, handler);
+    }
+
+    /**
+     * Register a route
+     * @param method HTTP method, or ANY_METHOD
+     * @param pattern Path such as /v1/reservations/{id}/order/{dishId}
+     * @param authRequired Whether the request must carry a valid token
+     * @param handler The handler to call
+     * @return This router
+     * @throws IllegalStateException if the method and pattern are already registered
+     */
+    Router add(String method, String pattern, boolean authRequired, Handler handler) {
+        Node node = root;
+        List<String> paramNames = new ArrayList<>();
+
+        for (String segment : splitPath(pattern)) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                paramNames.add(segment.substring(1, segment.length() - 1));
+                if (node.param == null) {
+                    node.param = new Node();
+                }
+                node = node.param;
+            } else {
+                node = node.literals.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+
+        if (node.routesByMethod.containsKey(method)) {
+            throw new IllegalStateException("Duplicate route: " + method + " " + pattern);
+        }
+        node.routesByMethod.put(method, new Route(Collections.unmodifiableList(paramNames), authRequired, handler));
+        return this;
+    }
+
+    /**
+     * Find the route for a request
+     * @param method HTTP method
+     * @param path Normalized request path
+     * @return The route and its bound path parameters, or null if nothing matches
+     */
+    Match match(String method, String path) {
+        List<String> segments = splitPath(path);
+        List<String> values = new ArrayList<>();
+
+        Route route = find(root, segments, 0, method, values);
+        if (route == null) {
+            return null;
+        }
+
+        Map<String, String> pathParams = new HashMap<>();
+        for (int i = 0; i < route.paramNames.size(); i++) {
+            pathParams.put(route.paramNames.get(i), values.get(i));
+        }
+        return new Match(route, pathParams);
+    }
+
+    private Route find(Node node, List<String> segments, int index, String method, List<String> values) {
+        if (index == segments.size()) {
+            Route route = node.routesByMethod.get(method);
+            return route != null ? route : node.routesByMethod.get(ANY_METHOD);
+        }
+
+        String segment = segments.get(index);
+
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            Route route = find(literal, segments, index + 1, method, values);
+            if (route != null) {
+                return route;
+            }
+        }
+
+        // Path parameters never bind an empty segment
+        if (node.param != null && !segment.isEmpty()) {
+            values.add(segment);
+            Route route = find(node.param, segments, index + 1, method, values);
+            if (route != null) {
+                return route;
+            }
+            values.remove(values.size() - 1);
+        }
+
+        return null;
+    }
+
+    // Splits on '/' without a regex; the leading slash and one trailing slash are ignored
+    private static List<String> splitPath(String path) {
+        List<String> segments = new ArrayList<>();
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+        int start = path.startsWith("/") ? 1 : 0;
+
+        while (start <= end) {
+            int slash = path.indexOf('/', start);
+            if (slash < 0 || slash > end) {
+                slash = end;
+            }
+            segments.add(path.substring(start, slash));
+            start = slash + 1;
+        }
+        return segments;
+    }
+}
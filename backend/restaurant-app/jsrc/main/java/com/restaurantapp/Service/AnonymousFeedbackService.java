@@ -4,8 +4,9 @@ import com.restaurantapp.Exception.UnauthorizedException;
 import com.restaurantapp.Model.AnonymousFeedbackAuthResponse;
 import com.restaurantapp.Model.Booking;
 import com.restaurantapp.Model.AnonymousFeedbackAuthRequest;
+import com.restaurantapp.Model.WaiterProfile;
 import com.restaurantapp.Repository.BookingRepository;
-import com.restaurantapp.Repository.WaiterRepository;
+import com.restaurantapp.Repository.WaiterProfileCache;
 
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -21,14 +22,14 @@ import java.util.UUID;
 public class AnonymousFeedbackService {
     private static final Logger LOG = LoggerFactory.getLogger(FeedbackService.class);
     private final BookingRepository bookingRepository;
-    private final WaiterRepository waiterRepository;
+    private final WaiterProfileCache waiterProfileCache;
     private final String jwtSecret = System.getenv("jwt_secret");
     private final long TOKEN_VALIDITY = 10 * 60 * 60 * 1000; // 10 hours in milliseconds
 
     @Inject
-    public AnonymousFeedbackService(BookingRepository bookingRepository, WaiterRepository waiterRepository) {
+    public AnonymousFeedbackService(BookingRepository bookingRepository, WaiterProfileCache waiterProfileCache) {
         this.bookingRepository = bookingRepository;
-        this.waiterRepository = waiterRepository;
+        this.waiterProfileCache = waiterProfileCache;
     }
 
     /**
@@ -58,17 +59,15 @@ public class AnonymousFeedbackService {
         String token = generateFeedbackToken(booking);
 
         // Get waiter details
-        String waiterName = waiterRepository.getWaiterName(booking.getWaiterEmail());
-        String waiterImageUrl = waiterRepository.getWaiterImageUrl(booking.getWaiterEmail());
-        String serviceRating = waiterRepository.getWaiterRating(booking.getWaiterEmail());
+        WaiterProfile waiterProfile = waiterProfileCache.getProfile(booking.getWaiterEmail());
 
         // Create response
         AnonymousFeedbackAuthResponse response = new AnonymousFeedbackAuthResponse();
         response.setAccessToken(token);
         response.setReservationId(reservationId);
-        response.setServiceRating(serviceRating);
-        response.setWaiterImageUrl(waiterImageUrl);
-        response.setWaiterName(waiterName);
+        response.setServiceRating(waiterProfile.getRating());
+        response.setWaiterImageUrl(waiterProfile.getImageUrl());
+        response.setWaiterName(waiterProfile.getName());
 
         LOG.info("Feedback authentication successful for reservation: {}", reservationId);
         return response;
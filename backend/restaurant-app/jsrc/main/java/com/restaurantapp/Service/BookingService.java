@@ -4,7 +4,10 @@ import com.restaurantapp.Exception.ConflictException;
 
 import com.restaurantapp.Exception.UnprocessableException;
 import com.restaurantapp.Model.*;
+import com.restaurantapp.Repository.AsyncCalls;
 import com.restaurantapp.Repository.BookingRepository;
+import com.restaurantapp.Repository.CartRepository;
+import com.restaurantapp.Repository.WaiterLoadRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,16 +18,22 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.format.ResolverStyle;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Singleton
 public class BookingService {
     private static final Logger LOG = LoggerFactory.getLogger(BookingService.class);
     private final BookingRepository bookingRepository;
+    private final WaiterLoadRepository waiterLoadRepository;
+    private final CartRepository cartRepository;
     private final List<TimeSlot> timeSlots;
 
     @Inject
-    public BookingService(BookingRepository bookingRepository) {
+    public BookingService(BookingRepository bookingRepository, WaiterLoadRepository waiterLoadRepository,
+                          CartRepository cartRepository) {
         this.bookingRepository = bookingRepository;
+        this.waiterLoadRepository = waiterLoadRepository;
+        this.cartRepository = cartRepository;
 
         // Initialize time slots
         this.timeSlots = new ArrayList<>();
@@ -38,6 +47,7 @@ public class BookingService {
     }
 
     public BookingResponse createBooking(BookingRequest request, String customerEmail) {
+        CompletableFuture<Map<String, WaiterLoad>> loads = null;
         try {
             LOG.info("Creating booking for customer: {}", customerEmail);
 
@@ -49,11 +59,6 @@ public class BookingService {
                 throw new IllegalArgumentException("Table number is required");
             }
 
-            // Validate table exists at location
-            if (!bookingRepository.isTableValidForLocation(request.getLocationId(), request.getTableNumber())) {
-                throw new IllegalArgumentException("Invalid table number for this location");
-            }
-
             if (request.getDate() == null || request.getDate().trim().isEmpty()) {
                 throw new IllegalArgumentException("Date is required");
             } else {
@@ -71,8 +76,9 @@ public class BookingService {
                 throw new IllegalArgumentException("Number of guests is required");
             }
 
+            int guests;
             try {
-                int guests = Integer.parseInt(request.getGuestsNumber());
+                guests = Integer.parseInt(request.getGuestsNumber());
                 if (guests < 1) {
                     throw new IllegalArgumentException("Number of guests must be greater than 0");
                 }
@@ -80,15 +86,6 @@ public class BookingService {
                 throw new IllegalArgumentException("Number of guests must be a valid number");
             }
 
-            // Validate table capacity
-            if (!bookingRepository.hasTableSufficientCapacity(
-                    request.getLocationId(),
-                    request.getTableNumber(),
-                    request.getGuestsNumber())) {
-                throw new IllegalArgumentException("This table does not have sufficient capacity for " +
-                        request.getGuestsNumber() + " guests");
-            }
-
             if (request.getTimeFrom() == null || request.getTimeFrom().trim().isEmpty()) {
                 throw new IllegalArgumentException("Start time is required");
             }
@@ -110,76 +107,77 @@ public class BookingService {
                 throw new IllegalArgumentException("Can Only Book For 90 minutes within given slot");
             }
 
-            // Get the table ID from the table number
-            String tableId = bookingRepository.getTableId(request.getLocationId(), request.getTableNumber());
-            if (tableId == null) {
-                throw new IllegalArgumentException("Could not find table ID for the given table number");
-            }
+            // The request itself is valid; the waiter loads only depend on its day and slot, so
+            // they are read while the layout is resolved and checked
+            loads = waiterLoadRepository.findLoadsForDayAsync(request.getLocationId(), request.getDate(), slotId);
 
-            // CHECK IF THE TABLE IS ALREADY BOOKED
-            boolean isAlreadyBooked = bookingRepository.isTableAlreadyBooked(
-                    request.getLocationId(),
-                    tableId,
-                    request.getDate(),
-                    slotId
-            );
+            // Tables, capacities, waiters and address of the location, from cache when warm;
+            // the table checks below run against it in memory
+            LocationLayout layout = bookingRepository.getLocationLayout(request.getLocationId());
 
-            if (isAlreadyBooked) {
-                throw new ConflictException("This table is already booked for the selected date and time slot");
+            // Validate table exists at location
+            Table table = layout.getTable(request.getTableNumber());
+            if (table == null) {
+                throw new IllegalArgumentException("Invalid table number for this location");
             }
 
-            // Get location address
-            String tempAddressAryan = bookingRepository.getLocationAddress(request.getLocationId());
-
-            if (tempAddressAryan.equals("Unknown Location")) {
-                throw new IllegalArgumentException("Invalid location ID");
+            // Validate table capacity
+            if (!hasSufficientCapacity(table, guests)) {
+                throw new IllegalArgumentException("This table does not have sufficient capacity for " +
+                        request.getGuestsNumber() + " guests");
             }
 
-            // Get a Algorithm for waiter
-            String waiterEmail = bookingRepository.findAvailableWaiterForSlot(
-                    request.getLocationId(),
-                    request.getDate(),
-                    slotId
-            );
-            if (waiterEmail == null) {
-                LOG.warn("No waiters available for location: {}", request.getLocationId());
-                throw new UnprocessableException("No waiters available for this location");
+            // Get the table ID from the table number
+            String tableId = table.getId();
+            if (tableId == null) {
+                throw new IllegalArgumentException("Could not find table ID for the given table number");
             }
 
-            LOG.info("Assigned waiter {} to booking for location {} on date {}",
-                    waiterEmail, request.getLocationId(), request.getDate());
+            String locationAddress = layout.getLocationAddress();
+            if (locationAddress == null) {
+                throw new IllegalArgumentException("Invalid location ID");
+            }
 
             // Generate a secret code for feedback
             String secretCode = generateSecretCode();
 
-            // Create booking entity
             Booking booking = new Booking();
             booking.setTableId(tableId);  // Use the tableId from the database, not the table number
             booking.setCustomerEmail(customerEmail);
             booking.setSlotId(slotId);
             booking.setDate(request.getDate());
-            booking.setWaiterEmail(waiterEmail);
             booking.setLocationId(request.getLocationId());
             booking.setNumberOfGuests(request.getGuestsNumber());
             booking.setSecretCode(secretCode);
-
-            // Save booking
-            Booking savedBooking = bookingRepository.createBooking(booking);
-
-            // Get location address
-            String locationAddress = bookingRepository.getLocationAddress(request.getLocationId());
-
-            if (locationAddress.equals("Unknown Location")) {
-                throw new IllegalArgumentException("Invalid location ID");
+            booking.setLocationAddress(locationAddress);
+            booking.setTimeSlot(getTimeSlotString(slotId));
+            booking.setTableNumber(request.getTableNumber());
+
+            // The booking, the table slot claim and the waiter's count go in one transaction;
+            // the next waiter is tried if a concurrent booking took the last table in the slot
+            boolean isCreated = false;
+            for (String waiterEmail : rankWaiters(layout, loads, request.getDate(), slotId)) {
+                booking.setWaiterEmail(waiterEmail);
+                if (bookingRepository.createBooking(booking)) {
+                    LOG.info("Assigned waiter {} to booking for location {} on date {}",
+                            waiterEmail, request.getLocationId(), request.getDate());
+                    isCreated = true;
+                    break;
+                }
             }
+            if (!isCreated) {
+                LOG.warn("No waiters available for location: {}", request.getLocationId());
+                throw new UnprocessableException("No waiters available for this location");
+            }
+            Booking savedBooking = booking;
 
             // Create response
             BookingResponse response = new BookingResponse();
             response.setId(savedBooking.getReservationId());
             response.setStatus(savedBooking.getStatus());
-            response.setLocationAddress(locationAddress);
+            response.setLocationAddress(savedBooking.getLocationAddress());
             response.setDate(savedBooking.getDate());
-            response.setTimeSlot(getTimeSlotString(slotId));
+            response.setTimeSlot(savedBooking.getTimeSlot());
             response.setGuestsNumber(savedBooking.getNumberOfGuests());
 
             LOG.info("Booking created successfully: {}", savedBooking.getReservationId());
@@ -198,7 +196,76 @@ public class BookingService {
         } catch (Exception e) {
             LOG.error("Error creating booking", e);
             throw new RuntimeException("Error creating booking: " + e.getMessage(), e);
+        } finally {
+            discard(loads);
+        }
+    }
+
+    /**
+     * Drop a waiter load read that a failed check made unnecessary; a read that was
+     * already joined is left as it is
+     * @param loads The pending loads, or null if none were started
+     */
+    private static void discard(CompletableFuture<Map<String, WaiterLoad>> loads) {
+        if (loads != null) {
+            loads.cancel(false);
+        }
+    }
+
+    /**
+     * Order the waiters at a location who still have room in the slot, least loaded first.
+     * Loads for every waiter come from one query; a small heap orders candidates by bookings
+     * for the day. The limit itself is enforced by the booking transaction.
+     * @param layout The location's layout, holding its waiter roster
+     * @param pendingLoads The waiter loads for the day, possibly still being read
+     * @param date The date
+     * @param slotId The time slot ID
+     * @return Candidate waiter emails, empty if every waiter is at MAX_TABLES_PER_WAITER
+     */
+    private List<String> rankWaiters(LocationLayout layout, CompletableFuture<Map<String, WaiterLoad>> pendingLoads,
+                                     String date, String slotId) {
+        String locationId = layout.getLocationId();
+        List<String> waiters = layout.getWaiterEmails();
+        List<String> ranked = new ArrayList<>();
+        if (waiters.isEmpty()) {
+            LOG.warn("No waiters available for location: {}", locationId);
+            return ranked;
+        }
+
+        Map<String, WaiterLoad> loads = AsyncCalls.join(pendingLoads);
+
+        PriorityQueue<WaiterLoad> candidates = new PriorityQueue<>(waiters.size(),
+                Comparator.comparingInt(WaiterLoad::getBookingsForDate)
+                        .thenComparing(WaiterLoad::getWaiterEmail));
+        for (String waiterEmail : waiters) {
+            WaiterLoad load = loads.getOrDefault(waiterEmail, new WaiterLoad(waiterEmail, 0, 0));
+            if (load.getTablesForSlot() < WaiterLoadRepository.MAX_TABLES_PER_WAITER) {
+                candidates.add(load);
+            }
+        }
+        while (!candidates.isEmpty()) {
+            ranked.add(candidates.poll().getWaiterEmail());
+        }
+
+        if (ranked.isEmpty()) {
+            LOG.warn("No available waiters for location {} on date {} for slot {}. All waiters have reached their maximum table limit.",
+                    locationId, date, slotId);
         }
+        return ranked;
+    }
+
+    /**
+     * Check a table's capacity against a party size
+     * @param table The table
+     * @param guests The number of guests
+     * @return true if the table is known to seat the party
+     */
+    private boolean hasSufficientCapacity(Table table, int guests) {
+        if (table.getCapacity() <= 0) {
+            LOG.warn("Capacity not found for table {} at location {}", table.getTableNumber(), table.getLocationId());
+            return false;
+        }
+        return table.getCapacity() >= guests;
     }
 
     /**
@@ -304,20 +371,8 @@ public class BookingService {
         return "Unknown time slot";
     }
 
-    private String getRandomWaiter() {
-        List<String> waiters = bookingRepository.getWaiterEmails();
-        if (waiters.isEmpty()) {
-            return null;
-        }
-
-        Random random = new Random();
-        int index = random.nextInt(waiters.size());
-        return waiters.get(index);
-    }
-
-
-
     public BookingResponse updateBooking(String reservationId, BookingUpdateRequest request, String customerEmail) {
+        CompletableFuture<Map<String, WaiterLoad>> loads = null;
         try {
             LOG.info("Updating booking {} for customer: {}", reservationId, customerEmail);
 
@@ -371,6 +426,12 @@ public class BookingService {
                 // Use existing number of guests if not provided
                 newGuestsNumber = existingBooking.getNumberOfGuests();
             }
+            int newGuests;
+            try {
+                newGuests = Integer.parseInt(newGuestsNumber);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number format for number of guests");
+            }
 
             // Find the slot ID based on the start time if provided
             String newSlotId = existingBooking.getSlotId();
@@ -398,64 +459,70 @@ public class BookingService {
             // Get the table ID from the existing booking
             String tableId = existingBooking.getTableId();
             String locationId = existingBooking.getLocationId();
+            boolean isSlotChanged = !newDate.equals(existingBooking.getDate())
+                    || !newSlotId.equals(existingBooking.getSlotId());
+
+            // The request is valid and owned by the caller; a moved booking needs the waiter loads
+            // of its new slot, so read them alongside the layout
+            if (isSlotChanged) {
+                loads = waiterLoadRepository.findLoadsForDayAsync(locationId, newDate, newSlotId);
+            }
+            LocationLayout layout = bookingRepository.getLocationLayout(locationId);
+            Table table = layout.getTableById(tableId);
 
             // Validate table capacity for the new number of guests
-            if (!bookingRepository.hasTableSufficientCapacity(
-                    locationId,
-                    bookingRepository.getTableNumber(locationId, tableId), // We need to add this method to get table number from tableId
-                    newGuestsNumber)) {
+            if (table == null || !hasSufficientCapacity(table, newGuests)) {
                 throw new IllegalArgumentException("This table does not have sufficient capacity for " +
                         newGuestsNumber + " guests");
             }
 
-            // Check if the table is already booked for the new date and time slot (excluding current booking)
-            boolean isAlreadyBooked = bookingRepository.isTableAlreadyBookedExcludingCurrent(
-                    locationId,
-                    tableId,
-                    newDate,
-                    newSlotId,
-                    reservationId
-            );
+            String oldDate = existingBooking.getDate();
+            String oldSlotId = existingBooking.getSlotId();
+            String oldWaiterEmail = existingBooking.getWaiterEmail();
 
-            if (isAlreadyBooked) {
-                throw new ConflictException("This table is already booked for the selected date and time slot");
+            existingBooking.setDate(newDate);
+            existingBooking.setSlotId(newSlotId);
+            existingBooking.setNumberOfGuests(newGuestsNumber);
+            existingBooking.setTimeSlot(getTimeSlotString(newSlotId));
+            existingBooking.setTableNumber(table.getTableNumber());
+            if (layout.getLocationAddress() != null) {
+                existingBooking.setLocationAddress(layout.getLocationAddress());
             }
 
-            // If date or time slot changed, we may need to reassign a waiter
-            String waiterEmail = existingBooking.getWaiterEmail();
-            if (!newDate.equals(existingBooking.getDate()) || !newSlotId.equals(existingBooking.getSlotId())) {
-                // Get a new waiter for the new date and time slot
-                waiterEmail = bookingRepository.findAvailableWaiterForSlot(
-                        locationId,
-                        newDate,
-                        newSlotId
-                );
-
-                if (waiterEmail == null) {
+            // The booking, the claims on its old and new slots and the waiter counts are written
+            // in one transaction; if the date or time slot changed, a waiter is reassigned
+            if (isSlotChanged) {
+                boolean isUpdated = false;
+                for (String waiterEmail : rankWaiters(layout, loads, newDate, newSlotId)) {
+                    existingBooking.setWaiterEmail(waiterEmail);
+                    if (bookingRepository.updateBooking(existingBooking, oldDate, oldSlotId, oldWaiterEmail)) {
+                        isUpdated = true;
+                        break;
+                    }
+                }
+                if (!isUpdated) {
                     LOG.warn("No waiters available for location: {}", locationId);
                     throw new UnprocessableException("No waiters available for this location at the requested time");
                 }
+            } else {
+                // No counters move, so only a conflict can stop this write
+                bookingRepository.updateBooking(existingBooking, oldDate, oldSlotId, oldWaiterEmail);
             }
+            Booking updatedBooking = existingBooking;
 
-            // Update the booking
-            existingBooking.setDate(newDate);
-            existingBooking.setSlotId(newSlotId);
-            existingBooking.setNumberOfGuests(newGuestsNumber);
-            existingBooking.setWaiterEmail(waiterEmail);
-
-            // Save the updated booking
-            Booking updatedBooking = bookingRepository.updateBooking(existingBooking);
-
-            // Get location address
-            String locationAddress = bookingRepository.getLocationAddress(locationId);
+            if (isSlotChanged) {
+                // A cart for this booking shows its date and time, so move those along too
+                cartRepository.updateReservationDetails(customerEmail, reservationId,
+                        updatedBooking.getDate(), updatedBooking.getTimeSlot());
+            }
 
             // Create response
             BookingResponse response = new BookingResponse();
             response.setId(updatedBooking.getReservationId());
             response.setStatus(updatedBooking.getStatus());
-            response.setLocationAddress(locationAddress);
+            response.setLocationAddress(updatedBooking.getLocationAddress());
             response.setDate(updatedBooking.getDate());
-            response.setTimeSlot(getTimeSlotString(newSlotId));
+            response.setTimeSlot(updatedBooking.getTimeSlot());
             response.setGuestsNumber(updatedBooking.getNumberOfGuests());
 
             LOG.info("Booking updated successfully: {}", updatedBooking.getReservationId());
@@ -472,6 +539,8 @@ public class BookingService {
         } catch (Exception e) {
             LOG.error("Error updating booking", e);
             throw new RuntimeException("Error updating booking: " + e.getMessage(), e);
+        } finally {
+            discard(loads);
         }
     }
 }
\ No newline at end of file
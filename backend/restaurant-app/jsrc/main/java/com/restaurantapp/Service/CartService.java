@@ -1,6 +1,11 @@
 package com.restaurantapp.Service;
 
+import com.restaurantapp.Exception.ForbiddenException;
+import com.restaurantapp.Exception.NotFoundException;
+import com.restaurantapp.Exception.UnprocessableException;
 import com.restaurantapp.Model.Cart;
+import com.restaurantapp.Model.CartBatchRequest;
+import com.restaurantapp.Model.CartBatchResponse;
 import com.restaurantapp.Model.Dish;
 import com.restaurantapp.Model.Order;
 import com.restaurantapp.Repository.CartRepository;
@@ -12,11 +17,18 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Singleton
 public class CartService {
     private static final Logger LOG = LoggerFactory.getLogger(CartService.class);
+
+    // Keeps the cart's update expression well within DynamoDB's size limit
+    private static final int MAX_BATCH_LINES = 50;
+
     private final CartRepository cartRepository;
     private final OrderRepository orderRepository;
     private final DishesRepository dishesRepository;
@@ -24,11 +36,11 @@ public class CartService {
 
     @Inject
     public CartService(CartRepository cartRepository, OrderRepository orderRepository,
-                       DishesRepository dishesRepository) {
+                       DishesRepository dishesRepository, ReservationRepository reservationRepository) {
         this.cartRepository = cartRepository;
         this.orderRepository = orderRepository;
         this.dishesRepository = dishesRepository;
-        this.reservationRepository = new ReservationRepository();
+        this.reservationRepository = reservationRepository;
     }
 
     public boolean addDishToCart(String customerEmail, String reservationId, String dishId) {
@@ -40,6 +52,7 @@ public class CartService {
             LOG.warn("Reservation {} not found", reservationId);
             return false;
         }
+        requireOwnReservation(reservationDetails, customerEmail, reservationId);
 
         String locationId = reservationDetails.get("locationId");
         if (locationId == null || locationId.isBlank()) {
@@ -70,25 +83,125 @@ public class CartService {
             return false;
         }
 
-        // Check if customer already has a cart with a different location
-        Cart existingCart = cartRepository.getCartByCustomerEmail(customerEmail);
-        if (existingCart != null && existingCart.getLocationId() != null
-                && !existingCart.getLocationId().equals(locationId)) {
-            LOG.warn("Customer {} already has a cart for location {}, cannot add dish from location {}",
-                    customerEmail, existingCart.getLocationId(), locationId);
-            return false;
+        // Add dish to cart; the write itself refuses a cart already holding another location's dishes
+        return cartRepository.addDishToCart(customerEmail, reservationId, reservationDetails, dish);
+    }
+
+    /**
+     * Apply several dish quantity changes to the customer's cart. All dishes are validated
+     * with one batched read and the valid changes are applied with one cart write.
+     * @param customerEmail The customer's email
+     * @param reservationId The reservation the cart is for
+     * @param lines The changes, one per dish
+     * @return The outcome of each change, in request order
+     * @throws IllegalArgumentException if there are no changes or too many
+     * @throws NotFoundException if the reservation does not exist
+     * @throws ForbiddenException if the reservation belongs to another customer
+     * @throws com.restaurantapp.Exception.ConflictException if the cart holds dishes from another location
+     */
+    public CartBatchResponse applyCartChanges(String customerEmail, String reservationId,
+                                              List<CartBatchRequest.Line> lines) {
+        LOG.info("Applying {} cart changes for customer {} with reservation {}",
+                lines == null ? 0 : lines.size(), customerEmail, reservationId);
+
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("At least one dish is required");
+        }
+        if (lines.size() > MAX_BATCH_LINES) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_LINES + " dishes can be changed at once");
+        }
+
+        Map<String, String> reservationDetails = reservationRepository.getReservationDetails(reservationId);
+        if (reservationDetails == null) {
+            throw new NotFoundException("Reservation not found");
+        }
+        requireOwnReservation(reservationDetails, customerEmail, reservationId);
+        String locationId = reservationDetails.get("locationId");
+        if (locationId == null || locationId.isBlank()) {
+            throw new UnprocessableException("Reservation does not have a location");
+        }
+
+        CartBatchResponse response = new CartBatchResponse(reservationId);
+        Map<String, CartBatchResponse.LineResult> pending = new LinkedHashMap<>();
+        for (CartBatchRequest.Line line : lines) {
+            String dishId = line.getDishId();
+            CartBatchResponse.LineResult result = new CartBatchResponse.LineResult(dishId, line.getDishQuantity(),
+                    CartBatchResponse.LineResult.REJECTED, null);
+            response.getDishItems().add(result);
+
+            if (dishId == null || dishId.isBlank()) {
+                result.setMessage("Dish ID is required");
+            } else if (line.getDishQuantity() == 0) {
+                result.setMessage("Quantity must not be zero");
+            } else if (pending.containsKey(dishId)) {
+                result.setMessage("Dish appears more than once in the request");
+            } else {
+                pending.put(dishId, result);
+            }
+        }
+
+        Map<String, Dish> dishes = pending.isEmpty()
+                ? Collections.emptyMap()
+                : dishesRepository.getDishesByIds(pending.keySet());
+
+        Map<Dish, Integer> changes = new LinkedHashMap<>();
+        int applied = 0;
+        for (CartBatchResponse.LineResult result : pending.values()) {
+            Dish dish = dishes.get(result.getDishId());
+            if (dish == null) {
+                result.setMessage("Dish not found");
+            } else if (dish.getLocationId() == null || !dish.getLocationId().equals(locationId)) {
+                result.setMessage("Dish is not available at this location");
+            } else if (result.getRequestedQuantity() > 0 && !dish.isState()) {
+                // Dishes on stop can still be taken out of the cart
+                result.setMessage("Dish is not available");
+            } else {
+                changes.put(dish, result.getRequestedQuantity());
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            Map<String, Integer> quantities =
+                    cartRepository.applyCartChanges(customerEmail, reservationId, reservationDetails, changes);
+            for (Dish dish : changes.keySet()) {
+                CartBatchResponse.LineResult result = pending.get(dish.getDishId());
+                Integer quantity = quantities.get(dish.getDishId());
+                if (quantity == null) {
+                    result.setMessage("Dish is not in the cart");
+                    continue;
+                }
+                result.setStatus(CartBatchResponse.LineResult.APPLIED);
+                result.setDishQuantity(quantity);
+                applied++;
+            }
         }
 
-        // Add dish to cart
-        return cartRepository.addDishToCart(customerEmail, reservationId, dish);
+        LOG.info("Applied {} of {} cart changes for customer {}", applied, lines.size(), customerEmail);
+        return response;
+    }
+
+    /**
+     * Make sure a cart is only bound to the caller's own reservation
+     * @param reservationDetails The reservation's details
+     * @param customerEmail The caller's email
+     * @param reservationId The reservation ID
+     * @throws ForbiddenException if the reservation belongs to another customer
+     */
+    private void requireOwnReservation(Map<String, String> reservationDetails, String customerEmail,
+                                       String reservationId) {
+        if (!customerEmail.equals(reservationDetails.get("customerEmail"))) {
+            LOG.warn("Customer {} tried to order for reservation {} of another customer", customerEmail, reservationId);
+            throw new ForbiddenException("You are not allowed to pre-order for this reservation");
+        }
     }
 
     public Cart getCart(String customerEmail) {
         LOG.info("Fetching cart for customer: {}", customerEmail);
         Cart cart = cartRepository.getCartByCustomerEmail(customerEmail);
 
-        if (cart != null && cart.getReservationId() != null) {
-            // Ensure we have the latest reservation details
+        // The cart keeps the booking's address and time slot from when it was created, and
+        // booking updates move them along, so only carts created before that need a lookup
+        if (cart != null && cart.getReservationId() != null && isMissingReservationDetails(cart)) {
             updateCartWithReservationDetails(cart);
         }
 
@@ -133,40 +246,26 @@ public class CartService {
         LOG.info("Cart contains {} items for location {}",
                 cart.getOrderItems().size(), cart.getLocationId());
 
-        // Ensure we have the latest reservation details
-        updateCartWithReservationDetails(cart);
-
-        LOG.info("Submitting order with address: {}, timeSlot: {}", cart.getAddress(), cart.getTimeSlot());
-
-        // Create order from cart
-        String orderId = orderRepository.createOrderFromCart(cart);
-        if (orderId == null) {
-            LOG.error("Failed to create order for customer: {}", customerEmail);
-            return null;
+        // The cart keeps the booking's details, so only carts created before that need a lookup
+        if (isMissingReservationDetails(cart)) {
+            updateCartWithReservationDetails(cart);
         }
 
-        LOG.info("Created order with ID: {}", orderId);
-
-        // Clear the cart
-        boolean cleared = cartRepository.clearCart(customerEmail);
-        if (!cleared) {
-            LOG.warn("Failed to clear cart for customer: {}", customerEmail);
-        } else {
-            LOG.info("Cart cleared successfully for customer: {}", customerEmail);
-        }
+        LOG.info("Submitting order with address: {}, timeSlot: {}", cart.getAddress(), cart.getTimeSlot());
 
-        // Return the created order
-        Order order = orderRepository.getOrderById(orderId);
-        if (order == null) {
-            LOG.error("Failed to retrieve created order with ID: {}", orderId);
-        } else {
-            LOG.info("Retrieved order with ID: {}, address: {}, timeSlot: {}",
-                    order.getId(), order.getAddress(), order.getTimeSlot());
-        }
+        // Create the order, clear the cart and record the pre-order on the reservation in one write
+        Order order = orderRepository.submitOrder(cart);
+        LOG.info("Created order with ID: {}, address: {}, timeSlot: {}",
+                order.getId(), order.getAddress(), order.getTimeSlot());
 
         return order;
     }
 
+    private boolean isMissingReservationDetails(Cart cart) {
+        return cart.getAddress() == null || cart.getAddress().isBlank()
+                || cart.getTimeSlot() == null || cart.getTimeSlot().isBlank();
+    }
+
     /**
      * Update cart with reservation details
      */
@@ -214,30 +313,21 @@ public class CartService {
     public boolean updateCartDetails(String customerEmail, String address, String timeSlot) {
         LOG.info("Updating cart details for customer: {}", customerEmail);
 
-        Cart cart = cartRepository.getCartByCustomerEmail(customerEmail);
-        if (cart == null) {
-            LOG.warn("No cart found for customer: {}", customerEmail);
-            return false;
-        }
-
-        boolean updated = false;
-
+        String newAddress = null;
         if (address != null && !address.isBlank()) {
-            cart.setAddress(address);
-            updated = true;
+            newAddress = address;
             LOG.info("Updated cart address to: {}", address);
         }
 
+        String newTimeSlot = null;
         if (timeSlot != null && !timeSlot.isBlank()) {
-            cart.setTimeSlot(timeSlot);
-            updated = true;
+            newTimeSlot = timeSlot;
             LOG.info("Updated cart timeSlot to: {}", timeSlot);
         }
 
-        if (updated) {
-            return cartRepository.updateCart(cart);
+        if (newAddress == null && newTimeSlot == null) {
+            return true;
         }
-
-        return true;
+        return cartRepository.updateCartDetails(customerEmail, newAddress, newTimeSlot);
     }
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.restaurantapp.Service;
 import com.restaurantapp.Exception.UnauthorizedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
 import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
@@ -10,6 +12,7 @@ import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -20,34 +23,80 @@ public class CognitoService
 {
     private static final Logger LOG = LoggerFactory.getLogger(CognitoService.class);
 
+    private static final String CLIENT_NAME = "restaurant-app-client";
+
     private final CognitoIdentityProviderClient cognitoClient;
-    private final String userPoolId;
-    private final String clientId;
+    private final String poolName = System.getenv("cognito_pool");
+
+    // Taken from cognito_user_pool_id and cognito_client_id; looked up by name on first use
+    // only if not configured, so creating the service never calls Cognito
+    private String userPoolId = System.getenv("cognito_user_pool_id");
+    private String clientId = System.getenv("cognito_client_id");
+    private CognitoTokenVerifier tokenVerifier;
+
+    // Upper bound on the number of users whose email is remembered by sub
+    private static final int MAX_CACHED_EMAILS = 1000;
+    private final Map<String, String> emailsBySub = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_CACHED_EMAILS;
+        }
+    };
 
     @Inject
     public CognitoService() {
         // Initialize Cognito client
         this.cognitoClient = CognitoIdentityProviderClient.builder()
                 .region(Region.AP_SOUTHEAST_1)
+                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                .httpClientBuilder(UrlConnectionHttpClient.builder())
                 .build();
+    }
 
-        // Find user pool ID by name
-        String poolName = System.getenv("cognito_pool");
-        this.userPoolId = findUserPoolIdByName(poolName);
-        LOG.info("User Pool ID: {}", this.userPoolId);
-
-        if (this.userPoolId == null || this.userPoolId.isEmpty()) {
-            throw new RuntimeException("Could not find user pool with name: " + poolName);
+    /**
+     * Gets the user pool ID, looking it up by pool name the first time if it is not configured.
+     *
+     * @return The user pool ID
+     * @throws RuntimeException if the ID is not configured and the pool cannot be found
+     */
+    private synchronized String getUserPoolId() {
+        if (userPoolId == null || userPoolId.isEmpty()) {
+            LOG.warn("cognito_user_pool_id is not configured, looking up user pool by name");
+            String foundId = findUserPoolIdByName(poolName);
+            if (foundId == null || foundId.isEmpty()) {
+                throw new RuntimeException("Could not find user pool with name: " + poolName);
+            }
+            userPoolId = foundId;
+            LOG.info("User Pool ID: {}", userPoolId);
         }
+        return userPoolId;
+    }
 
-        // Find client ID by name
-        String clientName = "restaurant-app-client";
-        this.clientId = findClientIdByName(this.userPoolId, clientName);
-        LOG.info("Client ID: {}", this.clientId);
+    /**
+     * Gets the app client ID, looking it up by client name the first time if it is not configured.
+     *
+     * @return The client ID
+     * @throws RuntimeException if the ID is not configured and the client cannot be found
+     */
+    private synchronized String getClientId() {
+        if (clientId == null || clientId.isEmpty()) {
+            LOG.warn("cognito_client_id is not configured, looking up client by name");
+            String poolId = getUserPoolId();
+            String foundId = findClientIdByName(poolId, CLIENT_NAME);
+            if (foundId == null || foundId.isEmpty()) {
+                throw new RuntimeException("Could not find client with name: " + CLIENT_NAME + " in user pool: " + poolId);
+            }
+            clientId = foundId;
+            LOG.info("Client ID: {}", clientId);
+        }
+        return clientId;
+    }
 
-        if (this.clientId == null || this.clientId.isEmpty()) {
-            throw new RuntimeException("Could not find client with name: " + clientName + " in user pool: " + this.userPoolId);
+    private synchronized CognitoTokenVerifier getTokenVerifier() {
+        if (tokenVerifier == null) {
+            tokenVerifier = CognitoTokenVerifier.forUserPool(Region.AP_SOUTHEAST_1.id(), getUserPoolId(), getClientId());
         }
+        return tokenVerifier;
     }
 
     /**
@@ -64,9 +113,7 @@ public class CognitoService
                     .maxResults(60)
                     .build();
 
-            ListUserPoolsResponse listPoolsResponse = cognitoClient.listUserPools(listPoolsRequest);
-
-            for (UserPoolDescriptionType pool : listPoolsResponse.userPools()) {
+            for (UserPoolDescriptionType pool : cognitoClient.listUserPoolsPaginator(listPoolsRequest).userPools()) {
                 LOG.debug("Found user pool: {} with ID: {}", pool.name(), pool.id());
 
                 if (pool.name().equals(poolName)) {
@@ -98,9 +145,7 @@ public class CognitoService
                     .maxResults(60)
                     .build();
 
-            ListUserPoolClientsResponse listClientsResponse = cognitoClient.listUserPoolClients(listClientsRequest);
-
-            for (UserPoolClientDescription client : listClientsResponse.userPoolClients()) {
+            for (UserPoolClientDescription client : cognitoClient.listUserPoolClientsPaginator(listClientsRequest).userPoolClients()) {
                 LOG.debug("Found client: {} with ID: {}", client.clientName(), client.clientId());
 
                 if (client.clientName().equals(clientName)) {
@@ -134,7 +179,7 @@ public class CognitoService
 
             // Create signup request
             SignUpRequest signUpRequest = SignUpRequest.builder()
-                    .clientId(clientId)
+                    .clientId(getClientId())
                     .username(email)
                     .password(password)
                     .userAttributes(emailAttribute)
@@ -146,7 +191,7 @@ public class CognitoService
 
             // Auto-confirm the user
             AdminConfirmSignUpRequest confirmRequest = AdminConfirmSignUpRequest.builder()
-                    .userPoolId(userPoolId)
+                    .userPoolId(getUserPoolId())
                     .username(email)
                     .build();
 
@@ -180,8 +225,8 @@ public class CognitoService
 
             // Create auth request
             AdminInitiateAuthRequest authRequest = AdminInitiateAuthRequest.builder()
-                    .userPoolId(userPoolId)
-                    .clientId(clientId)
+                    .userPoolId(getUserPoolId())
+                    .clientId(getClientId())
                     .authFlow(AuthFlowType.ADMIN_USER_PASSWORD_AUTH)
                     .authParameters(authParams)
                     .build();
@@ -209,39 +254,75 @@ public class CognitoService
     }
 
     /**
-     * Validates an access token and returns the claims if valid.
+     * Validates an access token locally and returns the claims if valid. The token's
+     * signature, expiry, issuer and client are checked without calling Cognito.
      *
      * @param accessToken The access token to validate
      * @return Map containing the token claims if valid, null otherwise
      */
     public Map<String, Object> validateAccessToken(String accessToken) {
         try {
-            // Use AWS SDK to validate the token
-            GetUserRequest getUserRequest = GetUserRequest.builder()
-                    .accessToken(accessToken)
-                    .build();
-
-            GetUserResponse getUserResponse = cognitoClient.getUser(getUserRequest);
-
-            // If we get here, the token is valid
-            Map<String, Object> claims = new HashMap<>();
-            claims.put("username", getUserResponse.username());
-
-            // Add user attributes
-            getUserResponse.userAttributes().forEach(attribute -> {
-                claims.put(attribute.name(), attribute.value());
-            });
+            Map<String, Object> claims = getTokenVerifier().verify(accessToken);
+            if (claims == null) {
+                return null;
+            }
 
+            String email = resolveEmail(claims, accessToken);
+            if (email != null) {
+                claims.put("email", email);
+            }
             return claims;
-        } catch (NotAuthorizedException e) {
-            LOG.warn("Invalid or expired token");
-            return null;
         } catch (Exception e) {
             LOG.error("Error validating token", e);
             return null;
         }
     }
 
+    /**
+     * Access tokens carry no email claim unless a pre token generation trigger adds one.
+     * Users are created with their email as the username, so the username claim is used
+     * next; only if that is not an email is GetUser called, once per user per container.
+     *
+     * @param claims The verified token claims
+     * @param accessToken The access token
+     * @return The user's email, or null if it cannot be determined
+     */
+    private String resolveEmail(Map<String, Object> claims, String accessToken) {
+        Object email = claims.get("email");
+        if (email instanceof String) {
+            return (String) email;
+        }
+
+        Object username = claims.get("username");
+        if (username instanceof String && ((String) username).contains("@")) {
+            return (String) username;
+        }
+
+        String sub = (String) claims.get("sub");
+        synchronized (emailsBySub) {
+            String cached = emailsBySub.get(sub);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        GetUserResponse getUserResponse = cognitoClient.getUser(GetUserRequest.builder()
+                .accessToken(accessToken)
+                .build());
+        String resolved = getUserResponse.userAttributes().stream()
+                .filter(attribute -> "email".equals(attribute.name()))
+                .map(AttributeType::value)
+                .findFirst()
+                .orElse(null);
+
+        if (resolved != null) {
+            synchronized (emailsBySub) {
+                emailsBySub.put(sub, resolved);
+            }
+        }
+        return resolved;
+    }
+
     /**
      * Refreshes tokens using a refresh token.
      *
@@ -258,7 +339,7 @@ public class CognitoService
 
             // Create auth request
             InitiateAuthRequest authRequest = InitiateAuthRequest.builder()
-                    .clientId(clientId)
+                    .clientId(getClientId())
                     .authFlow(AuthFlowType.REFRESH_TOKEN_AUTH)
                     .authParameters(authParams)
                     .build();
@@ -0,0 +1,145 @@
+package com.restaurantapp.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Verifies Cognito access tokens locally. The signature is checked against the user pool's
+ * JSON Web Key Set, which is downloaded once and cached; it is downloaded again only when a
+ * token is signed with a key ID that is not in the cached set, i.e. after key rotation.
+ * Expiry, issuer, token use and client ID are checked from the token itself.
+ */
+public class CognitoTokenVerifier {
+    private static final Logger LOG = LoggerFactory.getLogger(CognitoTokenVerifier.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // A token with an unknown key ID triggers at most one key set download per interval
+    private static final long MIN_REFRESH_INTERVAL_MILLIS = 60 * 1000L;
+    private static final long ALLOWED_CLOCK_SKEW_SECONDS = 30;
+    private static final int TIMEOUT_MILLIS = 3000;
+
+    private final String issuer;
+    private final String clientId;
+    private final String jwksUrl;
+
+    private Map<String, Key> keysById = new HashMap<>();
+    private long lastRefresh;
+
+    /**
+     * @param issuer Expected iss claim, https://cognito-idp.{region}.amazonaws.com/{userPoolId}
+     * @param clientId Expected client_id claim
+     * @param jwksUrl Where to read the key set; a file: URL can point at a local key set
+     */
+    public CognitoTokenVerifier(String issuer, String clientId, String jwksUrl) {
+        this.issuer = issuer;
+        this.clientId = clientId;
+        this.jwksUrl = jwksUrl;
+    }
+
+    /**
+     * Build a verifier for a Cognito user pool
+     * @param region The AWS region of the pool
+     * @param userPoolId The user pool ID
+     * @param clientId The app client ID
+     * @return The verifier
+     */
+    public static CognitoTokenVerifier forUserPool(String region, String userPoolId, String clientId) {
+        String issuer = "https://cognito-idp." + region + ".amazonaws.com/" + userPoolId;
+        return new CognitoTokenVerifier(issuer, clientId, issuer + "/.well-known/jwks.json");
+    }
+
+    /**
+     * Verify an access token
+     * @param accessToken The access token
+     * @return The token claims, or null if the token is invalid or expired
+     */
+    public Map<String, Object> verify(String accessToken) {
+        try {
+            Claims claims = Jwts.parser()
+                    .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                        @Override
+                        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                            // Cognito signs with RS256 only; anything else is rejected before key lookup
+                            if (!"RS256".equals(header.getAlgorithm())) {
+                                throw new JwtException("Unexpected signing algorithm: " + header.getAlgorithm());
+                            }
+                            return findKey(header.getKeyId());
+                        }
+                    })
+                    .setAllowedClockSkewSeconds(ALLOWED_CLOCK_SKEW_SECONDS)
+                    .requireIssuer(issuer)
+                    .require("token_use", "access")
+                    .require("client_id", clientId)
+                    .parseClaimsJws(accessToken)
+                    .getBody();
+
+            return new HashMap<>(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            LOG.warn("Invalid or expired token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized Key findKey(String keyId) {
+        Key key = keysById.get(keyId);
+        if (key == null && System.currentTimeMillis() - lastRefresh >= MIN_REFRESH_INTERVAL_MILLIS) {
+            LOG.info("Signing key {} not cached, downloading key set", keyId);
+            keysById = loadKeys();
+            lastRefresh = System.currentTimeMillis();
+            key = keysById.get(keyId);
+        }
+        if (key == null) {
+            throw new JwtException("Unknown signing key: " + keyId);
+        }
+        return key;
+    }
+
+    private Map<String, Key> loadKeys() {
+        try {
+            URLConnection connection = new URL(jwksUrl).openConnection();
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+
+            JsonNode jwks;
+            try (InputStream inputStream = connection.getInputStream()) {
+                jwks = OBJECT_MAPPER.readTree(inputStream);
+            }
+
+            Map<String, Key> keys = new HashMap<>();
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            for (JsonNode jwk : jwks.path("keys")) {
+                if (!"RSA".equals(jwk.path("kty").asText())) {
+                    continue;
+                }
+                BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("n").asText()));
+                BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("e").asText()));
+                keys.put(jwk.path("kid").asText(), keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+            }
+
+            LOG.info("Loaded {} signing keys", keys.size());
+            return keys;
+        } catch (Exception e) {
+            // Keep the keys we already have; tokens signed with them still verify
+            LOG.error("Error loading signing keys from {}", jwksUrl, e);
+            return keysById;
+        }
+    }
+}
@@ -8,11 +8,12 @@ import com.restaurantapp.Model.CustomerFeedback;
 import com.restaurantapp.Model.CustomerFeedbackRequest;
 import com.restaurantapp.Model.CustomerFeedbackResponse;
 import com.restaurantapp.Model.Reservation;
+import com.restaurantapp.Repository.AsyncCalls;
 import com.restaurantapp.Repository.CustomerFeedbackRepository;
+import com.restaurantapp.Repository.WaiterProfileCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -20,6 +21,8 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 
 @Singleton
@@ -27,22 +30,21 @@ public class CustomerFeedbackService {
 
     private final ObjectMapper objectMapper;
     private CustomerFeedbackRepository customerFeedbackRepository;
+    private final WaiterProfileCache waiterProfileCache;
 
 
     private static Logger LOG = LoggerFactory.getLogger(CustomerFeedbackService.class);
 
     @Inject
-    public CustomerFeedbackService(CustomerFeedbackRepository customerFeedbackRepository) {
+    public CustomerFeedbackService(CustomerFeedbackRepository customerFeedbackRepository,
+                                   WaiterProfileCache waiterProfileCache) {
         this.customerFeedbackRepository = customerFeedbackRepository;
+        this.waiterProfileCache = waiterProfileCache;
         this.objectMapper = new ObjectMapper();
     }
 
     public String createFeedback(CustomerFeedbackRequest request, String customerEmail) {
 
-        String serviceFeedback = null;
-        String cuisineFeedback = null;
-
-
         try {
 
             validation(request, customerEmail);
@@ -58,9 +60,11 @@ public class CustomerFeedbackService {
             }
 
 
+            List<CustomerFeedback> feedbacks = new ArrayList<>();
+
             if ((request.getServiceRating() != null && !request.getServiceRating().trim().isEmpty()) &&
                     (request.getServiceComment() != null && !request.getServiceComment().trim().isEmpty())) {
-                CustomerFeedback serviceCustomerFeedback = new CustomerFeedback(
+                feedbacks.add(new CustomerFeedback(
                         "1",
                         customerFromDB.getLocationId(),
                         request.getServiceComment(),
@@ -70,13 +74,12 @@ public class CustomerFeedbackService {
                         customerFromDB.getReservationId(),
                         customerFromDB.getCustomerEmail(),
                         customerFromDB.getWaiterEmail()
-                );
-                serviceFeedback = customerFeedbackRepository.createFeedback(serviceCustomerFeedback);
+                ));
             }
 
             if ((request.getCuisineRating() != null && !request.getCuisineRating().trim().isEmpty()) &&
                     (request.getCuisineComment() != null && !request.getCuisineComment().trim().isEmpty())) {
-                CustomerFeedback serviceCustomerFeedback = new CustomerFeedback(
+                feedbacks.add(new CustomerFeedback(
                         "1",
                         customerFromDB.getLocationId(),
                         request.getCuisineComment(),
@@ -86,37 +89,30 @@ public class CustomerFeedbackService {
                         customerFromDB.getReservationId(),
                         customerFromDB.getCustomerEmail(),
                         customerFromDB.getWaiterEmail()
-                );
-                cuisineFeedback = customerFeedbackRepository.createFeedback(serviceCustomerFeedback);
+                ));
             }
 
-            if (serviceFeedback == null && cuisineFeedback == null) {
+            if (feedbacks.isEmpty()) {
                 throw new BadRequestException("No Feedback found :(");
             }
 
-            // Handle the case where one or both feedbacks might be null
-            if (serviceFeedback != null && serviceFeedback.equals("Feedback already exists") &&
-                    cuisineFeedback != null && cuisineFeedback.equals("Feedback already exists")) {
-                throw new ConflictException("Feedback already given!");
-            }
-
-            //Handle if only one value is passed
-            if (serviceFeedback == null && cuisineFeedback != null && cuisineFeedback.equals("Feedback already exists")) {
-                throw new ConflictException("Feedback already given!");
-            }
+            // Both ratings are written in one conditional transaction
+            Set<String> created = customerFeedbackRepository.createFeedbacks(feedbacks);
 
-            if (cuisineFeedback == null && serviceFeedback != null && serviceFeedback.equals("Feedback already exists")) {
+            if (created.isEmpty()) {
                 throw new ConflictException("Feedback already given!");
             }
 
-            if (serviceFeedback != null && serviceFeedback.equals("Feedback already exists") &&
-                    cuisineFeedback != null && !cuisineFeedback.equals("Feedback already exists")) {
-                return "Cuisine Feedback added Successfully!";
+            // A new service rating changes what guests see on the waiter's feedback page
+            if (created.contains("SERVICE_EXPERIENCE")) {
+                waiterProfileCache.invalidate(customerFromDB.getWaiterEmail());
             }
 
-            if (serviceFeedback != null && !serviceFeedback.equals("Feedback already exists") &&
-                    cuisineFeedback != null && cuisineFeedback.equals("Feedback already exists")) {
-                return "Service Feedback added Successfully!";
+            //Handle if only one of two ratings was new
+            if (feedbacks.size() > created.size()) {
+                return created.contains("CUISINE_EXPERIENCE")
+                        ? "Cuisine Feedback added Successfully!"
+                        : "Service Feedback added Successfully!";
             }
 
 
@@ -185,6 +181,8 @@ public class CustomerFeedbackService {
                 throw new UnauthorizedException("You are Not Allowed to Add Feedback TO this Reservation :(");
             }
 
+            CompletableFuture<String> serviceUpdate = CompletableFuture.completedFuture(null);
+            CompletableFuture<String> cuisineUpdate = CompletableFuture.completedFuture(null);
 
             if ((request.getServiceRating() != null && !request.getServiceRating().trim().isEmpty()) &&
                     (request.getServiceComment() != null && !request.getServiceComment().trim().isEmpty())) {
@@ -199,7 +197,7 @@ public class CustomerFeedbackService {
                         customerFromDB.getCustomerEmail(),
                         customerFromDB.getWaiterEmail()
                 );
-                serviceFeedback = customerFeedbackRepository.updateTheFeedback(serviceCustomerFeedback);
+                serviceUpdate = customerFeedbackRepository.updateTheFeedbackAsync(serviceCustomerFeedback);
             }
 
             if ((request.getCuisineRating() != null && !request.getCuisineRating().trim().isEmpty()) &&
@@ -215,9 +213,16 @@ public class CustomerFeedbackService {
                         customerFromDB.getCustomerEmail(),
                         customerFromDB.getWaiterEmail()
                 );
-                cuisineFeedback = customerFeedbackRepository.updateTheFeedback(serviceCustomerFeedback);
+                cuisineUpdate = customerFeedbackRepository.updateTheFeedbackAsync(serviceCustomerFeedback);
             }
 
+            // The two ratings are separate items, so both updates are in flight together
+            serviceFeedback = AsyncCalls.join(serviceUpdate);
+            if (serviceFeedback != null) {
+                waiterProfileCache.invalidate(customerFromDB.getWaiterEmail());
+            }
+            cuisineFeedback = AsyncCalls.join(cuisineUpdate);
+
             if (serviceFeedback == null && cuisineFeedback == null) {
                 throw new BadRequestException("No Feedback Update found :(");
             }
@@ -316,18 +321,23 @@ public class CustomerFeedbackService {
 
         try {
 
-            if (!customerFeedbackRepository.checkReservationForEmail(reservationId,customerEmail)){
+            // The ownership check and the feedback query are independent reads, so both run at once;
+            // the feedback is only returned once the check has passed
+            CompletableFuture<Boolean> ownership =
+                    customerFeedbackRepository.checkReservationForEmailAsync(reservationId, customerEmail);
+            CompletableFuture<List<Map<String, AttributeValue>>> items =
+                    customerFeedbackRepository.getFeedbacksForReservationAsync(reservationId);
+
+            if (!AsyncCalls.join(ownership)){
                 throw new UnauthorizedException("You cannot access this feedback for a reservation :(");
             }
 
-
-
-            ScanResponse list = customerFeedbackRepository.getAllReservations(reservationId);
+            List<Map<String, AttributeValue>> list = AsyncCalls.join(items);
 
             List<CustomerFeedbackResponse> feedbacks = new ArrayList<>();
 
 
-            for (Map<String, AttributeValue> i : list.items()) {
+            for (Map<String, AttributeValue> i : list) {
 
                 CustomerFeedbackResponse tempResponse = new CustomerFeedbackResponse(
                         i.get("feedbackId").s(),
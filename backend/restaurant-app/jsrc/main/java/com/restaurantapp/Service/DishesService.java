@@ -3,6 +3,7 @@ package com.restaurantapp.Service;
 import com.restaurantapp.Model.AvailableDishResponse;
 import com.restaurantapp.Model.Dish;
 import com.restaurantapp.Model.PopularDishesResponse;
+import com.restaurantapp.Repository.DishCatalog;
 import com.restaurantapp.Repository.DishesRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,10 +22,12 @@ public class DishesService {
     private static final Logger LOG = LoggerFactory.getLogger(DishesService.class);
 
     private final DishesRepository dishesRepository;
+    private final DishCatalog dishCatalog;
 
     @Inject
-    public DishesService(DishesRepository dishesRepository) {
+    public DishesService(DishesRepository dishesRepository, DishCatalog dishCatalog) {
         this.dishesRepository = dishesRepository;
+        this.dishCatalog = dishCatalog;
     }
 
     /**
@@ -63,7 +66,7 @@ public class DishesService {
             throw new IllegalArgumentException("Reservation not found or locationId missing for reservationId: " + reservationId);
         }
 
-        List<Dish> dishes = dishesRepository.getAvailableDishesByLocation(locationId);
+        List<Dish> dishes = dishCatalog.getDishesForLocation(locationId);
         LOG.info("Found {} available dishes for location: {}", dishes.size(), locationId);
 
         return dishes.stream()
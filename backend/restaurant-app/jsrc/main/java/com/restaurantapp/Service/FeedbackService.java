@@ -7,28 +7,63 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class FeedbackService {
     private static final Logger LOG = LoggerFactory.getLogger(FeedbackService.class);
+    private static final Set<String> SORT_PROPERTIES = Set.of("date", "rate");
     private final FeedbackRepository feedbackRepository;
 
     public FeedbackService(FeedbackRepository feedbackRepository) {
         this.feedbackRepository = feedbackRepository;
     }
 
-    public FeedbackPageResponse getFeedbackByLocationAndType(String locationId, String type, int page, int size, List<String> sort) {
+    /**
+     * Get a page of feedback for a location and type.
+     * @param locationId The location ID
+     * @param type The feedback type
+     * @param page Page number, used only when no cursor is given
+     * @param size Page size
+     * @param sort Sort property and optional direction, e.g. [date, desc]; defaults to newest first
+     * @param cursor Cursor from the previous page, or null
+     * @return The feedback page
+     */
+    public FeedbackPageResponse getFeedbackByLocationAndType(String locationId, String type, int page, int size, List<String> sort, String cursor) {
         try {
             LOG.info("Getting feedback for location: {}, type: {}, page: {}, size: {}", locationId, type, page, size);
 
-            // Get feedback from repository
-            List<Feedback> feedbacks = feedbackRepository.getFeedbackByLocationAndType(locationId, type, page, size, sort);
-            LOG.info("Found {} feedbacks", feedbacks.toString());
-            // Count total elements
+            // Read the maintained count first; it also tells us whether the location and type are valid
             long totalElements = feedbackRepository.countFeedbackByLocationAndType(locationId, type);
             LOG.info(totalElements+" Feedbacks Fetched");
+            if (totalElements < 0) {
+                FeedbackPageResponse invalidResponse = new FeedbackPageResponse();
+                invalidResponse.setTotalElements(totalElements);
+                return invalidResponse;
+            }
+
+            String sortProperty = sort != null && !sort.isEmpty() ? sort.get(0).trim().toLowerCase() : "date";
+            if (!SORT_PROPERTIES.contains(sortProperty)) {
+                throw new IllegalArgumentException("Unsupported sort property: " + sortProperty);
+            }
+            boolean ascending = sort != null && !sort.isEmpty()
+                    && (sort.size() == 1 || "asc".equalsIgnoreCase(sort.get(1).trim()));
+
+            // Page numbers are still accepted from older clients by skipping to the offset
+            String pageCursor = cursor;
+            boolean beyondLastPage = false;
+            if ((pageCursor == null || pageCursor.isEmpty()) && page > 0 && size > 0) {
+                pageCursor = feedbackRepository.findCursorAtOffset(locationId, type, sortProperty, ascending, page * size);
+                beyondLastPage = pageCursor == null;
+            }
+
+            CursorPage<Feedback> feedbackPage = beyondLastPage
+                    ? new CursorPage<>(new ArrayList<>(), null)
+                    : feedbackRepository.getFeedbackByLocationAndType(locationId, type, sortProperty, ascending, size, pageCursor);
+            List<Feedback> feedbacks = feedbackPage.getContent();
+            LOG.info("Found {} feedbacks", feedbacks.size());
             // Calculate total pages
-            int totalPages = (int) Math.ceil((double) totalElements / size);
+            int totalPages = size == 0 ? 0 : (int) Math.ceil((double) totalElements / size);
 
             // Convert to response objects
             List<FeedbackResponse> content = feedbacks.stream()
@@ -43,7 +78,8 @@ public class FeedbackService {
             pageResponse.setNumber(page);
             pageResponse.setNumberOfElements(content.size());
             pageResponse.setFirst(page == 0);
-            pageResponse.setLast(page >= totalPages - 1);
+            pageResponse.setLast(feedbackPage.isLast());
+            pageResponse.setNextCursor(feedbackPage.getNextCursor());
             pageResponse.setEmpty(content.isEmpty());
 
             // Set sort info
@@ -65,6 +101,8 @@ public class FeedbackService {
             pageResponse.setPageable(pageable);
             return pageResponse;
 
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             LOG.error("Error getting feedback", e);
             throw new RuntimeException("Failed to get feedback", e);
@@ -84,8 +84,9 @@ public class ReservationDeletionService {
             throw new UnprocessableException("Reservations can only be cancelled at least 30 minutes before the scheduled time");
         }
 
-        // Cancel the reservation
-        return reservationDeletionRepository.cancelReservation(reservationId,"Cancelled");
+        // Cancel the reservation, freeing its table slot and its waiter's count in the same write
+        boolean isCancelled = reservationDeletionRepository.cancelReservation(reservation, "Cancelled");
+        return isCancelled;
     }
     /**
      * Check if the current time is at least 30 minutes before the reservation time
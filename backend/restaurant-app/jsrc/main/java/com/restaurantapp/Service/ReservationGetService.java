@@ -8,14 +8,20 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Singleton
 public class ReservationGetService
 {
-    int visitor=0;
     private static final Logger LOG = LoggerFactory.getLogger(ReservationGetService.class);
 
+    // Bookings made by a waiter for a walk-in guest use this customer email
+    private static final String VISITOR_EMAIL = "visitor@gmail.com";
+
     private final ReservationGetRepository reservationRepository;
 
     @Inject
@@ -24,12 +30,15 @@ public class ReservationGetService
     }
 
     /**
-     * Gets all reservations for a specific user.
+     * Gets the reservations assigned to a waiter, optionally limited to a date range and slot.
      *
-     * @param email The user's email
-     * @return List of reservation responses
+     * @param email The waiter's email
+     * @param dateFrom First date to include (yyyy-MM-dd), or null for no lower bound
+     * @param dateTo Last date to include (yyyy-MM-dd), or null for no upper bound
+     * @param slotId Time slot to include, or null for every slot
+     * @return List of reservation responses ordered by date and slot
      */
-    public List<ReservationGetResponse> getReservationsForUser(String email)
+    public List<ReservationGetResponse> getReservationsForUser(String email, String dateFrom, String dateTo, String slotId)
     {
         try {
             LOG.info("Getting reservations for user: {}", email);
@@ -41,9 +50,13 @@ public class ReservationGetService
 //            LOG.info("slot_table: {}", System.getenv("slot_table"));
             LOG.info("location_table: {}", System.getenv("location_table"));
 
-            List<ReservationGet> reservations = reservationRepository.findReservationsByEmail(email);
+            List<ReservationGet> reservations = reservationRepository.findReservationsByWaiter(email, dateFrom, dateTo, slotId);
             LOG.info("Raw reservations found: {}", reservations.size());
 
+            // The index orders by date only, so order slots within each day here
+            reservations.sort(Comparator.comparing(ReservationGet::getDate, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(ReservationGet::getSlotId, Comparator.nullsLast(Comparator.naturalOrder())));
+
 
             LOG.info("Raw reservations are {}",reservations);
             // Log the first reservation if available
@@ -59,6 +72,26 @@ public class ReservationGetService
 //                firstRes.getStatus();
 //            }
 
+            if (reservations.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            // Resolve the user names once for the whole list rather than per reservation, in one
+            // batched request. Pre-order counts and addresses are on the bookings themselves.
+            Set<String> customerEmails = new LinkedHashSet<>();
+            for (ReservationGet reservation : reservations) {
+                if (reservation.getCustomerEmail() != null && !reservation.getCustomerEmail().equals(VISITOR_EMAIL)) {
+                    customerEmails.add(reservation.getCustomerEmail());
+                }
+            }
+
+            Set<String> userEmails = new LinkedHashSet<>(customerEmails);
+            userEmails.add(email);
+            Map<String, String> userNames = reservationRepository.findUserNamesByEmail(userEmails);
+
+            String waiterName = userNames.getOrDefault(email, "User not found");
+            int visitor = 0;
+
             List<ReservationGetResponse> responses = new ArrayList<>();
 
             for (ReservationGet reservation : reservations)
@@ -76,36 +109,18 @@ public class ReservationGetService
                     response.setGuestsNumber(String.valueOf(reservation.getNumberOfGuests()));
                     response.setTableNumber(reservation.getTableNumber());
 
-
-                    // Set default values
-                    String preOrderDishes="";
-                    String customerEmail=reservation.getCustomerEmail();
-                    if(customerEmail.equals("visitor@gmail.com")) {
-                        preOrderDishes = "0";
-                    }
-                    else {
-                        preOrderDishes = reservationRepository.findNumberOfDishesOfOrder(customerEmail);
-                        if(preOrderDishes.equals("No orders found")){
-                            preOrderDishes="0";
-                        }
-                    }
-
-                    response.setPreOrder(preOrderDishes);
-                    response.setFeedbackId("1");
-
-
-                    String userName=reservationRepository.findUserNameFromEmail(customerEmail);
-                    String waiterName=reservationRepository.findUserNameFromEmail(email);
-                    if(!customerEmail.equals("visitor@gmail.com")) {
-                        response.setUserInfo(userName);
-                    } else if(customerEmail.equals("visitor@gmail.com")){
+                    String customerEmail = reservation.getCustomerEmail();
+                    if (VISITOR_EMAIL.equals(customerEmail)) {
+                        response.setPreOrder("0");
                         visitor++;
-                        response.setUserInfo(waiterName+" (Visitor "+visitor+")");
+                        response.setUserInfo(waiterName + " (Visitor " + visitor + ")");
+                    } else {
+                        response.setPreOrder(reservation.getPreOrder() != null ? reservation.getPreOrder() : "0");
+                        response.setUserInfo(userNames.getOrDefault(customerEmail, "User not found"));
                     }
-
-                    String locationId = reservationRepository.findLocationIdFromWaiterTable(email);
-                    String locationAddress = reservationRepository.getLocationAddress(locationId);
-                    response.setLocationAddress(locationAddress);
+                    response.setFeedbackId("1");
+                    response.setLocationAddress(reservation.getLocationAddress() != null
+                            ? reservation.getLocationAddress() : "Unknown Location");
 
                     // Get time slot from Slot table
                     if (reservation.getSlotId() != null)
@@ -160,8 +175,6 @@ public class ReservationGetService
                     }
 
                     responses.add(response);
-                    LOG.info("response is after getting {}",response);
-                    LOG.info("all responses are after getting {}",responses);
                 } catch (Exception e) {
                     LOG.error("Error processing reservation {}: {}",
                             reservation.getReservationId(), e.getMessage(), e);
@@ -7,6 +7,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,144 +28,169 @@ public class ReservationService
      * Gets all reservations for a specific user.
      *
      * @param email The user's email
+     * @param upcomingOnly Whether to return only reservations from today onwards
      * @return List of reservation responses
      */
-    public List<ReservationResponse> getReservationsForUser(String email)
+    public List<ReservationResponse> getReservationsForUser(String email, boolean upcomingOnly)
     {
         try {
             LOG.info("Getting reservations for user: {}", email);
 
-            // Log environment variables for debugging
-            LOG.info("Environment variables:");
-            LOG.info("reservation_table: {}", System.getenv("reservation_table"));
-//            LOG.info("slot_table: {}", System.getenv("slot_table"));
-            LOG.info("location_table: {}", System.getenv("location_table"));
-
-            List<Reservation> reservations = reservationRepository.findReservationsByEmail(email);
+            List<Reservation> reservations = reservationRepository.findReservationsByEmail(email, fromDate(upcomingOnly));
             LOG.info("Raw reservations found: {}", reservations.size());
 
-            // Log the first reservation if available
-            if (!reservations.isEmpty()) {
-                Reservation firstRes = reservations.get(0);
-                LOG.debug("First reservation: id={}, email={}, locationId={}, slotId={}, tableId={}, date={}",
-                        firstRes.getReservationId(),
-                        firstRes.getCustomerEmail(),
-                        firstRes.getLocationId(),
-                        firstRes.getSlotId(),
-                        firstRes.getTableId(),
-                        firstRes.getDate());  // Added date logging
-                firstRes.getStatus();
-            }
+            List<ReservationResponse> responses = mapToResponses(reservations);
+            LOG.info("Found {} reservations for user: {}", responses.size(), email);
+            return responses;
+        }
+        catch (Exception e) {
+            LOG.error("Error getting reservations for user: {}", email, e);
+            throw new RuntimeException("Error getting reservations for user: " + e.getMessage(), e);
+        }
+    }
 
-            List<ReservationResponse> responses = new ArrayList<>();
-
-            for (Reservation reservation : reservations)
-            {
-                try {
-                    ReservationResponse response = new ReservationResponse();
-
-                    // Set reservation ID
-                    response.setId(reservation.getReservationId());
-
-                    response.setLocationId(reservation.getLocationId());
-                    // Set status
-                    response.setStatus(reservation.getStatus());
-
-                    // Set guests number
-                    response.setGuestsNumber(String.valueOf(reservation.getNumberOfGuests()));
-
-                    // Set default values
-                    response.setPreOrder("NA");
-
-
-                    // Get location address from Location table
-                    if (reservation.getLocationId() != null) {
-                        try {
-                            Location location = reservationRepository.getLocationById(reservation.getLocationId());
-                            if (location != null) {
-                                response.setLocationAddress(location.getLocationAddress());
-                                LOG.debug("Found location address: {} for reservation: {}",
-                                        location.getLocationAddress(), reservation.getReservationId());
-                            } else {
-                                LOG.warn("Location not found for ID: {}", reservation.getLocationId());
-                                response.setLocationAddress("Location not available");
-                            }
-                        } catch (Exception e) {
-                            LOG.warn("Error getting location for ID {}: {}",
-                                    reservation.getLocationId(), e.getMessage());
-                            response.setLocationAddress("Error retrieving location");
-                        }
-                    } else {
-                        response.setLocationAddress("Location not specified");
-                    }
+    /**
+     * Gets one page of reservations for a specific user.
+     *
+     * @param email The user's email
+     * @param upcomingOnly Whether to return only reservations from today onwards
+     * @param limit Maximum number of reservations in the page
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @return The page of reservation responses and the cursor for the next page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public CursorPage<ReservationResponse> getReservationsPageForUser(String email, boolean upcomingOnly, int limit, String cursor)
+    {
+        LOG.info("Getting reservations page for user: {} (limit {})", email, limit);
 
-                    // Get time slot from Slot table
-                    if (reservation.getSlotId() != null)
-                    {
-                        try {
-                            Slot slot = reservationRepository.getSlotById(reservation.getSlotId());
-                            if (slot != null) {
-                                // Format time slot
-                                String timeSlot = formatTimeSlot(slot.getStartTime(), slot.getEndTime());
-                                response.setTimeSlot(timeSlot);
-                                LOG.debug("Found time slot: {} for reservation: {}",
-                                        timeSlot, reservation.getReservationId());
-                            } else {
-                                LOG.warn("Slot not found for ID: {}", reservation.getSlotId());
-                                response.setTimeSlot("Time not available");
-                            }
-                        } catch (Exception e) {
-                            LOG.warn("Error getting slot for ID {}: {}",
-                                    reservation.getSlotId(), e.getMessage());
-                            response.setTimeSlot("Error retrieving time slot");
-                        }
-                    } else {
-                        response.setTimeSlot("Time not specified");
-                    }
+        CursorPage<Reservation> page = reservationRepository.findReservationsPageByEmail(
+                email, fromDate(upcomingOnly), limit, cursor);
 
-                    // Get date directly from Reservation
-                    // UPDATED: Get date from reservation object instead of table lookup
-                    if (reservation.getDate() != null && !reservation.getDate().isEmpty()) {
-                        response.setDate(reservation.getDate());
-                        LOG.debug("Found date: {} for reservation: {}",
-                                reservation.getDate(), reservation.getReservationId());
-                    } else {
-                        // Fallback: Try to extract date from slot's start time if available
-                        try {
-                            if (reservation.getSlotId() != null) {
-                                Slot slot = reservationRepository.getSlotById(reservation.getSlotId());
-                                if (slot != null && slot.getStartTime() != null && slot.getStartTime().contains("T")) {
-                                    String date = slot.getStartTime().split("T")[0];
-                                    response.setDate(date);
-                                    LOG.debug("Extracted date from slot: {} for reservation: {}",
-                                            date, reservation.getReservationId());
-                                } else {
-                                    response.setDate("Date not available");
-                                }
-                            } else {
-                                response.setDate("Date not available");
-                            }
-                        } catch (Exception e) {
-                            LOG.warn("Error extracting date from slot: {}", e.getMessage());
-                            response.setDate("Error retrieving date");
-                        }
-                    }
+        return new CursorPage<>(mapToResponses(page.getContent()), page.getNextCursor());
+    }
+
+    /**
+     * Earliest reservation date to include, in the restaurant's time zone.
+     */
+    private String fromDate(boolean upcomingOnly)
+    {
+        return upcomingOnly ? LocalDate.now(ZoneId.of("Asia/Kolkata")).toString() : null;
+    }
+
+    private List<ReservationResponse> mapToResponses(List<Reservation> reservations)
+    {
+        List<ReservationResponse> responses = new ArrayList<>();
+
+        for (Reservation reservation : reservations)
+        {
+            try {
+                responses.add(mapToResponse(reservation));
+            } catch (Exception e) {
+                LOG.error("Error processing reservation {}: {}",
+                        reservation.getReservationId(), e.getMessage(), e);
+                // Continue with next reservation instead of failing completely
+            }
+        }
+
+        return responses;
+    }
 
-                    responses.add(response);
-                } catch (Exception e) {
-                    LOG.error("Error processing reservation {}: {}",
-                            reservation.getReservationId(), e.getMessage(), e);
-                    // Continue with next reservation instead of failing completely
+    private ReservationResponse mapToResponse(Reservation reservation)
+    {
+        ReservationResponse response = new ReservationResponse();
+
+        // Set reservation ID
+        response.setId(reservation.getReservationId());
+
+        response.setLocationId(reservation.getLocationId());
+        // Set status
+        response.setStatus(reservation.getStatus());
+
+        // Set guests number
+        response.setGuestsNumber(String.valueOf(reservation.getNumberOfGuests()));
+        response.setTableNumber(reservation.getTableNumber());
+
+        // Pre-order count is stored with the booking; older bookings keep the old default
+        response.setPreOrder(reservation.getPreOrderCount() != null
+                ? String.valueOf(reservation.getPreOrderCount()) : "NA");
+
+        // Address and time slot are stored with the booking; older bookings are resolved below
+        if (reservation.getLocationAddress() != null) {
+            response.setLocationAddress(reservation.getLocationAddress());
+        } else if (reservation.getLocationId() != null) {
+            try {
+                Location location = reservationRepository.getLocationById(reservation.getLocationId());
+                if (location != null) {
+                    response.setLocationAddress(location.getLocationAddress());
+                    LOG.debug("Found location address: {} for reservation: {}",
+                            location.getLocationAddress(), reservation.getReservationId());
+                } else {
+                    LOG.warn("Location not found for ID: {}", reservation.getLocationId());
+                    response.setLocationAddress("Location not available");
                 }
+            } catch (Exception e) {
+                LOG.warn("Error getting location for ID {}: {}",
+                        reservation.getLocationId(), e.getMessage());
+                response.setLocationAddress("Error retrieving location");
             }
+        } else {
+            response.setLocationAddress("Location not specified");
+        }
 
-            LOG.info("Found {} reservations for user: {}", responses.size(), email);
-            return responses;
+        if (reservation.getTimeSlot() != null) {
+            response.setTimeSlot(reservation.getTimeSlot());
+        } else if (reservation.getSlotId() != null)
+        {
+            try {
+                Slot slot = reservationRepository.getSlotById(reservation.getSlotId());
+                if (slot != null) {
+                    // Format time slot
+                    String timeSlot = formatTimeSlot(slot.getStartTime(), slot.getEndTime());
+                    response.setTimeSlot(timeSlot);
+                    LOG.debug("Found time slot: {} for reservation: {}",
+                            timeSlot, reservation.getReservationId());
+                } else {
+                    LOG.warn("Slot not found for ID: {}", reservation.getSlotId());
+                    response.setTimeSlot("Time not available");
+                }
+            } catch (Exception e) {
+                LOG.warn("Error getting slot for ID {}: {}",
+                        reservation.getSlotId(), e.getMessage());
+                response.setTimeSlot("Error retrieving time slot");
+            }
+        } else {
+            response.setTimeSlot("Time not specified");
         }
-        catch (Exception e) {
-            LOG.error("Error getting reservations for user: {}", email, e);
-            throw new RuntimeException("Error getting reservations for user: " + e.getMessage(), e);
+
+        // Get date directly from Reservation
+        // UPDATED: Get date from reservation object instead of table lookup
+        if (reservation.getDate() != null && !reservation.getDate().isEmpty()) {
+            response.setDate(reservation.getDate());
+            LOG.debug("Found date: {} for reservation: {}",
+                    reservation.getDate(), reservation.getReservationId());
+        } else {
+            // Fallback: Try to extract date from slot's start time if available
+            try {
+                if (reservation.getSlotId() != null) {
+                    Slot slot = reservationRepository.getSlotById(reservation.getSlotId());
+                    if (slot != null && slot.getStartTime() != null && slot.getStartTime().contains("T")) {
+                        String date = slot.getStartTime().split("T")[0];
+                        response.setDate(date);
+                        LOG.debug("Extracted date from slot: {} for reservation: {}",
+                                date, reservation.getReservationId());
+                    } else {
+                        response.setDate("Date not available");
+                    }
+                } else {
+                    response.setDate("Date not available");
+                }
+            } catch (Exception e) {
+                LOG.warn("Error extracting date from slot: {}", e.getMessage());
+                response.setDate("Error retrieving date");
+            }
         }
+
+        return response;
     }
 
     /**
@@ -6,9 +6,12 @@ import com.restaurantapp.Controller.ReservationWaiterController;
 import com.restaurantapp.Exception.ConflictException;
 import com.restaurantapp.Exception.UnprocessableException;
 import com.restaurantapp.Model.*;
+import com.restaurantapp.Repository.AsyncCalls;
+import com.restaurantapp.Repository.CartRepository;
 import com.restaurantapp.Repository.ReservationRepoWaiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -18,20 +21,24 @@ import java.time.format.DateTimeParseException;
 import java.time.format.ResolverStyle;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Singleton
 public class ReservationWaiterService {
     private int visitor=0;
     private final ReservationRepoWaiter reservationRepoWaiter;
+    private final CartRepository cartRepository;
     private final List<TimeSlot> timeSlots;
     private final String orderTable=System.getenv("order_table");
     private final String waiterTable=System.getenv("waiter_table");
     private static final Logger log = LoggerFactory.getLogger(ReservationWaiterController.class);
 
     @Inject
-    public ReservationWaiterService(ReservationRepoWaiter reservationRepoWaiter) {
+    public ReservationWaiterService(ReservationRepoWaiter reservationRepoWaiter, CartRepository cartRepository) {
         this.reservationRepoWaiter=reservationRepoWaiter;
+        this.cartRepository=cartRepository;
 
         // Initialize time slots
         this.timeSlots = new ArrayList<>();
@@ -263,6 +270,8 @@ private void validateBookingDateTime(String date, String timeFrom) {
     }
 }
     public BookingWaiterResponse createReservationByWaiter(BookingWaiterRequest request, String waiterEmail){
+        CompletableFuture<String> userNameLookup = null;
+        CompletableFuture<String> waiterNameLookup = null;
         try{
             if(waiterEmail.equals(request.getCustomerEmail())){
                 throw new IllegalArgumentException("Customer email and waiter email can not be same");
@@ -274,7 +283,7 @@ private void validateBookingDateTime(String date, String timeFrom) {
             if(slotId.equals("This time slot is not available") || slotIdEnd.equals("This time slot is not available")){
                 throw new Exception("This time slot is not available");
             }
-            String locationId = fetchLocationIdFromWaiterTable(waiterEmail);
+            String locationId = reservationRepoWaiter.findLocationIdFromWaiterTable(waiterEmail);
             if(!request.getLocationId().equals(locationId)){
                 throw new IllegalArgumentException("Waiter is not assigned to the location.");
             }
@@ -283,20 +292,18 @@ private void validateBookingDateTime(String date, String timeFrom) {
             if(tableId == null){
                 throw new IllegalArgumentException("Table not found");
             }
+
+            // Both names are independent reads, started together once the request is known to be valid
+            boolean isCustomer = request.getClientType().equals("CUSTOMER");
+            userNameLookup = isCustomer
+                    ? reservationRepoWaiter.findUserNameFromEmailAsync(request.getCustomerEmail())
+                    : CompletableFuture.completedFuture("");
+            waiterNameLookup = reservationRepoWaiter.findUserNameFromEmailAsync(waiterEmail);
+
+            String tableNumber = request.getTableNumber();
             request.setTableNumber(tableId);
 //            String slotId = "1";
-            boolean isAlreadyBooked = reservationRepoWaiter.isTableAlreadyBooked(
-                    request.getLocationId(),
-                    request.getTableNumber(),
-                    request.getDate(),
-                    slotId
-            );
-//            boolean isAlreadyBooked=true;
-            log.info("is checking booked {}",isAlreadyBooked);
-            if (isAlreadyBooked) {
-                throw new ConflictException("This table is already booked for the selected date and time slot");
-            }
-
+            String reservationId = UUID.randomUUID().toString();
             if (waiterEmail == null) {
                 log.warn("No waiters available for location: {}", request.getLocationId());
                 throw new UnprocessableException("No waiters available for this location");
@@ -315,7 +322,7 @@ private void validateBookingDateTime(String date, String timeFrom) {
 //                booking.setStatus("Reserved");
 //            }
             booking.setStatus("Reserved");
-            booking.setReservationId(UUID.randomUUID().toString());
+            booking.setReservationId(reservationId);
             booking.setTableId(request.getTableNumber());
             if(request.getClientType().equals("CUSTOMER")) {
                 booking.setCustomerEmail(request.getCustomerEmail());
@@ -328,6 +335,8 @@ private void validateBookingDateTime(String date, String timeFrom) {
             booking.setWaiterEmail(waiterEmail);
             booking.setLocationId(locationId);
             booking.setNumberOfGuests(request.getGuestsNumber());
+            booking.setTimeSlot(getTimeSlotString(slotId));
+            booking.setTableNumber(tableNumber);
             log.info("status is {}", booking.getStatus());
             log.info("resId is {}", booking.getReservationId());
             log.info("tableId is {}", booking.getTableId());
@@ -341,19 +350,22 @@ private void validateBookingDateTime(String date, String timeFrom) {
             // Save booking
 //            BookingWaiter savedBooking = reservationRepoWaiter.createBooking(booking);
 
+            String locationAddress;
+            String userName="";
+            String waiterName;
             // Get location address
-            String locationAddress = reservationRepoWaiter.getLocationAddress(locationId);
+            locationAddress = reservationRepoWaiter.getLocationAddress(locationId);
             log.info("location Add is {}", locationAddress);
             if (locationAddress.equals("Unknown Location")) {
                 throw new IllegalArgumentException("Invalid location ID");
             }
             log.info("customer email {}",request.getCustomerEmail());
-            String userName="";
-            if(request.getClientType().equals("CUSTOMER"))
-            userName=reservationRepoWaiter.findUserNameFromEmail(request.getCustomerEmail());
+            userName=AsyncCalls.join(userNameLookup);
 //            log.info("passed usernsame {}",userName);
-            String waiterName=reservationRepoWaiter.findUserNameFromEmail(waiterEmail);
+            waiterName=AsyncCalls.join(waiterNameLookup);
             log.info("passed waitername {}",waiterName);
+            booking.setLocationAddress(locationAddress);
+            // The booking, its slot claim and the waiter's count are written together
             BookingWaiter savedBooking = reservationRepoWaiter.createBooking(booking);
             // Create response
             BookingWaiterResponse response = new BookingWaiterResponse();
@@ -371,9 +383,8 @@ private void validateBookingDateTime(String date, String timeFrom) {
             if(request.getClientType().equals("CUSTOMER"))
 //            state=reservationRepoWaiter.findStatusOfOrder(request.getCustomerEmail());
             log.info("state is {}",state);
-            String preOrderDishes="";
-            if(request.getClientType().equals("CUSTOMER"))
-            preOrderDishes=reservationRepoWaiter.findNumberOfDishesOfOrder(request.getCustomerEmail());
+            // A booking made just now has nothing pre-ordered on it yet
+            String preOrderDishes="0";
             log.info("preoder dish is {}",preOrderDishes);
 
 //            else if(request.getClientType().equals("CUSTOMER") && state.equals("Preorder")) {
@@ -408,6 +419,20 @@ private void validateBookingDateTime(String date, String timeFrom) {
             }catch (Exception e) {
                 log.error("Error creating booking", e);
                 throw new RuntimeException("Error creating booking: " + e.getMessage(), e);
+        } finally {
+            discard(userNameLookup);
+            discard(waiterNameLookup);
+        }
+    }
+
+    /**
+     * Drop a name lookup that a failed step made unnecessary; a lookup that was already
+     * joined is left as it is
+     * @param lookup The pending lookup, or null if it was not started
+     */
+    private static void discard(CompletableFuture<String> lookup) {
+        if (lookup != null) {
+            lookup.cancel(false);
         }
     }
 
@@ -418,6 +443,24 @@ private void validateBookingDateTime(String date, String timeFrom) {
         String tableNumber=request.getTableId();
         String date=request.getDate();
         String locationId=request.getLocationId();
-        return reservationRepoWaiter.reservationRepoWaiter(email,slotId,tableNumber,locationId,date);
+        try {
+            // First, find the reservation with the given criteria
+            String tableId = reservationRepoWaiter.getTableId(locationId, tableNumber);
+            Map<String, AttributeValue> reservation =
+                    reservationRepoWaiter.findReservationByCustomerAndTable(email, tableId, date);
+            String reservationId = reservation.get("reservationId").s();
+            String reservationDate = reservation.get("date").s();
+            String oldSlotId = reservation.get("slotId").s();
+
+            // The booking, its slot claims and its waiter's count move together
+            reservationRepoWaiter.updateReservationSlot(reservation, slotId, getTimeSlotString(slotId));
+
+            if (!slotId.equals(oldSlotId)) {
+                cartRepository.updateReservationDetails(email, reservationId, reservationDate, getTimeSlotString(slotId));
+            }
+            return "Reservation Updated";
+        } catch (Exception e) {
+            return "Error updating reservation: " + e.getMessage();
+        }
     }
 }
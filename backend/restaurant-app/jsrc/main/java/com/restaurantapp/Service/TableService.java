@@ -5,7 +5,7 @@ import com.restaurantapp.Model.Reservation;
 import com.restaurantapp.Model.Location;
 import com.restaurantapp.Model.Table;
 import com.restaurantapp.Repository.TableAvailabilityRepository;
-import com.restaurantapp.Repository.RestaurantLocationRepository;
+import com.restaurantapp.Repository.ReferenceDataCache;
 import com.restaurantapp.Repository.TableRepository;
 
 import org.slf4j.Logger;
@@ -22,7 +22,7 @@ public class TableService {
 
     private final TableRepository tableRepository;
     private final TableAvailabilityRepository tableAvailabilityRepository;
-    private final RestaurantLocationRepository restaurantLocationRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     // Define time slots with their display formats
     private static final Map<String, String> TIME_SLOTS = new LinkedHashMap<>();
@@ -61,10 +61,12 @@ public class TableService {
     private static final int RESERVATION_DURATION_MINUTES = 90; // 1.5 hours
     private static final int RESERVATION_BUFFER_MINUTES = 15;
 
-    public TableService() {
-        this.tableRepository = new TableRepository();
-        this.tableAvailabilityRepository = new TableAvailabilityRepository();
-        this.restaurantLocationRepository = new RestaurantLocationRepository();
+    public TableService(TableRepository tableRepository,
+                        TableAvailabilityRepository tableAvailabilityRepository,
+                        ReferenceDataCache referenceDataCache) {
+        this.tableRepository = tableRepository;
+        this.tableAvailabilityRepository = tableAvailabilityRepository;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public List<AvailableTable> findAvailableTables(String locationId, String dateStr, String timeStr, Integer guests) {
@@ -97,7 +99,7 @@ public class TableService {
 
             List<Table> tables;
             if (locationId != null && !locationId.isEmpty()) {
-                tables = tableRepository.findByLocationId(locationId);
+                tables = referenceDataCache.getTables(locationId);
             } else {
                 tables = tableRepository.findAll();
             }
@@ -116,26 +118,25 @@ public class TableService {
                 LOG.info("After capacity filtering: {} tables remain", tables.size());
             }
 
-            List<Reservation> reservations = new ArrayList<>();
+            // Only the locations that still have candidate tables are read, one key-condition query each
+            Map<String, List<Reservation>> reservationsByLocation = new HashMap<>();
             if (date != null) {
-                try {
-                    reservations = tableAvailabilityRepository.findByDate(date);
-                    LOG.info("Found {} reservations for date {}", reservations.size(), date);
-
-                    // Log each reservation for debugging
-                    for (Reservation res : reservations) {
-                        LOG.debug("Reservation: id={}, tableId={}, slotId={}, status={}",
-                                res.getReservationId(), res.getTableId(), res.getSlotId(), res.getStatus());
+                for (Table table : tables) {
+                    String tableLocationId = table.getLocationId();
+                    if (tableLocationId == null || reservationsByLocation.containsKey(tableLocationId)) {
+                        continue;
                     }
-                } catch (Exception e) {
-                    LOG.error("Error fetching reservations for date {}: {}", date, e.getMessage(), e);
-                    // Continue with empty reservations list
+                    List<Reservation> locationReservations =
+                            tableAvailabilityRepository.findByLocationAndDate(tableLocationId, date);
+                    reservationsByLocation.put(tableLocationId, locationReservations);
+                    LOG.info("Found {} reservations for location {} on date {}",
+                            locationReservations.size(), tableLocationId, date);
                 }
             }
 
             Map<String, Location> locationMap = new HashMap<>();
             try {
-                restaurantLocationRepository.findAll().forEach(location -> locationMap.put(location.getLocationId(), location));
+                referenceDataCache.getLocations().forEach(location -> locationMap.put(location.getLocationId(), location));
                 LOG.info("Found {} locations", locationMap.size());
             } catch (Exception e) {
                 LOG.error("Error fetching locations: {}", e.getMessage(), e);
@@ -153,6 +154,8 @@ public class TableService {
                         continue;
                     }
 
+                    List<Reservation> reservations = reservationsByLocation.getOrDefault(
+                            table.getLocationId(), Collections.emptyList());
                     List<String> availableSlots = calculateAvailableTimeSlots(table, date, time, nearestTimeSlots, reservations);
                     LOG.info("Table {} has {} available slots: {}", table.getId(), availableSlots.size(), availableSlots);
 
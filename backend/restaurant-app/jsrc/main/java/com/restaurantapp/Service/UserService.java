@@ -4,6 +4,7 @@ import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent
 import com.restaurantapp.Controller.ApiResponse;
 import com.restaurantapp.Exception.UnauthorizedException;
 import com.restaurantapp.Model.*;
+import com.restaurantapp.Repository.ReferenceDataCache;
 import com.restaurantapp.Repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,11 +25,14 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final CognitoService cognitoService;
+    private final ReferenceDataCache referenceDataCache;
 
     @Inject
-    public UserService(UserRepository userRepository, CognitoService cognitoService) {
+    public UserService(UserRepository userRepository, CognitoService cognitoService,
+                       ReferenceDataCache referenceDataCache) {
         this.userRepository = userRepository;
         this.cognitoService = cognitoService;
+        this.referenceDataCache = referenceDataCache;
     }
 
     /**
@@ -135,6 +139,9 @@ public class UserService {
             userRepository.createWaiter(waiter);
             LOG.info("Waiter created in database: {}", waiter.getEmail());
 
+            // Bookings assign waiters from the cached roster of the location
+            referenceDataCache.rosterChanged(waiter.getLocationId());
+
             return "Waiter created successfully";
         } catch (Exception e) {
             LOG.error("Error during waiter creation", e);
@@ -244,6 +251,8 @@ public class UserService {
         if (email == null || email.trim().isEmpty()) {
             throw new IllegalArgumentException("Email is required");
         }
+        // The request carries no location, so every cached roster is dropped
+        referenceDataCache.rosterChanged(null);
         return ApiResponse.success("waiter deleted");
     }
 
@@ -3,6 +3,8 @@ package com.restaurantapp.di;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.restaurantapp.Controller.*;
 import com.restaurantapp.Middleware.AuthMiddleware;
+import com.restaurantapp.Repository.DishCatalog;
+import com.restaurantapp.Repository.ReferenceDataCache;
 import com.restaurantapp.Service.ReservationService;
 import dagger.Component;
 
@@ -24,6 +26,7 @@ public interface AppComponent {
     ReservationGetController reservationGetController();
     //TABLE CONTROLLER
     TableController tableController();
+    LocationController locationController();
 
     //Dishes and Feedback Controller
     DishesController dishesController();
@@ -43,4 +46,8 @@ public interface AppComponent {
 
     //us15
     CustomerFeedbackController customerFeedbackController();
+
+    // Content versions for conditional GETs
+    ReferenceDataCache referenceDataCache();
+    DishCatalog dishCatalog();
 }
\ No newline at end of file
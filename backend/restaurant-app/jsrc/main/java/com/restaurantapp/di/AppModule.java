@@ -5,26 +5,75 @@ import com.restaurantapp.Controller.*;
 import com.restaurantapp.Middleware.AuthMiddleware;
 import com.restaurantapp.Repository.*;
 import com.restaurantapp.Service.*;
+import dagger.Lazy;
 import dagger.Module;
 import dagger.Provides;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 import javax.inject.Singleton;
+import java.time.Duration;
 
 /**
  * Dagger module for providing dependencies.
  */
 @Module
 public class AppModule {
+    /**
+     * One DynamoDB client for the whole Lambda container. All repositories share its
+     * connection pool, and the URL connection HTTP client starts much faster than the
+     * Apache client. Credentials come straight from the Lambda environment.
+     */
     @Provides
     @Singleton
-    public CustomerFeedbackRepository provideCustomerFeedbackRepository() {
-        return new CustomerFeedbackRepository();
+    public DynamoDbClient provideDynamoDbClient() {
+        return DynamoDbClient.builder()
+                .region(Region.AP_SOUTHEAST_1)
+                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                .httpClientBuilder(UrlConnectionHttpClient.builder()
+                        .connectionTimeout(Duration.ofSeconds(2))
+                        .socketTimeout(Duration.ofSeconds(5)))
+                .build();
     }
 
+    /**
+     * Async DynamoDB client, so services can run independent lookups at the same time.
+     * The Netty HTTP client is non-blocking; each call is bounded by the override timeouts.
+     * Repositories take it as a Lazy, so it is only built on the first async call and
+     * invocations that never make one start with the URL connection client alone.
+     */
     @Provides
     @Singleton
-    public CustomerFeedbackService provideCustomerFeedbackService(CustomerFeedbackRepository customerFeedbackRepository) {
-        return new CustomerFeedbackService(customerFeedbackRepository);
+    public DynamoDbAsyncClient provideDynamoDbAsyncClient() {
+        return DynamoDbAsyncClient.builder()
+                .region(Region.AP_SOUTHEAST_1)
+                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .connectionTimeout(Duration.ofSeconds(2)))
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .apiCallAttemptTimeout(Duration.ofSeconds(5))
+                        .apiCallTimeout(AsyncCalls.TIMEOUT)
+                        .build())
+                .build();
+    }
+
+    @Provides
+    @Singleton
+    public CustomerFeedbackRepository provideCustomerFeedbackRepository(DynamoDbClient dynamoDbClient,
+                                                                        Lazy<DynamoDbAsyncClient> dynamoDbAsyncClient) {
+        return new CustomerFeedbackRepository(dynamoDbClient, dynamoDbAsyncClient);
+    }
+
+    @Provides
+    @Singleton
+    public CustomerFeedbackService provideCustomerFeedbackService(CustomerFeedbackRepository customerFeedbackRepository,
+                                                                  WaiterProfileCache waiterProfileCache) {
+        return new CustomerFeedbackService(customerFeedbackRepository, waiterProfileCache);
     }
 
     @Provides
@@ -39,13 +88,13 @@ public class AppModule {
     @Provides
     public AnonymousFeedbackService provideAnonymousFeedbackService(
             BookingRepository bookingRepository,
-            WaiterRepository waiterRepository) {
-        return new AnonymousFeedbackService(bookingRepository, waiterRepository);
+            WaiterProfileCache waiterProfileCache) {
+        return new AnonymousFeedbackService(bookingRepository, waiterProfileCache);
     }
     @Singleton
     @Provides
-    public WaiterRepository provideWaiterRepository() {
-        return new WaiterRepository();
+    public WaiterRepository provideWaiterRepository(DynamoDbClient dynamoDbClient) {
+        return new WaiterRepository(dynamoDbClient);
     }
     @Singleton
     @Provides
@@ -56,8 +105,8 @@ public class AppModule {
     //us9
     @Provides
     @Singleton
-    public DishService provideDishService(DishRepository dishRepository) {
-        return new DishService(dishRepository);
+    public DishService provideDishService(DishCatalog dishCatalog, DishRepository dishRepository) {
+        return new DishService(dishCatalog, dishRepository);
     }
 
     @Provides
@@ -86,14 +135,15 @@ public class AppModule {
 
     @Provides
     @Singleton
-    public UserRepository provideUserRepository() {
-        return new UserRepository();
+    public UserRepository provideUserRepository(DynamoDbClient dynamoDbClient) {
+        return new UserRepository(dynamoDbClient);
     }
 
     @Provides
     @Singleton
-    public UserService provideUserService(UserRepository userRepository, CognitoService cognitoService) {
-        return new UserService(userRepository, cognitoService);
+    public UserService provideUserService(UserRepository userRepository, CognitoService cognitoService,
+                                          ReferenceDataCache referenceDataCache) {
+        return new UserService(userRepository, cognitoService, referenceDataCache);
     }
 
     @Provides
@@ -122,14 +172,29 @@ public class AppModule {
 
     @Provides
     @Singleton
-    public BookingRepository provideBookingRepository() {
-        return new BookingRepository();
+    public BookingRepository provideBookingRepository(DynamoDbClient dynamoDbClient, ReferenceDataCache referenceDataCache,
+                                                      SlotClaimRepository slotClaimRepository,
+                                                      WaiterLoadRepository waiterLoadRepository) {
+        return new BookingRepository(dynamoDbClient, referenceDataCache, slotClaimRepository, waiterLoadRepository);
     }
 
     @Provides
     @Singleton
-    public BookingService provideBookingService(BookingRepository bookingRepository) {
-        return new BookingService(bookingRepository);
+    public SlotClaimRepository provideSlotClaimRepository(DynamoDbClient dynamoDbClient) {
+        return new SlotClaimRepository(dynamoDbClient);
+    }
+
+    @Provides
+    @Singleton
+    public WaiterLoadRepository provideWaiterLoadRepository(Lazy<DynamoDbAsyncClient> dynamoDbAsyncClient) {
+        return new WaiterLoadRepository(dynamoDbAsyncClient);
+    }
+
+    @Provides
+    @Singleton
+    public BookingService provideBookingService(BookingRepository bookingRepository,
+                                                WaiterLoadRepository waiterLoadRepository, CartRepository cartRepository) {
+        return new BookingService(bookingRepository, waiterLoadRepository, cartRepository);
     }
 
     @Provides
@@ -139,8 +204,10 @@ public class AppModule {
     }
     @Provides
     @Singleton
-    public ReservationDeletionRepository provideReservationDeletionRepository() {
-        return new ReservationDeletionRepository();
+    public ReservationDeletionRepository provideReservationDeletionRepository(DynamoDbClient dynamoDbClient,
+                                                                              SlotClaimRepository slotClaimRepository,
+                                                                              WaiterLoadRepository waiterLoadRepository) {
+        return new ReservationDeletionRepository(dynamoDbClient, slotClaimRepository, waiterLoadRepository);
     }
 
     @Provides
@@ -158,8 +225,8 @@ public class AppModule {
     //nan
     @Provides
     @Singleton
-    public ReservationRepository provideReservationRepository() {
-        return new ReservationRepository();
+    public ReservationRepository provideReservationRepository(DynamoDbClient dynamoDbClient, ReferenceDataCache referenceDataCache) {
+        return new ReservationRepository(dynamoDbClient, referenceDataCache);
     }
 
     @Provides
@@ -180,21 +247,21 @@ public class AppModule {
 
     @Provides
     @Singleton
-    public DishesRepository provideDishesRepository() {
-        return new DishesRepository();
+    public DishesRepository provideDishesRepository(DynamoDbClient dynamoDbClient) {
+        return new DishesRepository(dynamoDbClient);
     }
 
     @Provides
     @Singleton
-    public FeedbackRepository provideFeedbackRepository() {
-        return new FeedbackRepository();
+    public FeedbackRepository provideFeedbackRepository(DynamoDbClient dynamoDbClient) {
+        return new FeedbackRepository(dynamoDbClient);
     }
 
 
     @Provides
     @Singleton
-    public DishesService provideDishesService(DishesRepository dishesRepository) {
-        return new DishesService(dishesRepository);
+    public DishesService provideDishesService(DishesRepository dishesRepository, DishCatalog dishCatalog) {
+        return new DishesService(dishesRepository, dishCatalog);
     }
 
     @Provides
@@ -219,44 +286,74 @@ public class AppModule {
 
     @Provides
     @Singleton
-    public TableAvailabilityRepository provideTableAvailabilityRepository() {
-        return new TableAvailabilityRepository();
+    public TableAvailabilityRepository provideTableAvailabilityRepository(DynamoDbClient dynamoDbClient) {
+        return new TableAvailabilityRepository(dynamoDbClient);
     }
 
     @Provides
     @Singleton
-    public RestaurantLocationRepository provideLocationRepository() {
-        return new RestaurantLocationRepository();
+    public RestaurantLocationRepository provideLocationRepository(DynamoDbClient dynamoDbClient) {
+        return new RestaurantLocationRepository(dynamoDbClient);
+    }
+
+    @Provides
+    @Singleton
+    public TableRepository provideTableRepository(DynamoDbClient dynamoDbClient) {
+        return new TableRepository(dynamoDbClient);
+    }
+
+    @Provides
+    @Singleton
+    public TableService provideTableService(TableRepository tableRepository,
+                                            TableAvailabilityRepository tableAvailabilityRepository,
+                                            ReferenceDataCache referenceDataCache) {
+        return new TableService(tableRepository, tableAvailabilityRepository, referenceDataCache);
+    }
+
+    @Provides
+    @Singleton
+    public TableController provideTableController(TableService tableService,
+                                                  ReferenceDataCache referenceDataCache) {
+        return new TableController(tableService, referenceDataCache);
+    }
+
+    // Locations
+
+    @Provides
+    @Singleton
+    public LocationRepository provideLocationsRepository(DynamoDbClient dynamoDbClient) {
+        return new LocationRepository(dynamoDbClient);
     }
 
     @Provides
     @Singleton
-    public TableService provideTableService() {
-        return new TableService();
+    public LocationService provideLocationService(LocationRepository locationRepository) {
+        return new LocationService(locationRepository);
     }
 
     @Provides
     @Singleton
-    public TableController provideTableController() {
-        return new TableController();
+    public LocationController provideLocationController(LocationService locationService) {
+        return new LocationController(locationService);
     }
 
     @Provides
     @Singleton
-    public CartRepository provideCartRepository() {
-        return new CartRepository();
+    public CartRepository provideCartRepository(DynamoDbClient dynamoDbClient) {
+        return new CartRepository(dynamoDbClient);
     }
 
     @Provides
     @Singleton
-    public OrderRepository provideOrderRepository() {
-        return new OrderRepository();
+    public OrderRepository provideOrderRepository(DynamoDbClient dynamoDbClient) {
+        return new OrderRepository(dynamoDbClient);
     }
 
     @Provides
     @Singleton
-    public CartService provideCartService(CartRepository cartRepository, OrderRepository orderRepository, DishesRepository dishesRepository) {
-        return new CartService(cartRepository, orderRepository, dishesRepository);
+    public CartService provideCartService(CartRepository cartRepository, OrderRepository orderRepository,
+                                          DishesRepository dishesRepository, ReservationRepository reservationRepository) {
+        return new CartService(cartRepository, orderRepository, dishesRepository, reservationRepository);
     }
 
     @Provides
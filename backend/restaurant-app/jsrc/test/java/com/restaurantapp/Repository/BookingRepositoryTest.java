@@ -0,0 +1,275 @@
+package com.restaurantapp.Repository;
+
+import com.restaurantapp.Exception.ConflictException;
+import com.restaurantapp.Model.Booking;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Races bookings for one table slot through createBooking against DynamoDB Local, so the
+ * claim, the waiter counters and the booking item go through the real transaction. Skipped
+ * unless the endpoint is given, e.g. after docker run -p 8000:8000 amazon/dynamodb-local:
+ * mvn test -Ddynamodb.endpoint=http://localhost:8000
+ * The table names come from the environment variables set in the surefire configuration.
+ */
+class BookingRepositoryTest {
+    private static final String ENDPOINT_PROPERTY = "dynamodb.endpoint";
+    private static final String TABLE_ID = "table-1";
+    private static final String DATE = "2026-10-17";
+    private static final String SLOT_ID = "5";
+
+    private static DynamoDbClient dynamoDbClient;
+
+    private BookingRepository repository;
+    private String locationId;
+
+    @BeforeAll
+    static void createTables() {
+        String endpoint = System.getProperty(ENDPOINT_PROPERTY);
+        assumeTrue(endpoint != null && !endpoint.isBlank(), "Set -D" + ENDPOINT_PROPERTY + " to run against DynamoDB Local");
+        assumeTrue(System.getenv("booking_table") != null && System.getenv("slot_claim_table") != null
+                && System.getenv("waiter_load_table") != null, "Table name environment variables are not set");
+
+        dynamoDbClient = DynamoDbClient.builder()
+                .endpointOverride(URI.create(endpoint))
+                .region(Region.AP_SOUTHEAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("local", "local")))
+                .httpClientBuilder(UrlConnectionHttpClient.builder())
+                .build();
+
+        createTable(System.getenv("booking_table"), "reservationId", null);
+        createTable(System.getenv("slot_claim_table"), "slotKey", null);
+        createTable(System.getenv("waiter_load_table"), "locationDate", "waiterEmail");
+    }
+
+    @AfterAll
+    static void closeClient() {
+        if (dynamoDbClient != null) {
+            dynamoDbClient.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        // createBooking reads neither the layout nor the loads, so neither is wired up
+        repository = new BookingRepository(dynamoDbClient, null, new SlotClaimRepository(dynamoDbClient),
+                new WaiterLoadRepository(() -> {
+                    throw new IllegalStateException("Booking writes do not read waiter loads");
+                }));
+        // A location of its own keeps every test's slots and counters apart
+        locationId = "loc-" + UUID.randomUUID();
+    }
+
+    @Test
+    void twoOverlappingBookingsGiveExactlyOneWinner() throws Exception {
+        assertOneWinner(List.of("res-a", "res-b"));
+    }
+
+    @Test
+    void manyOverlappingBookingsGiveExactlyOneWinner() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            names.add("res-" + i);
+        }
+
+        assertOneWinner(names);
+    }
+
+    @Test
+    void bookingForTakenSlotIsRejected() {
+        assertTrue(repository.createBooking(booking("res-a", TABLE_ID, "waiter-a@test.com")));
+
+        ConflictException e = assertThrows(ConflictException.class,
+                () -> repository.createBooking(booking("res-b", TABLE_ID, "waiter-b@test.com")));
+
+        assertEquals(BookingRepository.SLOT_TAKEN_MESSAGE, e.getMessage());
+        assertNull(bookingItem("res-b"));
+        assertNull(loadItem("waiter-b@test.com"));
+    }
+
+    @Test
+    void otherTablesAreIndependent() {
+        assertTrue(repository.createBooking(booking("res-a", TABLE_ID, "waiter-a@test.com")));
+        assertTrue(repository.createBooking(booking("res-b", "table-2", "waiter-a@test.com")));
+
+        assertEquals("2", loadItem("waiter-a@test.com").get("slot_" + SLOT_ID).n());
+    }
+
+    @Test
+    void waiterAtTableLimitIsNotBooked() {
+        for (int i = 0; i < WaiterLoadRepository.MAX_TABLES_PER_WAITER; i++) {
+            assertTrue(repository.createBooking(booking("res-" + i, "table-" + i, "waiter-a@test.com")));
+        }
+
+        assertFalse(repository.createBooking(booking("res-full", "table-full", "waiter-a@test.com")));
+        assertNull(bookingItem("res-full"));
+        assertNull(claimHolder("table-full"));
+    }
+
+    // Each reservation has its own waiter, so only the slot claim decides who wins
+    private void assertOneWinner(List<String> names) throws Exception {
+        List<Object> results = race(names);
+
+        List<String> winners = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (Boolean.TRUE.equals(results.get(i))) {
+                winners.add(names.get(i));
+            } else {
+                assertInstanceOf(ConflictException.class, results.get(i));
+            }
+        }
+        assertEquals(1, winners.size());
+
+        String winner = winners.get(0);
+        assertEquals(reservationId(winner), claimHolder(TABLE_ID));
+        for (String name : names) {
+            boolean isWinner = name.equals(winner);
+            assertEquals(isWinner, bookingItem(name) != null);
+            assertEquals(isWinner, loadItem(waiterFor(name)) != null);
+        }
+        assertEquals("1", loadItem(waiterFor(winner)).get("slot_" + SLOT_ID).n());
+    }
+
+    // Starts one booking per reservation at the same moment; returns true or the exception for each
+    private List<Object> race(List<String> names) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(names.size());
+        CountDownLatch ready = new CountDownLatch(names.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (String name : names) {
+                Booking booking = booking(name, TABLE_ID, waiterFor(name));
+                Callable<Boolean> attempt = () -> {
+                    ready.countDown();
+                    start.await();
+                    return repository.createBooking(booking);
+                };
+                futures.add(executor.submit(attempt));
+            }
+
+            assertTrue(ready.await(10, TimeUnit.SECONDS));
+            start.countDown();
+
+            List<Object> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                try {
+                    results.add(future.get(30, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    results.add(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String waiterFor(String name) {
+        return "waiter-" + name + "@test.com";
+    }
+
+    // Reservation IDs are made unique per test, like the location, so reruns never collide
+    private String reservationId(String name) {
+        return name + "@" + locationId;
+    }
+
+    private Booking booking(String name, String tableId, String waiterEmail) {
+        Booking booking = new Booking();
+        booking.setReservationId(reservationId(name));
+        booking.setLocationId(locationId);
+        booking.setTableId(tableId);
+        booking.setDate(DATE);
+        booking.setSlotId(SLOT_ID);
+        booking.setWaiterEmail(waiterEmail);
+        booking.setCustomerEmail("customer@test.com");
+        booking.setStatus("Reserved");
+        booking.setPreOrderId("");
+        booking.setNumberOfGuests("2");
+        return booking;
+    }
+
+    private Map<String, AttributeValue> bookingItem(String name) {
+        return item(System.getenv("booking_table"),
+                Map.of("reservationId", AttributeValue.builder().s(reservationId(name)).build()));
+    }
+
+    private String claimHolder(String tableId) {
+        Map<String, AttributeValue> item = item(System.getenv("slot_claim_table"), Map.of("slotKey",
+                AttributeValue.builder().s(SlotClaimRepository.buildSlotKey(locationId, tableId, DATE, SLOT_ID)).build()));
+        return item == null ? null : item.get("reservationId").s();
+    }
+
+    private Map<String, AttributeValue> loadItem(String waiterEmail) {
+        return item(System.getenv("waiter_load_table"), Map.of(
+                "locationDate", AttributeValue.builder().s(WaiterLoadRepository.buildLocationDateKey(locationId, DATE)).build(),
+                "waiterEmail", AttributeValue.builder().s(waiterEmail).build()));
+    }
+
+    private static Map<String, AttributeValue> item(String tableName, Map<String, AttributeValue> key) {
+        Map<String, AttributeValue> item = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(key)
+                .consistentRead(true)
+                .build()).item();
+        return item.isEmpty() ? null : item;
+    }
+
+    private static void createTable(String tableName, String hashKey, String rangeKey) {
+        List<KeySchemaElement> keySchema = new ArrayList<>();
+        List<AttributeDefinition> attributes = new ArrayList<>();
+        keySchema.add(KeySchemaElement.builder().attributeName(hashKey).keyType(KeyType.HASH).build());
+        attributes.add(AttributeDefinition.builder().attributeName(hashKey).attributeType(ScalarAttributeType.S).build());
+        if (rangeKey != null) {
+            keySchema.add(KeySchemaElement.builder().attributeName(rangeKey).keyType(KeyType.RANGE).build());
+            attributes.add(AttributeDefinition.builder().attributeName(rangeKey).attributeType(ScalarAttributeType.S).build());
+        }
+
+        try {
+            dynamoDbClient.createTable(CreateTableRequest.builder()
+                    .tableName(tableName)
+                    .keySchema(keySchema)
+                    .attributeDefinitions(attributes)
+                    .billingMode(BillingMode.PAY_PER_REQUEST)
+                    .build());
+        } catch (ResourceInUseException e) {
+            // Left from an earlier run; every test writes under a new location
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.restaurantapp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurantapp.Controller.AnonymousFeedbackController;
+import com.restaurantapp.Controller.BookingController;
+import com.restaurantapp.Controller.CartController;
+import com.restaurantapp.Controller.CustomerFeedbackController;
+import com.restaurantapp.Controller.DemoController;
+import com.restaurantapp.Controller.DishController;
+import com.restaurantapp.Controller.DishesController;
+import com.restaurantapp.Controller.FeedbackController;
+import com.restaurantapp.Controller.LocationController;
+import com.restaurantapp.Controller.ProfileController;
+import com.restaurantapp.Controller.ReservationController;
+import com.restaurantapp.Controller.ReservationDeletionController;
+import com.restaurantapp.Controller.ReservationGetController;
+import com.restaurantapp.Controller.ReservationWaiterController;
+import com.restaurantapp.Controller.TableController;
+import com.restaurantapp.Controller.UserController;
+import com.restaurantapp.Middleware.AuthMiddleware;
+import com.restaurantapp.Repository.DishCatalog;
+import com.restaurantapp.Repository.ReferenceDataCache;
+import com.restaurantapp.Service.ReservationService;
+import com.restaurantapp.di.AppComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the route trie ApiHandler builds with the if/else chain it used before. The router
+ * is the production one; only its handlers' dependencies are left out, since no request is
+ * handled. Run after mvn test-compile with
+ * java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)
+ * org.openjdk.jmh.Main RouterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+
+    // First route in the chain, a late route with two params, the last route, and no route at all
+    @Param({
+            "GET /v1/hello",
+            "POST /v1/reservations/res-1/order/dish-2",
+            "DELETE /v1/reservations/res-1",
+            "GET /v1/unknown/path"
+    })
+    public String request;
+
+    private String method;
+    private String path;
+    private Router router;
+
+    @Setup
+    public void setUp() {
+        int space = request.indexOf(' ');
+        method = request.substring(0, space);
+        path = request.substring(space + 1);
+        router = new ApiHandler(new RouteOnlyComponent()).buildRouter();
+        if ((router.match(method, path) == null) != (chainMatch(method, path) == null)) {
+            throw new IllegalStateException("Router and chain disagree on " + request);
+        }
+    }
+
+    @Benchmark
+    public Router.Match trie() {
+        return router.match(method, path);
+    }
+
+    @Benchmark
+    public String chain() {
+        return chainMatch(method, path);
+    }
+
+    // The chain as ApiHandler.routeRequest had it, plus the routes added since: String.matches
+    // compiles a regex per call and parameters are pulled out with another split
+    private static String chainMatch(String method, String path) {
+        if ("/v1/hello".equals(path) && "GET".equals(method)) {
+            return "hello";
+        } else if ("/v1/auth/sign-up".equals(path) && "POST".equals(method)) {
+            return "sign-up";
+        } else if ("/v1/auth/sign-in".equals(path) && "POST".equals(method)) {
+            return "sign-in";
+        } else if ("/v1/dishes/popular".equals(path)) {
+            return "popular-dishes";
+        } else if (path.matches("/v1/locations/[^/]+/feedbacks") && "GET".equals(method)) {
+            return bind("location-feedbacks", path.split("/")[3]);
+        } else if (path.equals("/v1/locations") && "GET".equals(method)) {
+            return "locations";
+        } else if (path.matches("^/v1/locations/[^/]+/speciality-dishes$") && "GET".equals(method)) {
+            return bind("speciality-dishes", path.split("/")[3]);
+        } else if ("/v1/location/select-options".equals(path)) {
+            return "GET".equals(method) ? "select-options" : "select-options-other";
+        } else if ("/v1/bookings/tables".equals(path) && "GET".equals(method)) {
+            return "tables";
+        } else if (path.equals("/v1/feedbacks/visitor") && method.equals("GET")) {
+            return "visitor-feedback";
+        } else if ("/v1/create-waiter".equals(path) && "POST".equals(method)) {
+            return "create-waiter";
+        } else if ("/v1/remove-waiter".equals(path) && "POST".equals(method)) {
+            return "remove-waiter";
+        } else if ("/v1/update-booking".equals(path) && "PUT".equals(method)) {
+            return "update-booking";
+        } else if ("/v1/dishes".equals(path) && "GET".equals(method)) {
+            return "dishes";
+        } else if (path.matches("/v1/dishes/[^/]+") && "GET".equals(method)) {
+            return bind("dish", path.split("/")[3]);
+        } else if ("/v1/auth/profile".equals(path) && "GET".equals(method)) {
+            return "profile";
+        } else if ("/v1/bookings/client".equals(path) && "POST".equals(method)) {
+            return "create-booking";
+        } else if (path.matches("/v1/bookings/client/[^/]+") && "PUT".equals(method)) {
+            return bind("update-client-booking", path.split("/")[4]);
+        } else if ("/v1/reservations".equals(path) && "GET".equals(method)) {
+            return "reservations";
+        } else if (("/v1/feedbacks".equals(path) || "/v1/feedbacks/".equals(path)) && "POST".equals(method)) {
+            return "create-feedback";
+        } else if ("/v1/feedbacks/update".equals(path) && "PUT".equals(method)) {
+            return "update-feedback";
+        } else if (path.matches("/v1/feedbacks/[^/]+") && "GET".equals(method)) {
+            return bind("feedback", path.split("/")[3]);
+        } else if (path.matches("/v1/reservations/[^/]+/available-dishes") && "GET".equals(method)) {
+            return bind("available-dishes", path.split("/")[3]);
+        } else if (path.matches("/v1/reservations/[^/]+/order/[^/]+") && "POST".equals(method)) {
+            String[] pathParts = path.split("/");
+            return bind("order-dish", pathParts[3] + "," + pathParts[5]);
+        } else if (path.matches("/v1/reservations/[^/]+/order") && "POST".equals(method)) {
+            return bind("order", path.split("/")[3]);
+        } else if ("/v1/cart".equals(path) && "GET".equals(method)) {
+            return "cart";
+        } else if ("/v1/reservations-by-waiter".equals(path) && "GET".equals(method)) {
+            return "waiter-reservations";
+        } else if ("/v1/bookings/waiter".equals(path) && "POST".equals(method)) {
+            return "waiter-booking";
+        } else if ("/v1/cart".equals(path) && "PUT".equals(method)) {
+            return "submit-order";
+        } else if (path.matches("/v1/reservations/[^/]+") && "DELETE".equals(method)) {
+            return bind("cancel", path.split("/")[3]);
+        }
+        return null;
+    }
+
+    // Keeps the extracted parameters live so the split is not optimized away
+    private static String bind(String name, String params) {
+        return params.isEmpty() ? null : name;
+    }
+
+    /**
+     * Supplies only what building the route table reads. The catalog and cache are never
+     * queried, so they get no repositories or client
+     */
+    private static final class RouteOnlyComponent implements AppComponent {
+        @Override public DemoController demoController() { return null; }
+        @Override public UserController userController() { return null; }
+        @Override public ProfileController profileController() { return null; }
+        @Override public AuthMiddleware authMiddleware() { return null; }
+        @Override public ObjectMapper objectMapper() { return null; }
+        @Override public BookingController bookingController() { return null; }
+        @Override public ReservationGetController reservationGetController() { return null; }
+        @Override public TableController tableController() { return null; }
+        @Override public LocationController locationController() { return null; }
+        @Override public DishesController dishesController() { return null; }
+        @Override public FeedbackController feedbackController() { return null; }
+        @Override public ReservationWaiterController reservationWaiterController() { return null; }
+        @Override public CartController cartController() { return null; }
+        @Override public DishController dishController() { return null; }
+        @Override public AnonymousFeedbackController anonymousFeedbackController() { return null; }
+        @Override public ReservationService reservationService() { return null; }
+        @Override public ReservationDeletionController reservationDeletionController() { return null; }
+        @Override public ReservationController reservationController() { return null; }
+        @Override public CustomerFeedbackController customerFeedbackController() { return null; }
+        @Override public ReferenceDataCache referenceDataCache() { return new ReferenceDataCache(null, null, null, null); }
+        @Override public DishCatalog dishCatalog() { return new DishCatalog(null, null); }
+    }
+}
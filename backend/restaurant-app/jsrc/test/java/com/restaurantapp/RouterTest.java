@@ -0,0 +1,120 @@
+package com.restaurantapp;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouterTest {
+    private Router router;
+
+    @BeforeEach
+    void setUp() {
+        router = new Router()
+                .publicRoute("GET", "/v1/dishes", handler("dishes"))
+                .publicRoute("GET", "/v1/dishes/popular", handler("popular"))
+                .publicRoute("GET", "/v1/dishes/{dishId}", handler("dish"))
+                .publicRoute("GET", "/v1/location/select-options", handler("select-options"))
+                .publicRoute(Router.ANY_METHOD, "/v1/location/select-options", handler("select-options-any"))
+                .protectedRoute("POST", "/v1/reservations/{reservationId}/order/{dishId}", handler("order-dish"))
+                .protectedRoute("POST", "/v1/reservations/{reservationId}/order", handler("order"))
+                .protectedRoute("DELETE", "/v1/reservations/{reservationId}", handler("cancel"))
+                .protectedRoute("GET", "/v1/reservations/pending", handler("pending"));
+    }
+
+    @Test
+    void literalSegmentWinsOverParam() {
+        Router.Match match = router.match("GET", "/v1/dishes/popular");
+
+        assertEquals("popular", nameOf(match));
+        assertTrue(match.getPathParams().isEmpty());
+    }
+
+    @Test
+    void paramSegmentBindsValue() {
+        Router.Match match = router.match("GET", "/v1/dishes/dish-42");
+
+        assertEquals("dish", nameOf(match));
+        assertEquals(Map.of("dishId", "dish-42"), match.getPathParams());
+    }
+
+    @Test
+    void fallsBackToParamWhenLiteralHasNoRouteForMethod() {
+        // /v1/reservations/pending only answers GET, so DELETE binds it as a reservation ID
+        Router.Match match = router.match("DELETE", "/v1/reservations/pending");
+
+        assertEquals("cancel", nameOf(match));
+        assertEquals(Map.of("reservationId", "pending"), match.getPathParams());
+    }
+
+    @Test
+    void bindsSeveralParams() {
+        Router.Match match = router.match("POST", "/v1/reservations/res-1/order/dish-2");
+
+        assertEquals("order-dish", nameOf(match));
+        assertTrue(match.getRoute().isAuthRequired());
+        assertEquals(Map.of("reservationId", "res-1", "dishId", "dish-2"), match.getPathParams());
+    }
+
+    @Test
+    void exactMethodWinsOverAnyMethod() {
+        assertEquals("select-options", nameOf(router.match("GET", "/v1/location/select-options")));
+    }
+
+    @Test
+    void anyMethodAnswersOtherMethods() {
+        assertEquals("select-options-any", nameOf(router.match("POST", "/v1/location/select-options")));
+        assertEquals("select-options-any", nameOf(router.match("OPTIONS", "/v1/location/select-options")));
+    }
+
+    @Test
+    void ignoresTrailingSlash() {
+        assertEquals("dishes", nameOf(router.match("GET", "/v1/dishes/")));
+        assertEquals(Map.of("dishId", "dish-42"), router.match("GET", "/v1/dishes/dish-42/").getPathParams());
+    }
+
+    @Test
+    void paramDoesNotBindEmptySegment() {
+        assertNull(router.match("DELETE", "/v1/reservations//"));
+        assertNull(router.match("POST", "/v1/reservations//order"));
+    }
+
+    @Test
+    void returnsNullForUnknownPath() {
+        assertNull(router.match("GET", "/v1/unknown"));
+        assertNull(router.match("GET", "/v1/dishes/dish-42/extra"));
+        assertNull(router.match("GET", "/"));
+    }
+
+    @Test
+    void returnsNullForMethodMismatch() {
+        assertNull(router.match("POST", "/v1/dishes"));
+        assertNull(router.match("GET", "/v1/reservations/res-1/order"));
+    }
+
+    @Test
+    void publicRouteDoesNotRequireAuth() {
+        assertFalse(router.match("GET", "/v1/dishes").getRoute().isAuthRequired());
+    }
+
+    @Test
+    void rejectsDuplicateRoute() {
+        assertThrows(IllegalStateException.class,
+                () -> router.publicRoute("GET", "/v1/dishes/{id}", handler("duplicate")));
+    }
+
+    private static Router.Handler handler(String name) {
+        return (request, pathParams, claims) -> new APIGatewayProxyResponseEvent().withBody(name);
+    }
+
+    private static String nameOf(Router.Match match) {
+        return match.getRoute().getHandler().handle(null, match.getPathParams(), null).getBody();
+    }
+}
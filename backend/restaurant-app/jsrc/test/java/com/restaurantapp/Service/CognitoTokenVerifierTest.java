@@ -0,0 +1,186 @@
+package com.restaurantapp.Service;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Verifies tokens against a key set read from a local file, so no user pool is needed.
+ */
+class CognitoTokenVerifierTest {
+    private static final String ISSUER = "https://cognito-idp.eu-west-1.amazonaws.com/eu-west-1_test";
+    private static final String CLIENT_ID = "test-client";
+
+    @TempDir
+    Path tempDir;
+
+    private Path jwksFile;
+    private KeyPair signingKey;
+    private CognitoTokenVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        signingKey = generateKeyPair();
+        jwksFile = tempDir.resolve("jwks.json");
+        writeKeySet(Map.of("key-1", signingKey));
+        verifier = new CognitoTokenVerifier(ISSUER, CLIENT_ID, jwksFile.toUri().toString());
+    }
+
+    @Test
+    void acceptsValidToken() {
+        Map<String, Object> claims = verifier.verify(token("key-1", signingKey).compact());
+
+        assertNotNull(claims);
+        assertEquals("customer@example.com", claims.get("email"));
+        assertEquals(CLIENT_ID, claims.get("client_id"));
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        // Past the allowed clock skew
+        Date expiredAt = new Date(System.currentTimeMillis() - 5 * 60 * 1000L);
+
+        assertNull(verifier.verify(token("key-1", signingKey).setExpiration(expiredAt).compact()));
+    }
+
+    @Test
+    void rejectsWrongIssuer() {
+        String token = token("key-1", signingKey)
+                .setIssuer("https://cognito-idp.eu-west-1.amazonaws.com/eu-west-1_other")
+                .compact();
+
+        assertNull(verifier.verify(token));
+    }
+
+    @Test
+    void rejectsWrongClientId() {
+        assertNull(verifier.verify(token("key-1", signingKey).claim("client_id", "other-client").compact()));
+    }
+
+    @Test
+    void rejectsIdToken() {
+        assertNull(verifier.verify(token("key-1", signingKey).claim("token_use", "id").compact()));
+    }
+
+    @Test
+    void rejectsTokenSignedByAnotherKey() throws Exception {
+        assertNull(verifier.verify(token("key-1", generateKeyPair()).compact()));
+    }
+
+    @Test
+    void rejectsUnsignedToken() {
+        String token = Jwts.builder()
+                .setHeaderParam("kid", "key-1")
+                .setIssuer(ISSUER)
+                .claim("token_use", "access")
+                .claim("client_id", CLIENT_ID)
+                .setExpiration(new Date(System.currentTimeMillis() + 60 * 60 * 1000L))
+                .compact();
+
+        assertNull(verifier.verify(token));
+    }
+
+    @Test
+    void rejectsHmacSignedToken() {
+        String token = Jwts.builder()
+                .setHeaderParam("kid", "key-1")
+                .setIssuer(ISSUER)
+                .claim("token_use", "access")
+                .claim("client_id", CLIENT_ID)
+                .setExpiration(new Date(System.currentTimeMillis() + 60 * 60 * 1000L))
+                .signWith(SignatureAlgorithm.HS256, "not-the-user-pool-key".getBytes(StandardCharsets.UTF_8))
+                .compact();
+
+        assertNull(verifier.verify(token));
+    }
+
+    @Test
+    void rejectsUnknownKeyId() {
+        assertNull(verifier.verify(token("key-2", signingKey).compact()));
+    }
+
+    @Test
+    void unknownKeyIdDoesNotReloadKeySetWithinRefreshInterval() throws Exception {
+        // The first token loads the key set
+        assertNotNull(verifier.verify(token("key-1", signingKey).compact()));
+
+        // The pool rotates to a new key, but the cached set was loaded less than a minute ago
+        KeyPair rotatedKey = generateKeyPair();
+        writeKeySet(Map.of("key-1", signingKey, "key-2", rotatedKey));
+
+        assertNull(verifier.verify(token("key-2", rotatedKey).compact()));
+        assertNotNull(verifier.verify(token("key-1", signingKey).compact()));
+    }
+
+    @Test
+    void unknownKeyIdReloadsKeySetOnFirstLookup() throws Exception {
+        // Nothing is cached yet, so the first lookup reads the file as it is now
+        KeyPair rotatedKey = generateKeyPair();
+        writeKeySet(Map.of("key-2", rotatedKey));
+
+        assertNotNull(verifier.verify(token("key-2", rotatedKey).compact()));
+    }
+
+    private JwtBuilder token(String keyId, KeyPair keyPair) {
+        return Jwts.builder()
+                .setHeaderParam("kid", keyId)
+                .setIssuer(ISSUER)
+                .setSubject("user-1")
+                .claim("token_use", "access")
+                .claim("client_id", CLIENT_ID)
+                .claim("email", "customer@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60 * 60 * 1000L))
+                .signWith(SignatureAlgorithm.RS256, keyPair.getPrivate());
+    }
+
+    private void writeKeySet(Map<String, KeyPair> keyPairs) throws Exception {
+        StringBuilder json = new StringBuilder("{\"keys\":[");
+        String separator = "";
+        for (Map.Entry<String, KeyPair> entry : keyPairs.entrySet()) {
+            RSAPublicKey publicKey = (RSAPublicKey) entry.getValue().getPublic();
+            json.append(separator)
+                    .append("{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"").append(entry.getKey())
+                    .append("\",\"n\":\"").append(base64Url(publicKey.getModulus()))
+                    .append("\",\"e\":\"").append(base64Url(publicKey.getPublicExponent()))
+                    .append("\"}");
+            separator = ",";
+        }
+        json.append("]}");
+        Files.write(jwksFile, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        // Drop the sign byte BigInteger adds when the top bit is set
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] unsigned = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, unsigned, 0, unsigned.length);
+            bytes = unsigned;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+}